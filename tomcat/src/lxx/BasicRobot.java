@@ -4,16 +4,16 @@
 
 package lxx;
 
+import lxx.events.EventBus;
 import lxx.events.LXXKeyEvent;
+import lxx.office.PropertiesManager;
 import lxx.paint.LXXGraphics;
 import lxx.utils.*;
 import robocode.*;
 import robocode.util.Utils;
 
 import java.awt.event.KeyEvent;
-import java.util.LinkedHashSet;
 import java.util.LinkedList;
-import java.util.Set;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.signum;
@@ -28,9 +28,13 @@ public abstract class BasicRobot extends TeamRobot implements APoint, LXXRobot {
         QuickMath.init();
     }
 
-    private final Set<RobotListener> listeners = new LinkedHashSet<RobotListener>();
+    // robot is recreated every round, so profile of all battle is kept in static field
+    private static ListenersProfiler profiler;
+
+    private final EventBus eventBus = new EventBus();
     private final LXXPoint position = new LXXPoint();
     private final LinkedList<LXXPoint> last10Positions = new LinkedList<LXXPoint>();
+    private final LXXGraphics lxxGraphics = new LXXGraphics();
 
     private int initialOthers;
     public BattleField battleField;
@@ -57,6 +61,13 @@ public abstract class BasicRobot extends TeamRobot implements APoint, LXXRobot {
 
         prevState = new RobotSnapshot(this);
         currentState = new RobotSnapshot(this);
+
+        // turn budget is set in microseconds, usually it's equal to robocode's CPU constant
+        final long turnBudget = PropertiesManager.getLongProperty("lxx.ListenersProfiler.turnBudget", 0);
+        if (profiler == null && turnBudget > 0) {
+            profiler = new ListenersProfiler(turnBudget * 1000);
+        }
+        eventBus.setProfiler(profiler);
     }
 
     public double angleTo(APoint point) {
@@ -119,20 +130,25 @@ public abstract class BasicRobot extends TeamRobot implements APoint, LXXRobot {
         notifyListeners(new LXXKeyEvent(e.getKeyChar()));
     }
 
-    public void addListener(RobotListener listener) {
-        listeners.add(listener);
+    public EventBus getEventBus() {
+        return eventBus;
     }
 
     protected void notifyListeners(Event event) {
-        for (RobotListener listener : listeners) {
-            try {
-                listener.onEvent(event);
-            } catch (Throwable t) {
-                t.printStackTrace();
-            }
+        eventBus.publish(event);
+
+        if (profiler != null && event instanceof BattleEndedEvent) {
+            profiler.printReport();
         }
     }
 
+    public void execute() {
+        if (profiler != null) {
+            profiler.turnFinished();
+        }
+        super.execute();
+    }
+
     public void onHitWall(HitWallEvent event) {
         notifyListeners(event);
     }
@@ -170,10 +186,14 @@ public abstract class BasicRobot extends TeamRobot implements APoint, LXXRobot {
     }
 
     public LXXGraphics getLXXGraphics() {
-        return new LXXGraphics(getGraphics());
+        return lxxGraphics;
     }
 
     public void onStatus(StatusEvent e) {
+        // status event has highest priority, so it's first event of turn
+        if (profiler != null) {
+            profiler.turnStarted();
+        }
         prevState = currentState;
         currentState = new RobotSnapshot(this);
 
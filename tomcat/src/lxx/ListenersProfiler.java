@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx;
+
+import lxx.office.MetricsRegistry;
+import lxx.utils.TimeHistogram;
+import robocode.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects time, which listeners spend in events handling, by listener class and by event class,
+ * and time of robot's turns relative to turn budget (robocode's CPU constant)
+ */
+public class ListenersProfiler {
+
+    // deferrable listeners are skipped, when turn took more than this part of budget
+    private static final double DEFERRABLE_BUDGET_PART = 0.5;
+
+    private final Map<Class<?>, TimeHistogram> listenersTimes = new HashMap<Class<?>, TimeHistogram>();
+    private final Map<Class<?>, TimeHistogram> eventsTimes = new HashMap<Class<?>, TimeHistogram>();
+    private final MetricsRegistry.Histogram turnsTimes = MetricsRegistry.histogram("Turn time, ns");
+    private final MetricsRegistry.Counter overBudgetTurnsCount = MetricsRegistry.counter("Turns over budget");
+    private final MetricsRegistry.Counter skippedDeferrableEventsCount = MetricsRegistry.counter("Deferrable listeners skipped tick events");
+    private final long turnBudgetNanos;
+
+    private long turnStartTime = System.nanoTime();
+
+    public ListenersProfiler(long turnBudgetNanos) {
+        this.turnBudgetNanos = turnBudgetNanos;
+    }
+
+    public void turnStarted() {
+        turnStartTime = System.nanoTime();
+    }
+
+    public void turnFinished() {
+        final long turnTime = System.nanoTime() - turnStartTime;
+        turnsTimes.record(turnTime);
+        if (turnTime > turnBudgetNanos) {
+            overBudgetTurnsCount.inc();
+        }
+    }
+
+    public boolean isSkipDeferrable() {
+        return System.nanoTime() - turnStartTime > turnBudgetNanos * DEFERRABLE_BUDGET_PART;
+    }
+
+    public void deferrableEventSkipped() {
+        skippedDeferrableEventsCount.inc();
+    }
+
+    public void eventHandled(Class<?> listenerClass, Event event, long nanos) {
+        getHistogram(listenersTimes, listenerClass).record(nanos);
+        getHistogram(eventsTimes, event.getClass()).record(nanos);
+    }
+
+    private static TimeHistogram getHistogram(Map<Class<?>, TimeHistogram> histograms, Class<?> key) {
+        TimeHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = new TimeHistogram();
+            histograms.put(key, histogram);
+        }
+        return histogram;
+    }
+
+    public void printReport() {
+        final TimeHistogram turnsTimes = this.turnsTimes.getBattleValues();
+        System.out.printf("Turns: %d, over budget: %d, mean: %s, p99: %s, max: %s of %s budget\n",
+                turnsTimes.getCount(), overBudgetTurnsCount.get(), toBudgetPart((long) turnsTimes.getMean()),
+                toBudgetPart(turnsTimes.getValueAtPercentile(99)), toBudgetPart(turnsTimes.getMax()), turnBudgetNanos / 1000 + " us");
+        System.out.println("Deferrable listeners skipped tick events: " + skippedDeferrableEventsCount.get());
+        System.out.println("Listeners:");
+        printHistograms(listenersTimes);
+        System.out.println("Events:");
+        printHistograms(eventsTimes);
+    }
+
+    private String toBudgetPart(long nanos) {
+        return String.format("%3.1f%%", nanos * 100D / turnBudgetNanos);
+    }
+
+    private static void printHistograms(Map<Class<?>, TimeHistogram> histograms) {
+        final List<Map.Entry<Class<?>, TimeHistogram>> entries = new ArrayList<Map.Entry<Class<?>, TimeHistogram>>(histograms.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Class<?>, TimeHistogram>>() {
+            public int compare(Map.Entry<Class<?>, TimeHistogram> o1, Map.Entry<Class<?>, TimeHistogram> o2) {
+                return o1.getValue().getTotal() < o2.getValue().getTotal() ? 1 : (o1.getValue().getTotal() > o2.getValue().getTotal() ? -1 : 0);
+            }
+        });
+        for (Map.Entry<Class<?>, TimeHistogram> e : entries) {
+            final TimeHistogram h = e.getValue();
+            System.out.printf("    %-30s total: %7d ms, calls: %7d, mean: %6.1f us, p50: %6d us, p99: %6d us, max: %6d us\n",
+                    getName(e.getKey()), h.getTotal() / 1000000, h.getCount(), h.getMean() / 1000,
+                    h.getValueAtPercentile(50) / 1000, h.getValueAtPercentile(99) / 1000, h.getMax() / 1000);
+        }
+    }
+
+    // anonymous classes haven't simple name
+    private static String getName(Class<?> clazz) {
+        return clazz.getSimpleName().length() > 0 ? clazz.getSimpleName() : clazz.getName();
+    }
+
+}
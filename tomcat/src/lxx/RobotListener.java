@@ -1,17 +0,0 @@
-/*
- * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
- */
-
-package lxx;
-
-import robocode.Event;
-
-/**
- * User: jdev
- * Date: 13.09.2010
- */
-public interface RobotListener {
-
-    void onEvent(Event event);
-
-}
@@ -6,7 +6,6 @@ package lxx;
 
 import lxx.bullets.LXXBullet;
 import lxx.events.FireEvent;
-import lxx.events.LXXPaintEvent;
 import lxx.events.TickEvent;
 import lxx.office.Office;
 import lxx.office.OfficeImpl;
@@ -85,7 +84,7 @@ public class Tomcat extends BasicRobot {
             }
             notifyListeners(new TickEvent(getTime()));
             if (isPaintEnabled) {
-                notifyListeners(new LXXPaintEvent(getLXXGraphics()));
+                office.getPaintManager().paint(getLXXGraphics(), getGraphics());
             }
         }
     }
@@ -170,6 +169,10 @@ public class Tomcat extends BasicRobot {
         isPaintEnabled = true;
     }
 
+    public boolean isPaintEnabled() {
+        return isPaintEnabled;
+    }
+
     public double getFirePower() {
         return turnDecision.getFirePower();
     }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.bullets;
+
+import lxx.utils.LXXConstants;
+
+import java.util.List;
+
+/**
+ * Danger of bullet's predicted bearing offsets, which aren't shadowed.
+ * Danger of bearing offset is triangular kernel of distance to it, which width depends on robot width,
+ * so profile stores prefix sums of dangers and danger weighted bearing offsets over fixed resolution array
+ * and kernel sum for any robot width is computed by 5 lookups
+ */
+public class DangerProfile {
+
+    private static final double INNER_WIDTH_FACTOR = 0.75;
+    private static final double OUTER_WIDTH_FACTOR = 2.55;
+    private static final double CELL_SIZE = LXXConstants.RADIANS_0_1;
+
+    private final double minBearingOffset;
+    private final int cellsCount;
+
+    // bearing offsets grouped by cells, i-th cell's offsets starts from cellStarts[i]
+    private final int[] cellStarts;
+    private final double[] bearingOffsets;
+    private final double[] dangers;
+
+    // i-th elements are sums over bearing offsets in cells before i-th
+    private final double[] dangerSums;
+    private final double[] weightedBearingOffsetSums;
+
+    public DangerProfile(List<PastBearingOffset> pastBearingOffsets, LXXBullet bullet) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        int count = 0;
+        for (PastBearingOffset bo : pastBearingOffsets) {
+            if (!bullet.isShadowed(bo.bearingOffset)) {
+                min = Math.min(min, bo.bearingOffset);
+                max = Math.max(max, bo.bearingOffset);
+                count++;
+            }
+        }
+        if (count == 0) {
+            min = max = 0;
+        }
+        minBearingOffset = min;
+        cellsCount = (int) ((max - min) / CELL_SIZE) + 1;
+
+        cellStarts = new int[cellsCount + 1];
+        for (PastBearingOffset bo : pastBearingOffsets) {
+            if (!bullet.isShadowed(bo.bearingOffset)) {
+                cellStarts[getCell(bo.bearingOffset) + 1]++;
+            }
+        }
+        for (int i = 1; i <= cellsCount; i++) {
+            cellStarts[i] += cellStarts[i - 1];
+        }
+
+        bearingOffsets = new double[count];
+        dangers = new double[count];
+        final int[] cellSizes = new int[cellsCount];
+        dangerSums = new double[cellsCount + 1];
+        weightedBearingOffsetSums = new double[cellsCount + 1];
+        for (PastBearingOffset bo : pastBearingOffsets) {
+            if (!bullet.isShadowed(bo.bearingOffset)) {
+                final int cell = getCell(bo.bearingOffset);
+                final int idx = cellStarts[cell] + cellSizes[cell]++;
+                bearingOffsets[idx] = bo.bearingOffset;
+                dangers[idx] = bo.danger;
+                dangerSums[cell + 1] += bo.danger;
+                weightedBearingOffsetSums[cell + 1] += bo.danger * bo.bearingOffset;
+            }
+        }
+        for (int i = 1; i <= cellsCount; i++) {
+            dangerSums[i] += dangerSums[i - 1];
+            weightedBearingOffsetSums[i] += weightedBearingOffsetSums[i - 1];
+        }
+    }
+
+    public double getDanger(double bearingOffset, double robotWidthInRadians) {
+        final double innerWidth = robotWidthInRadians * INNER_WIDTH_FACTOR;
+        final double outerWidth = robotWidthInRadians * OUTER_WIDTH_FACTOR;
+
+        final double outerFromDanger = getDangerBelow(bearingOffset - outerWidth);
+        final double innerFromDanger = getDangerBelow(bearingOffset - innerWidth);
+        final double centerDanger = getDangerBelow(bearingOffset);
+        final double innerToDanger = getDangerBelow(bearingOffset + innerWidth);
+        final double outerToDanger = getDangerBelow(bearingOffset + outerWidth);
+
+        final double outerFromWeighted = getWeightedBearingOffsetBelow(bearingOffset - outerWidth);
+        final double innerFromWeighted = getWeightedBearingOffsetBelow(bearingOffset - innerWidth);
+        final double centerWeighted = getWeightedBearingOffsetBelow(bearingOffset);
+        final double innerToWeighted = getWeightedBearingOffsetBelow(bearingOffset + innerWidth);
+        final double outerToWeighted = getWeightedBearingOffsetBelow(bearingOffset + outerWidth);
+
+        // sum of danger * distance is computed from sums of danger and danger * bearing offset separately for left and right sides
+        final double innerDistancesSum = bearingOffset * (centerDanger - innerFromDanger) - (centerWeighted - innerFromWeighted) +
+                (innerToWeighted - centerWeighted) - bearingOffset * (innerToDanger - centerDanger);
+        final double outerDistancesSum = bearingOffset * (innerFromDanger - outerFromDanger) - (innerFromWeighted - outerFromWeighted) +
+                (outerToWeighted - innerToWeighted) - bearingOffset * (outerToDanger - innerToDanger);
+
+        final double innerDanger = 2 * (innerToDanger - innerFromDanger) - innerDistancesSum / innerWidth;
+        final double outerDanger = (innerFromDanger - outerFromDanger) + (outerToDanger - innerToDanger) - outerDistancesSum / outerWidth;
+
+        return innerDanger + outerDanger;
+    }
+
+    private double getDangerBelow(double bearingOffset) {
+        final int cell = getCell(bearingOffset);
+        if (cell < 0) {
+            return 0;
+        } else if (cell >= cellsCount) {
+            return dangerSums[cellsCount];
+        }
+        double res = dangerSums[cell];
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            if (bearingOffsets[i] < bearingOffset) {
+                res += dangers[i];
+            }
+        }
+        return res;
+    }
+
+    private double getWeightedBearingOffsetBelow(double bearingOffset) {
+        final int cell = getCell(bearingOffset);
+        if (cell < 0) {
+            return 0;
+        } else if (cell >= cellsCount) {
+            return weightedBearingOffsetSums[cellsCount];
+        }
+        double res = weightedBearingOffsetSums[cell];
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            if (bearingOffsets[i] < bearingOffset) {
+                res += dangers[i] * bearingOffsets[i];
+            }
+        }
+        return res;
+    }
+
+    private int getCell(double bearingOffset) {
+        final double cell = Math.floor((bearingOffset - minBearingOffset) / CELL_SIZE);
+        if (cell < 0) {
+            return -1;
+        } else if (cell >= cellsCount) {
+            return cellsCount;
+        }
+        return (int) cell;
+    }
+
+}
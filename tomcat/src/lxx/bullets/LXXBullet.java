@@ -7,6 +7,7 @@ package lxx.bullets;
 import lxx.LXXRobot;
 import lxx.LXXRobotState;
 import lxx.bullets.enemy.BulletShadow;
+import lxx.bullets.enemy.EnemyBulletPredictionData;
 import lxx.utils.APoint;
 import lxx.utils.AimingPredictionData;
 import lxx.utils.LXXPoint;
@@ -15,9 +16,7 @@ import lxx.utils.wave.Wave;
 import robocode.Bullet;
 import robocode.util.Utils;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 import static java.lang.Math.signum;
 
@@ -32,7 +31,10 @@ public class LXXBullet {
     private Bullet bullet;
     private LXXBulletState state;
     private AimingPredictionData aimPredictionData;
-    private Map<LXXBullet, BulletShadow> bulletShadows = new HashMap<LXXBullet, BulletShadow>();
+    private Map<LXXBullet, List<BulletShadow>> bulletShadows = new HashMap<LXXBullet, List<BulletShadow>>();
+    // union of all shadows, sorted disjoint intervals
+    private List<BulletShadow> mergedBulletShadows = new ArrayList<BulletShadow>();
+    private DangerProfile dangerProfile;
 
     public LXXBullet(Bullet bullet, Wave w, AimingPredictionData aimPredictionData) {
         this.bullet = bullet;
@@ -64,6 +66,17 @@ public class LXXBullet {
 
     public void setAimPredictionData(AimingPredictionData aimPredictionData) {
         this.aimPredictionData = aimPredictionData;
+        dangerProfile = null;
+    }
+
+    /**
+     * @return danger profile of enemy's bullet, which is rebuilt only after prediction data or shadows change
+     */
+    public DangerProfile getDangerProfile() {
+        if (dangerProfile == null) {
+            dangerProfile = new DangerProfile(((EnemyBulletPredictionData) aimPredictionData).getPredictedBearingOffsets(), this);
+        }
+        return dangerProfile;
     }
 
     public LXXRobot getOwner() {
@@ -151,18 +164,80 @@ public class LXXBullet {
     }
 
     public void addBulletShadow(LXXBullet bullet, BulletShadow shadow) {
-        bulletShadows.put(bullet, shadow);
-    }
-
-    public BulletShadow getBulletShadow(LXXBullet bullet) {
-        return bulletShadows.get(bullet);
+        List<BulletShadow> shadows = bulletShadows.get(bullet);
+        if (shadows == null) {
+            shadows = new ArrayList<BulletShadow>(2);
+            bulletShadows.put(bullet, shadows);
+        }
+        shadows.add(shadow);
+        mergeBulletShadows();
+    }
+
+    /**
+     * Removes shadows of given bullet, which will be cast after given time
+     */
+    public void removeBulletShadows(LXXBullet bullet, long time) {
+        final List<BulletShadow> shadows = bulletShadows.get(bullet);
+        if (shadows == null) {
+            return;
+        }
+        for (Iterator<BulletShadow> iter = shadows.iterator(); iter.hasNext();) {
+            if (iter.next().castTime > time) {
+                iter.remove();
+            }
+        }
+        if (shadows.size() == 0) {
+            bulletShadows.remove(bullet);
+        }
+        mergeBulletShadows();
     }
 
     public Collection<BulletShadow> getBulletShadows() {
-        return bulletShadows.values();
-    }
-
-    public void removeBulletShadow(LXXBullet bullet) {
-        bulletShadows.remove(bullet);
+        return mergedBulletShadows;
+    }
+
+    public boolean isShadowed(double bearingOffset) {
+        int low = 0;
+        int high = mergedBulletShadows.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final BulletShadow shadow = mergedBulletShadows.get(mid);
+            if (shadow.b < bearingOffset) {
+                low = mid + 1;
+            } else if (shadow.a > bearingOffset) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void mergeBulletShadows() {
+        final List<BulletShadow> shadows = new ArrayList<BulletShadow>();
+        for (List<BulletShadow> bulletShadows : this.bulletShadows.values()) {
+            shadows.addAll(bulletShadows);
+        }
+        Collections.sort(shadows, new Comparator<BulletShadow>() {
+            public int compare(BulletShadow o1, BulletShadow o2) {
+                return Double.compare(o1.a, o2.a);
+            }
+        });
+
+        final List<BulletShadow> merged = new ArrayList<BulletShadow>(shadows.size());
+        BulletShadow last = null;
+        for (BulletShadow shadow : shadows) {
+            if (last != null && shadow.a <= last.b) {
+                if (shadow.b > last.b) {
+                    last = new BulletShadow(last.a, shadow.b, Math.max(last.castTime, shadow.castTime));
+                    merged.set(merged.size() - 1, last);
+                }
+            } else {
+                last = shadow;
+                merged.add(last);
+            }
+        }
+        mergedBulletShadows = merged;
+        dangerProfile = null;
     }
 }
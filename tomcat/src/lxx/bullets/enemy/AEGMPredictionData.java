@@ -12,11 +12,21 @@ import java.util.Map;
 public class AEGMPredictionData extends EnemyBulletPredictionData {
 
     private final Map<AdvancedEnemyGunModel.Log, List<PastBearingOffset>> allLogsPredictions;
+    private final int modelVersion;
 
     public AEGMPredictionData(List<PastBearingOffset> predictedBearingOffsets,
-                              int enemyWavesCollected, long predictionTime, Map<AdvancedEnemyGunModel.Log, List<PastBearingOffset>> allLogsPredictions) {
+                              int enemyWavesCollected, long predictionTime, Map<AdvancedEnemyGunModel.Log, List<PastBearingOffset>> allLogsPredictions,
+                              int modelVersion) {
         super(predictedBearingOffsets, enemyWavesCollected, predictionTime);
         this.allLogsPredictions = allLogsPredictions;
+        this.modelVersion = modelVersion;
+    }
+
+    /**
+     * @return version of enemy's log set, which this data was predicted with
+     */
+    public int getModelVersion() {
+        return modelVersion;
     }
 
     public List<PastBearingOffset> getBearingOffset(AdvancedEnemyGunModel.Log log) {
@@ -5,10 +5,15 @@
 package lxx.bullets.enemy;
 
 import lxx.LXXRobot;
+import lxx.Tomcat;
 import lxx.bullets.BulletManagerListener;
 import lxx.bullets.LXXBullet;
 import lxx.bullets.PastBearingOffset;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
+import lxx.office.MetricsRegistry;
 import lxx.office.Office;
+import lxx.office.PropertiesManager;
 import lxx.targeting.GunType;
 import lxx.targeting.Target;
 import lxx.ts_log.TurnSnapshot;
@@ -16,28 +21,40 @@ import lxx.ts_log.TurnSnapshotsLog;
 import lxx.ts_log.attributes.Attribute;
 import lxx.ts_log.attributes.AttributesManager;
 import lxx.utils.AvgValue;
-import lxx.utils.Interval;
 import lxx.utils.IntervalDouble;
 import lxx.utils.LXXUtils;
-import lxx.utils.ps_tree.PSTree;
+import lxx.utils.ps_tree.MultiRangeIndex;
 import lxx.utils.ps_tree.PSTreeEntry;
 import lxx.utils.wave.Wave;
 import lxx.utils.wave.WaveCallback;
+import robocode.DeathEvent;
 import robocode.Rules;
+import robocode.WinEvent;
 
 import java.util.*;
 
 import static java.lang.Math.pow;
 import static java.lang.Math.round;
-import static java.lang.StrictMath.min;
 import static java.lang.StrictMath.signum;
 
 public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallback {
 
     public static final int FIRE_DETECTION_LATENCY = 2;
 
+    private static final int LOG_BEARING_OFFSETS_COUNT = 5;
+
+    private static final Map<Attribute, Double> halfSideLength = LXXUtils.toMap(
+            AttributesManager.myLateralSpeed, 2D,
+            AttributesManager.myAcceleration, 0D,
+            AttributesManager.distBetween, 75D,
+            AttributesManager.myDistToForwardWall, 50D,
+            AttributesManager.myDistLast10Ticks, 20D);
+
     private static final Map<String, LogSet> logSets = new HashMap<String, LogSet>();
 
+    private static final MetricsRegistry.Counter restoredEntriesCount = MetricsRegistry.counter("Enemy gun log entries restored");
+    private static final MetricsRegistry.Counter storedLogSetsCount = MetricsRegistry.counter("Enemy gun log sets stored");
+
     private final Map<LXXBullet, PSTreeEntry<UndirectedGuessFactor>> entriesByBullets = new HashMap<LXXBullet, PSTreeEntry<UndirectedGuessFactor>>();
     private final Map<Wave, LXXBullet> bulletsByWaves = new HashMap<Wave, LXXBullet>();
 
@@ -49,10 +66,51 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
         this.office = office;
     }
 
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(DeathEvent.class, EventBus.PRIORITY_ENEMY_BULLETS, new EventHandler<DeathEvent>() {
+            public void handle(DeathEvent event) {
+                roundEnded();
+            }
+        });
+        eventBus.subscribe(WinEvent.class, EventBus.PRIORITY_ENEMY_BULLETS, new EventHandler<WinEvent>() {
+            public void handle(WinEvent event) {
+                roundEnded();
+            }
+        });
+    }
+
+    // logs are stored in end of last round, because data files may be not writable after battle end
+    private void roundEnded() {
+        final Tomcat robot = office.getRobot();
+        final long budget = getStoreBudget();
+        if (budget <= 0 || robot.getRoundNum() != robot.getNumRounds() - 1) {
+            return;
+        }
+        for (Map.Entry<String, LogSet> e : logSets.entrySet()) {
+            final LogSet logSet = e.getValue();
+            if (EnemyGunLogsStore.save(robot.getDataDirectory(), e.getKey(), logSet.hitIndex, logSet.visitIndex,
+                    budget, robot.getDataQuotaAvailable())) {
+                storedLogSetsCount.inc();
+            }
+        }
+    }
+
+    // budget is set in kilobytes, persistence of logs is disabled if it isn't set
+    private static long getStoreBudget() {
+        return PropertiesManager.getLongProperty("lxx.EnemyGunLogsStore.budget", 0) * 1024;
+    }
+
     public EnemyBulletPredictionData getPredictionData(LXXRobot t, final TurnSnapshot turnSnapshot) {
         return getLogSet(t.getName()).getPredictionData(turnSnapshot, t);
     }
 
+    /**
+     * @return version of enemy's log set, which is changed every time, when it learns
+     */
+    public int getVersion(LXXRobot t) {
+        return getLogSet(t.getName()).version;
+    }
+
     public void bulletFired(LXXBullet bullet) {
         final PSTreeEntry<UndirectedGuessFactor> entry = new PSTreeEntry<UndirectedGuessFactor>(turnSnapshotsLog.getLastSnapshot((Target) bullet.getOwner(), FIRE_DETECTION_LATENCY));
         entriesByBullets.put(bullet, entry);
@@ -78,6 +136,10 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
         if (logSet == null) {
             logSet = createLogSet();
             logSets.put(enemyName, logSet);
+            if (getStoreBudget() > 0 &&
+                    EnemyGunLogsStore.load(office.getRobot().getDataDirectory(), enemyName, logSet.hitIndex, logSet.visitIndex)) {
+                restoredEntriesCount.add(logSet.hitIndex.size() + logSet.visitIndex.size());
+            }
         }
         return logSet;
     }
@@ -99,13 +161,8 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
 
     class Log {
 
-        private PSTree<UndirectedGuessFactor> log;
-        private Map<Attribute, Double> halfSideLength = LXXUtils.toMap(
-                AttributesManager.myLateralSpeed, 2D,
-                AttributesManager.myAcceleration, 0D,
-                AttributesManager.distBetween, 75D,
-                AttributesManager.myDistToForwardWall, 50D,
-                AttributesManager.myDistLast10Ticks, 20D);
+        private final MultiRangeIndex<UndirectedGuessFactor> index;
+        private final int attributesMask;
         private double efficiency = 1;
 
         private final AvgValue shortAvgHitRate = new AvgValue(3);
@@ -119,64 +176,37 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
         private Attribute[] attrs;
         public int usage = 0;
 
-        private Log(Attribute[] attrs) {
+        private Log(MultiRangeIndex<UndirectedGuessFactor> index, Attribute[] attrs) {
+            this.index = index;
             this.attrs = attrs;
-            this.log = new PSTree<UndirectedGuessFactor>(this.attrs, 2, 0.0001);
-        }
-
-        public EnemyBulletPredictionData getPredictionData(TurnSnapshot ts, LXXRobot t) {
-            final List<PastBearingOffset> bearingOffsets = getBearingOffsets(ts, t.getFirePower());
-
-            return new EnemyBulletPredictionData(bearingOffsets, (int) ts.getAttrValue(AttributesManager.enemyOutgoingWavesCollected), 0);
+            this.attributesMask = index.getAttributesMask(attrs);
         }
 
-        private List<PastBearingOffset> getBearingOffsets(TurnSnapshot predicate, double firePower) {
-            final List<PSTreeEntry<UndirectedGuessFactor>> entries = log.getSimilarEntries(getLimits(predicate));
-            Collections.sort(entries, new Comparator<PSTreeEntry>() {
-                public int compare(PSTreeEntry o1, PSTreeEntry o2) {
-                    return o2.predicate.roundTime - o1.predicate.roundTime;
-                }
-            });
-
-            final double lateralVelocity = LXXUtils.lateralVelocity(LXXUtils.getEnemyPos(predicate), LXXUtils.getMyPos(predicate),
-                    predicate.getMySpeed(), predicate.getMyAbsoluteHeadingRadians());
-            final double lateralDirection = lateralVelocity != 0 ? signum(lateralVelocity) : 1;
-            final double bulletSpeed = Rules.getBulletSpeed(firePower);
-            final double maxEscapeAngleQuick = LXXUtils.getMaxEscapeAngle(bulletSpeed);
+        // index's query must be prepared for predicate
+        private List<PastBearingOffset> getBearingOffsets(TurnSnapshot predicate, double lateralDirection, double maxEscapeAngleQuick,
+                                                          List<PSTreeEntry<UndirectedGuessFactor>> entries) {
+            entries.clear();
+            index.getMostRecentEntries(attributesMask, LOG_BEARING_OFFSETS_COUNT, entries);
 
             final List<PastBearingOffset> bearingOffsets = new LinkedList<PastBearingOffset>();
-            if (entries.size() > 0) {
-                for (PSTreeEntry<UndirectedGuessFactor> entry : entries.subList(0, min(5, entries.size()))) {
-                    try {
-                        if (entry.result.lateralDirection != 0 && lateralDirection != 0) {
-                            bearingOffsets.add(new PastBearingOffset(entry.predicate,
-                                    entry.result.guessFactor * entry.result.lateralDirection * lateralDirection * maxEscapeAngleQuick,
-                                    1));
-                        } else {
-                            bearingOffsets.add(new PastBearingOffset(entry.predicate, entry.result.guessFactor * 1 * maxEscapeAngleQuick, 1));
-                            bearingOffsets.add(new PastBearingOffset(entry.predicate, entry.result.guessFactor * -1 * maxEscapeAngleQuick, 1));
-                        }
-                    } catch (NullPointerException npe) {
-                        npe.printStackTrace();
+            for (PSTreeEntry<UndirectedGuessFactor> entry : entries) {
+                try {
+                    if (entry.result.lateralDirection != 0 && lateralDirection != 0) {
+                        bearingOffsets.add(new PastBearingOffset(entry.predicate,
+                                entry.result.guessFactor * entry.result.lateralDirection * lateralDirection * maxEscapeAngleQuick,
+                                1));
+                    } else {
+                        bearingOffsets.add(new PastBearingOffset(entry.predicate, entry.result.guessFactor * 1 * maxEscapeAngleQuick, 1));
+                        bearingOffsets.add(new PastBearingOffset(entry.predicate, entry.result.guessFactor * -1 * maxEscapeAngleQuick, 1));
                     }
+                } catch (NullPointerException npe) {
+                    npe.printStackTrace();
                 }
             }
 
             return bearingOffsets;
         }
 
-        private Map<Attribute, Interval> getLimits(TurnSnapshot center) {
-            final Map<Attribute, Interval> res = new HashMap<Attribute, Interval>();
-            for (Attribute attr : attrs) {
-                double delta = halfSideLength.get(attr);
-                res.put(attr,
-                        new Interval((int) round(LXXUtils.limit(attr, center.getAttrValue(attr) - delta)),
-                                (int) round(LXXUtils.limit(attr, center.getAttrValue(attr) + delta))));
-            }
-
-            return res;
-        }
-
     }
 
     private class LogSet {
@@ -188,13 +218,25 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
         private int FIRST_LONG_IDX = 4;
         private int SECOND_LONG_IDX = 5;
 
+        // all logs of set contains same entries, so they are stored once and logs are just queries by different attributes
+        private final MultiRangeIndex<UndirectedGuessFactor> hitIndex;
+        private final MultiRangeIndex<UndirectedGuessFactor> visitIndex;
+
         private List<Log> hitLogsSet = new ArrayList<Log>();
         private List<Log> visitLogsSet = new ArrayList<Log>();
 
+        private final List<PSTreeEntry<UndirectedGuessFactor>> entriesBuffer = new ArrayList<PSTreeEntry<UndirectedGuessFactor>>();
+
+        private int version;
+
+        private LogSet(Attribute[] hitAttributes, Attribute[] visitAttributes) {
+            hitIndex = new MultiRangeIndex<UndirectedGuessFactor>(hitAttributes, LOG_BEARING_OFFSETS_COUNT);
+            visitIndex = new MultiRangeIndex<UndirectedGuessFactor>(visitAttributes, LOG_BEARING_OFFSETS_COUNT);
+        }
+
         public void learn(PSTreeEntry<UndirectedGuessFactor> entry) {
-            for (Log log : visitLogsSet) {
-                log.log.addEntry(entry);
-            }
+            visitIndex.addEntry(entry);
+            version++;
         }
 
         public EnemyBulletPredictionData getPredictionData(TurnSnapshot ts, LXXRobot t) {
@@ -212,9 +254,17 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
                 updateBestLog(bestLogs, hitLog, SECOND_LONG_IDX, 2);
             }
 
+            prepareQuery(hitIndex, ts);
+            prepareQuery(visitIndex, ts);
+
+            final double lateralVelocity = LXXUtils.lateralVelocity(LXXUtils.getEnemyPos(ts), LXXUtils.getMyPos(ts),
+                    ts.getMySpeed(), ts.getMyAbsoluteHeadingRadians());
+            final double lateralDirection = lateralVelocity != 0 ? signum(lateralVelocity) : 1;
+            final double maxEscapeAngleQuick = LXXUtils.getMaxEscapeAngle(Rules.getBulletSpeed(t.getFirePower()));
+
             final Map<Log, List<PastBearingOffset>> allLogsBearingOffsets = new HashMap<Log, List<PastBearingOffset>>();
             for (Log log : allLogs) {
-                final List<PastBearingOffset> logBOs = log.getBearingOffsets(ts, t.getFirePower());
+                final List<PastBearingOffset> logBOs = log.getBearingOffsets(ts, lateralDirection, maxEscapeAngleQuick, entriesBuffer);
                 allLogsBearingOffsets.put(log, logBOs);
                 // todo(zhidkov): rewrite it
                 for (Log bestLog : bestLogs) {
@@ -231,7 +281,20 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
             }
 
             return new AEGMPredictionData(bearingOffsets, (int) ts.getAttrValue(AttributesManager.enemyOutgoingWavesCollected),
-                    t.getTime(), allLogsBearingOffsets);
+                    t.getTime(), allLogsBearingOffsets, version);
+        }
+
+        private void prepareQuery(MultiRangeIndex<UndirectedGuessFactor> index, TurnSnapshot center) {
+            final Attribute[] attributes = index.getAttributes();
+            final int[] from = new int[attributes.length];
+            final int[] to = new int[attributes.length];
+            for (int i = 0; i < attributes.length; i++) {
+                final Attribute attr = attributes[i];
+                final double delta = halfSideLength.get(attr);
+                from[i] = (int) round(LXXUtils.limit(attr, center.getAttrValue(attr) - delta));
+                to[i] = (int) round(LXXUtils.limit(attr, center.getAttrValue(attr) + delta));
+            }
+            index.prepareQuery(from, to);
         }
 
         private void updateBestLog(Log[] bestLogs, Log log, int idx, int type) {
@@ -287,6 +350,7 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
         }
 
         public void learn(LXXBullet bullet, TurnSnapshot predicate, boolean isHit) {
+            version++;
             recalculateLogSetEfficiency(bullet, predicate, visitLogsSet, isHit);
             recalculateLogSetEfficiency(bullet, predicate, hitLogsSet, isHit);
 
@@ -295,9 +359,7 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
                 final double undirectedGuessFactor = bullet.getRealBearingOffsetRadians() / LXXUtils.getMaxEscapeAngle(bullet.getSpeed());
                 final PSTreeEntry<UndirectedGuessFactor> entry = new PSTreeEntry<UndirectedGuessFactor>(predicate);
                 entry.result = new UndirectedGuessFactor(undirectedGuessFactor, direction);
-                for (Log log : hitLogsSet) {
-                    log.log.addEntry(entry);
-                }
+                hitIndex.addEntry(entry);
             }
         }
 
@@ -361,36 +423,32 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
     }
 
     private LogSet createLogSet() {
-        final LogSet res = new LogSet();
-
-        res.visitLogsSet.addAll(createVisitLogs());
-        res.hitLogsSet.addAll(createHitLogs());
-
-        return res;
-    }
-
-    private List<Log> createVisitLogs() {
-        final Attribute[] possibleAttributes = {
+        final Attribute[] visitAttributes = {
                 AttributesManager.myLateralSpeed,
                 AttributesManager.myAcceleration,
                 AttributesManager.distBetween,
                 AttributesManager.myDistToForwardWall,
         };
-
-        return createLogs(possibleAttributes, new Attribute[0], 1, Integer.MAX_VALUE);
-    }
-
-    private List<Log> createHitLogs() {
-        final Attribute[] possibleAttributes = {
+        final Attribute[] hitRequiredAttributes = {AttributesManager.myLateralSpeed};
+        final Attribute[] hitPossibleAttributes = {
                 AttributesManager.myAcceleration,
                 AttributesManager.distBetween,
                 AttributesManager.myDistToForwardWall,
                 AttributesManager.myDistLast10Ticks,
         };
-        return createLogs(possibleAttributes, new Attribute[]{AttributesManager.myLateralSpeed}, 1, Integer.MAX_VALUE);
+        final Attribute[] hitAttributes = new Attribute[hitRequiredAttributes.length + hitPossibleAttributes.length];
+        System.arraycopy(hitRequiredAttributes, 0, hitAttributes, 0, hitRequiredAttributes.length);
+        System.arraycopy(hitPossibleAttributes, 0, hitAttributes, hitRequiredAttributes.length, hitPossibleAttributes.length);
+
+        final LogSet res = new LogSet(hitAttributes, visitAttributes);
+
+        res.visitLogsSet.addAll(createLogs(res.visitIndex, visitAttributes, new Attribute[0], 1, Integer.MAX_VALUE));
+        res.hitLogsSet.addAll(createLogs(res.hitIndex, hitPossibleAttributes, hitRequiredAttributes, 1, Integer.MAX_VALUE));
+
+        return res;
     }
 
-    private List<Log> createLogs(Attribute[] possibleAttributes, Attribute[] requiredAttributes,
+    private List<Log> createLogs(MultiRangeIndex<UndirectedGuessFactor> index, Attribute[] possibleAttributes, Attribute[] requiredAttributes,
                                  int minElements, int maxElements) {
         final List<Log> logs = new ArrayList<Log>();
         for (int i = 0; i < pow(2, possibleAttributes.length); i++) {
@@ -405,7 +463,7 @@ public class AdvancedEnemyGunModel implements BulletManagerListener, WaveCallbac
             if (attrs.size() < minElements || attrs.size() > maxElements) {
                 continue;
             }
-            logs.add(new Log(attrs.toArray(new Attribute[attrs.size()])));
+            logs.add(new Log(index, attrs.toArray(new Attribute[attrs.size()])));
         }
         return logs;
     }
@@ -8,9 +8,11 @@ import lxx.utils.IntervalDouble;
 
 public class BulletShadow extends IntervalDouble {
 
-    public boolean isPassed = false;
+    // tick, when bullet crosses wave and casts shadow
+    public final long castTime;
 
-    public BulletShadow(double a, double b) {
+    public BulletShadow(double a, double b, long castTime) {
         super(a, b);
+        this.castTime = castTime;
     }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.bullets.enemy;
+
+import lxx.bullets.LXXBullet;
+import lxx.utils.APoint;
+import lxx.utils.LXXUtils;
+import robocode.util.Utils;
+
+import static java.lang.Math.*;
+
+/**
+ * Calculates shadows, which my bullet casts on enemy's wave.
+ * In each tick my bullet moves along segment of its line and enemy's bullets lie within annulus between wave's radiuses
+ * in previous and current ticks. Part of line, which lies within annulus, is found in closed form: if u is distance
+ * along line and u0 is distance to the point of line closest to wave's source, which lies at distance p from line,
+ * then distance from source to the point u is sqrt((u - u0)^2 + p^2)
+ */
+public class BulletShadowsCalculator {
+
+    private BulletShadowsCalculator() {
+    }
+
+    /**
+     * Adds shadows of my bullet, which will be cast in ticks after given time, into enemy bullet
+     */
+    public static void addShadows(LXXBullet enemyBullet, LXXBullet myBullet, long time) {
+        final APoint ebFirePos = enemyBullet.getFirePosition();
+        final APoint mbFirePos = myBullet.getFirePosition();
+        final double heading = myBullet.getHeadingRadians();
+        final double dirX = sin(heading);
+        final double dirY = cos(heading);
+
+        final double wx = mbFirePos.getX() - ebFirePos.getX();
+        final double wy = mbFirePos.getY() - ebFirePos.getY();
+        final double projection = wx * dirX + wy * dirY;
+        final double u0 = -projection;
+        final double pSq = max(0, wx * wx + wy * wy - projection * projection);
+
+        final double distBetweenFirePositions = sqrt(wx * wx + wy * wy);
+        final double noBearingOffset = enemyBullet.noBearingOffset();
+        final double ebSpeed = enemyBullet.getSpeed();
+        final double mbSpeed = myBullet.getSpeed();
+
+        // bullets, which passed enemy's fire position, doesn't intersect wave anymore
+        for (int timeDelta = 0; ; timeDelta++) {
+            final double mbCurDist = myBullet.getTravelledDistance() + mbSpeed * timeDelta;
+            if (mbCurDist >= distBetweenFirePositions) {
+                break;
+            }
+            final double ebCurDist = enemyBullet.getTravelledDistance() + ebSpeed * timeDelta;
+            final double ebNextDist = ebCurDist + ebSpeed;
+            if (ebNextDist * ebNextDist < pSq) {
+                continue;
+            }
+
+            final double outerHalfChord = sqrt(ebNextDist * ebNextDist - pSq);
+            final long castTime = time + timeDelta + 1;
+            if (ebCurDist * ebCurDist <= pSq) {
+                addShadow(enemyBullet, myBullet, ebFirePos, mbFirePos, dirX, dirY, noBearingOffset, castTime,
+                        max(mbCurDist, u0 - outerHalfChord), min(mbCurDist + mbSpeed, u0 + outerHalfChord));
+            } else {
+                final double innerHalfChord = sqrt(ebCurDist * ebCurDist - pSq);
+                addShadow(enemyBullet, myBullet, ebFirePos, mbFirePos, dirX, dirY, noBearingOffset, castTime,
+                        max(mbCurDist, u0 - outerHalfChord), min(mbCurDist + mbSpeed, u0 - innerHalfChord));
+                addShadow(enemyBullet, myBullet, ebFirePos, mbFirePos, dirX, dirY, noBearingOffset, castTime,
+                        max(mbCurDist, u0 + innerHalfChord), min(mbCurDist + mbSpeed, u0 + outerHalfChord));
+            }
+        }
+    }
+
+    private static void addShadow(LXXBullet enemyBullet, LXXBullet myBullet, APoint ebFirePos, APoint mbFirePos,
+                                  double dirX, double dirY, double noBearingOffset, long castTime, double from, double to) {
+        if (from > to) {
+            return;
+        }
+
+        final double bo1 = bearingOffset(ebFirePos, mbFirePos, dirX, dirY, noBearingOffset, from);
+        final double bo2 = bearingOffset(ebFirePos, mbFirePos, dirX, dirY, noBearingOffset, to);
+        enemyBullet.addBulletShadow(myBullet, new BulletShadow(min(bo1, bo2), max(bo1, bo2), castTime));
+    }
+
+    private static double bearingOffset(APoint ebFirePos, APoint mbFirePos, double dirX, double dirY,
+                                        double noBearingOffset, double dist) {
+        final double x = mbFirePos.getX() + dirX * dist;
+        final double y = mbFirePos.getY() + dirY * dist;
+        return Utils.normalRelativeAngle(LXXUtils.angle(ebFirePos.getX(), ebFirePos.getY(), x, y) - noBearingOffset);
+    }
+
+}
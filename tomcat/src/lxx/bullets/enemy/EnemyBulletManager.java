@@ -6,18 +6,18 @@ package lxx.bullets.enemy;
 
 import lxx.LXXRobot;
 import lxx.LXXRobotState;
-import lxx.RobotListener;
 import lxx.Tomcat;
 import lxx.bullets.BulletManagerListener;
 import lxx.bullets.LXXBullet;
 import lxx.bullets.LXXBulletState;
 import lxx.bullets.PastBearingOffset;
 import lxx.bullets.my.BulletManager;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.events.LXXKeyEvent;
 import lxx.events.LXXPaintEvent;
-import lxx.events.TickEvent;
 import lxx.office.Office;
-import lxx.office.PropertiesManager;
+import lxx.office.MetricsRegistry;
 import lxx.paint.LXXGraphics;
 import lxx.targeting.Target;
 import lxx.targeting.TargetManagerListener;
@@ -27,7 +27,6 @@ import lxx.utils.wave.Wave;
 import lxx.utils.wave.WaveCallback;
 import lxx.utils.wave.WaveManager;
 import robocode.*;
-import robocode.Event;
 
 import java.awt.*;
 import java.util.*;
@@ -39,7 +38,7 @@ import static java.lang.Math.*;
  * User: jdev
  * Date: 09.01.2010
  */
-public class EnemyBulletManager implements WaveCallback, TargetManagerListener, RobotListener, BulletManagerListener {
+public class EnemyBulletManager implements WaveCallback, TargetManagerListener, BulletManagerListener {
 
     private static final EnemyBulletPredictionData EMPTY_PREDICTION_DATA = new EnemyBulletPredictionData(
             getEmptyPDBos(), 1, 0);
@@ -55,9 +54,18 @@ public class EnemyBulletManager implements WaveCallback, TargetManagerListener,
     }
 
     private static boolean paintEnabled = false;
-    private static int ghostBulletsCount = 0;
+    private static final MetricsRegistry.Counter ghostBulletsCount = MetricsRegistry.counter("Ghost bullets count");
+    private static final MetricsRegistry.Counter ambiguousBulletsCount = MetricsRegistry.counter("Ambiguous bullets count");
+    // predictions, which eager re-prediction of all bullets on air would make
+    private static final MetricsRegistry.Counter eagerPredictionsCount = MetricsRegistry.counter("Enemy bullets predictions required eagerly");
+    private static final MetricsRegistry.Counter predictionRecomputationsCount = MetricsRegistry.counter("Enemy bullets predictions recomputed");
+
+    static {
+        MetricsRegistry.difference("Enemy bullets predictions recomputations avoided", eagerPredictionsCount, predictionRecomputationsCount);
+    }
 
     private final Map<Wave, LXXBullet> predictedBullets = new HashMap<Wave, LXXBullet>();
+    private final EnemyBulletsIndex bulletsIndex = new EnemyBulletsIndex();
     private final List<BulletManagerListener> listeners = new LinkedList<BulletManagerListener>();
     private final AdvancedEnemyGunModel enemyFireAnglePredictor;
 
@@ -97,7 +105,10 @@ public class EnemyBulletManager implements WaveCallback, TargetManagerListener,
             final LXXBullet lxxBullet = new LXXBullet(fakeBullet, wave, enemyFireAnglePredictor.getPredictionData(target, turnSnapshotsLog.getLastSnapshot(target, AdvancedEnemyGunModel.FIRE_DETECTION_LATENCY)));
 
             predictedBullets.put(wave, lxxBullet);
-            recalculateBulletShadows();
+            bulletsIndex.add(lxxBullet);
+            for (LXXBullet myBullet : bulletManager.getBullets()) {
+                BulletShadowsCalculator.addShadows(lxxBullet, myBullet, robot.getTime());
+            }
 
             for (BulletManagerListener listener : listeners) {
                 listener.bulletFired(lxxBullet);
@@ -115,71 +126,81 @@ public class EnemyBulletManager implements WaveCallback, TargetManagerListener,
     public void waveBroken(Wave w) {
         final LXXBullet lxxBullet = getLXXBullet(w);
         if (lxxBullet != null && lxxBullet.getState() == LXXBulletState.ON_AIR) {
+            ensurePredictionDataActual(lxxBullet);
             lxxBullet.setState(LXXBulletState.MISSED);
             for (BulletManagerListener listener : listeners) {
                 listener.bulletMiss(lxxBullet);
             }
         }
 
-        predictedBullets.remove(w);
-        updateBulletsOnAir();
+        removeBullet(lxxBullet);
+    }
+
+    private void removeBullet(LXXBullet lxxBullet) {
+        if (lxxBullet != null) {
+            predictedBullets.remove(lxxBullet.getWave());
+            bulletsIndex.remove(lxxBullet);
+        }
+        // prediction data of bullets on air is updated lazily, when it's requested
+        eagerPredictionsCount.add(predictedBullets.size());
     }
 
-    private void updateBulletsOnAir() {
-        for (LXXBullet bullet : predictedBullets.values()) {
-            final LXXRobot owner = bullet.getOwner();
-            bullet.setAimPredictionData(enemyFireAnglePredictor.getPredictionData(owner,
-                    turnSnapshotsLog.getLastSnapshot(owner, (int) (robot.getTime() - (bullet.getFireTime() - AdvancedEnemyGunModel.FIRE_DETECTION_LATENCY)))));
+    /**
+     * Re-predicts bullet's aim prediction data if enemy's log set learned since data was predicted
+     */
+    private void ensurePredictionDataActual(LXXBullet bullet) {
+        final LXXRobot owner = bullet.getOwner();
+        final AEGMPredictionData predictionData = (AEGMPredictionData) bullet.getAimPredictionData();
+        if (predictionData.getModelVersion() == enemyFireAnglePredictor.getVersion(owner)) {
+            return;
         }
+        bullet.setAimPredictionData(enemyFireAnglePredictor.getPredictionData(owner,
+                turnSnapshotsLog.getLastSnapshot(owner, (int) (robot.getTime() - (bullet.getFireTime() - AdvancedEnemyGunModel.FIRE_DETECTION_LATENCY)))));
+        predictionRecomputationsCount.inc();
     }
 
     public void onBulletHitBullet(BulletHitBulletEvent e) {
-        final Wave w = getWave(e.getHitBullet());
-        if (w == null) {
-            System.out.println("[WARN] intercept not detected bullet");
-            ghostBulletsCount++;
-            PropertiesManager.setDebugProperty("Ghost bullets count", String.valueOf(ghostBulletsCount));
+        final LXXBullet lxxBullet = getLXXBullet(e.getHitBullet());
+        if (lxxBullet == null) {
             return;
         }
 
-        final LXXBullet lxxBullet = getLXXBullet(w, e.getHitBullet());
+        ensurePredictionDataActual(lxxBullet);
         lxxBullet.setState(LXXBulletState.INTERCEPTED);
-
         for (BulletManagerListener listener : listeners) {
             listener.bulletIntercepted(lxxBullet);
         }
 
-        predictedBullets.remove(w);
-        updateBulletsOnAir();
+        removeBullet(lxxBullet);
     }
 
     public void onHitByBullet(HitByBulletEvent e) {
-        final Wave w = getWave(e.getBullet());
-        if (w == null) {
-            System.out.println("[WARN] hit by not detected bullet");
-            ghostBulletsCount++;
-            PropertiesManager.setDebugProperty("Ghost bullets count", String.valueOf(ghostBulletsCount));
+        final LXXBullet lxxBullet = getLXXBullet(e.getBullet());
+        if (lxxBullet == null) {
             return;
         }
 
-        final LXXBullet lxxBullet = getLXXBullet(w, e.getBullet());
+        ensurePredictionDataActual(lxxBullet);
         lxxBullet.setState(LXXBulletState.HITTED);
         for (BulletManagerListener listener : listeners) {
             listener.bulletHit(lxxBullet);
         }
 
-        predictedBullets.remove(w);
-        updateBulletsOnAir();
+        removeBullet(lxxBullet);
     }
 
-    private Wave getWave(Bullet b) {
-        for (Wave w : predictedBullets.keySet()) {
-            if (abs(w.getSpeed() - Rules.getBulletSpeed(b.getPower())) < 0.1 &&
-                    abs(w.getTraveledDistance() - (w.getSourcePosAtFireTime().aDistance(new LXXPoint(b.getX(), b.getY())) + b.getVelocity())) < w.getSpeed() + 1) {
-                return w;
-            }
+    private LXXBullet getLXXBullet(Bullet bullet) {
+        final LXXBullet lxxBullet = bulletsIndex.getBullet(bullet);
+        if (lxxBullet == null) {
+            ghostBulletsCount.inc();
+            return null;
+        }
+        if (bulletsIndex.getLastMatchesCount() > 1) {
+            ambiguousBulletsCount.inc();
         }
-        return null;
+
+        lxxBullet.setBullet(bullet);
+        return lxxBullet;
     }
 
     private LXXBullet getLXXBullet(Wave wave) {
@@ -204,12 +225,16 @@ public class EnemyBulletManager implements WaveCallback, TargetManagerListener,
         return lxxBullet;
     }
 
+    /**
+     * @return bullets on air with actual prediction data
+     */
     public List<LXXBullet> getBulletsOnAir(int flightTimeLimit) {
         final List<LXXBullet> bullets = new ArrayList<LXXBullet>();
 
         for (LXXBullet lxxBullet : predictedBullets.values()) {
             double flightTime = (lxxBullet.getFirePosition().aDistance(lxxBullet.getTarget()) - lxxBullet.getTravelledDistance()) / lxxBullet.getSpeed();
             if (flightTime > flightTimeLimit && lxxBullet.getState() == LXXBulletState.ON_AIR) {
+                ensurePredictionDataActual(lxxBullet);
                 bullets.add(lxxBullet);
             }
         }
@@ -224,56 +249,30 @@ public class EnemyBulletManager implements WaveCallback, TargetManagerListener,
         return bullets;
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof HitByBulletEvent) {
-            onHitByBullet((HitByBulletEvent) event);
-        } else if (event instanceof BulletHitBulletEvent) {
-            onBulletHitBullet((BulletHitBulletEvent) event);
-        } else if (event instanceof LXXPaintEvent && paintEnabled) {
-            paint(((LXXPaintEvent) event).getGraphics());
-        } else if (event instanceof LXXKeyEvent) {
-            if (Character.toUpperCase(((LXXKeyEvent) event).getKeyChar()) == 'M') {
-                paintEnabled = !paintEnabled;
+    public void subscribe(EventBus eventBus) {
+        enemyFireAnglePredictor.subscribe(eventBus);
+        eventBus.subscribe(HitByBulletEvent.class, EventBus.PRIORITY_ENEMY_BULLETS, new EventHandler<HitByBulletEvent>() {
+            public void handle(HitByBulletEvent event) {
+                onHitByBullet(event);
             }
-        } else if (event instanceof TickEvent) {
-            recalculateBulletShadows();
-            checkBulletShadows();
-        }
-    }
-
-    private void checkBulletShadows() {
-        final List<LXXBullet> myBullets = bulletManager.getBullets();
-        final List<LXXBullet> enemyBullets = getBulletsOnAir(0);
-        for (LXXBullet enemyBullet : enemyBullets) {
-            final double enemyBulletCurDist = enemyBullet.getTravelledDistance();
-            final APoint ebFirePos = enemyBullet.getFirePosition();
-            final double enemyBulletNextDist = enemyBulletCurDist + enemyBullet.getSpeed();
-            for (LXXBullet myBullet : myBullets) {
-                final double myBulletCurDist = myBullet.getTravelledDistance() + myBullet.getSpeed();
-                final APoint mbFirePos = myBullet.getFirePosition();
-
-                final APoint myBulletCurPos = mbFirePos.project(myBullet.getHeadingRadians(), myBulletCurDist);
-                final APoint myBulletNextPos = mbFirePos.project(myBullet.getHeadingRadians(), myBulletCurDist + myBullet.getSpeed());
-                robot.getLXXGraphics().fillCircle(myBulletCurPos, 3);
-
-                final BulletShadow bulletShadow = enemyBullet.getBulletShadow(myBullet);
-                if (bulletShadow != null && ebFirePos.aDistance(mbFirePos) > myBulletCurDist) {
-                    if (ebFirePos.aDistance(myBulletCurPos) > enemyBulletCurDist &&
-                            ebFirePos.aDistance(myBulletNextPos) < enemyBulletNextDist) {
-                        bulletShadow.isPassed = true;
-                    } else if (ebFirePos.aDistance(myBulletNextPos) > enemyBulletCurDist &&
-                            ebFirePos.aDistance(myBulletCurPos) < enemyBulletNextDist) {
-                        bulletShadow.isPassed = true;
-                    } else if (ebFirePos.aDistance(myBulletCurPos) > enemyBulletNextDist &&
-                            ebFirePos.aDistance(myBulletNextPos) < enemyBulletNextDist) {
-                        bulletShadow.isPassed = true;
-                    } else if (ebFirePos.aDistance(myBulletCurPos) > enemyBulletCurDist &&
-                            ebFirePos.aDistance(myBulletNextPos) < enemyBulletCurDist) {
-                        bulletShadow.isPassed = true;
-                    }
+        });
+        eventBus.subscribe(BulletHitBulletEvent.class, EventBus.PRIORITY_ENEMY_BULLETS, new EventHandler<BulletHitBulletEvent>() {
+            public void handle(BulletHitBulletEvent event) {
+                onBulletHitBullet(event);
+            }
+        });
+        eventBus.subscribe(LXXPaintEvent.class, EventBus.PRIORITY_ENEMY_BULLETS, new EventHandler<LXXPaintEvent>() {
+            public void handle(LXXPaintEvent event) {
+                paint(event.getGraphics());
+            }
+        });
+        eventBus.subscribe(LXXKeyEvent.class, EventBus.PRIORITY_ENEMY_BULLETS, new EventHandler<LXXKeyEvent>() {
+            public void handle(LXXKeyEvent event) {
+                if (Character.toUpperCase(event.getKeyChar()) == 'M') {
+                    paintEnabled = !paintEnabled;
                 }
             }
-        }
+        });
     }
 
     public LXXBullet createFutureBullet(Target target) {
@@ -316,104 +315,28 @@ public class EnemyBulletManager implements WaveCallback, TargetManagerListener,
         listeners.add(listener);
     }
 
-    private void recalculateBulletShadows() {
-        int timeDelta = 0;
-        final List<LXXBullet> myBullets = bulletManager.getBullets();
-        final List<LXXBullet> enemyBullets = getBulletsOnAir(0);
-        boolean hasNotIntersectedBullets;
-        do {
-            hasNotIntersectedBullets = false;
-            robot.getLXXGraphics().setColor(new Color(255, 255, 255, 150));
-            for (LXXBullet enemyBullet : enemyBullets) {
-                final double enemyBulletCurDist = enemyBullet.getTravelledDistance() + enemyBullet.getSpeed() * timeDelta;
-                final APoint ebFirePos = enemyBullet.getFirePosition();
-                final double enemyBulletNextDist = enemyBulletCurDist + enemyBullet.getSpeed();
-                //robot.getLXXGraphics().drawCircle(ebFirePos, enemyBulletCurDist * 2);
-                for (LXXBullet myBullet : myBullets) {
-                    final double myBulletCurDist = myBullet.getTravelledDistance() + myBullet.getSpeed() * timeDelta;
-                    final APoint mbFirePos = myBullet.getFirePosition();
-
-                    final APoint myBulletCurPos = mbFirePos.project(myBullet.getHeadingRadians(), myBulletCurDist);
-                    final APoint myBulletNextPos = mbFirePos.project(myBullet.getHeadingRadians(), myBulletCurDist + myBullet.getSpeed());
-                    robot.getLXXGraphics().fillCircle(myBulletCurPos, 3);
-
-                    if (ebFirePos.aDistance(mbFirePos) > myBulletCurDist) {
-                        hasNotIntersectedBullets = true;
-                        if (ebFirePos.aDistance(myBulletCurPos) < enemyBulletNextDist &&
-                                ebFirePos.aDistance(myBulletNextPos) > enemyBulletCurDist) {
-                            addShadow(myBullet, enemyBullet, ebFirePos, myBulletCurPos, myBulletNextPos);
-                            robot.getLXXGraphics().setColor(new Color(255, 0, 0, 150));
-                            drawDebug(enemyBulletCurDist, ebFirePos, enemyBulletNextDist, myBulletCurPos, myBulletNextPos);
-                        } else if (ebFirePos.aDistance(myBulletNextPos) < enemyBulletCurDist &&
-                                ebFirePos.aDistance(myBulletCurPos) > enemyBulletNextDist) {
-                            APoint intPoint1 = null;
-                            APoint intPoint2 = null;
-                            try {
-                                intPoint1 = LXXUtils.intersection(myBulletCurPos, myBulletNextPos, ebFirePos, enemyBulletCurDist)[0];
-                                intPoint2 = LXXUtils.intersection(myBulletCurPos, myBulletNextPos, ebFirePos, enemyBulletNextDist)[0];
-                            } catch (ArrayIndexOutOfBoundsException e) {
-                                intPoint1 = LXXUtils.intersection(myBulletCurPos, myBulletNextPos, ebFirePos, enemyBulletCurDist)[0];
-                                intPoint2 = LXXUtils.intersection(myBulletCurPos, myBulletNextPos, ebFirePos, enemyBulletNextDist)[0];
-                                e.printStackTrace();
-                            }
-                            addShadow(myBullet, enemyBullet, ebFirePos, intPoint1, intPoint2);
-                            robot.getLXXGraphics().setColor(new Color(0, 255, 0, 150));
-                            drawDebug(enemyBulletCurDist, ebFirePos, enemyBulletNextDist, myBulletCurPos, myBulletNextPos);
-                        } else if (ebFirePos.aDistance(myBulletCurPos) > enemyBulletNextDist &&
-                                ebFirePos.aDistance(myBulletNextPos) < enemyBulletNextDist) {
-                            APoint intPoint2 = null;
-                            try {
-                                intPoint2 = LXXUtils.intersection(myBulletCurPos, myBulletNextPos, ebFirePos, enemyBulletNextDist)[0];
-                            } catch (ArrayIndexOutOfBoundsException e) {
-                                intPoint2 = LXXUtils.intersection(myBulletCurPos, myBulletNextPos, ebFirePos, enemyBulletNextDist)[0];
-                                e.printStackTrace();
-                            }
-                            addShadow(myBullet, enemyBullet, ebFirePos, myBulletNextPos, intPoint2);
-                            robot.getLXXGraphics().setColor(new Color(0, 0, 255, 150));
-                            drawDebug(enemyBulletCurDist, ebFirePos, enemyBulletNextDist, myBulletCurPos, myBulletNextPos);
-                        } else if (ebFirePos.aDistance(myBulletCurPos) > enemyBulletCurDist &&
-                                ebFirePos.aDistance(myBulletNextPos) < enemyBulletCurDist) {
-                            final APoint intPoint1 = LXXUtils.intersection(myBulletCurPos, myBulletNextPos, ebFirePos, enemyBulletCurDist)[0];
-                            addShadow(myBullet, enemyBullet, ebFirePos, myBulletCurPos, intPoint1);
-                            robot.getLXXGraphics().setColor(new Color(255, 255, 0, 150));
-                            drawDebug(enemyBulletCurDist, ebFirePos, enemyBulletNextDist, myBulletCurPos, myBulletNextPos);
-                        }
-                    }
-                }
-            }
-            timeDelta++;
-        } while (hasNotIntersectedBullets);
-    }
-
-    private void drawDebug(double enemyBulletCurDist, APoint ebFirePos, double enemyBulletNextDist, APoint myBulletCurPos, APoint myBulletNextPos) {
-        robot.getLXXGraphics().fillCircle(myBulletCurPos, 3);
-        robot.getLXXGraphics().fillCircle(myBulletNextPos, 3);
-        robot.getLXXGraphics().drawCircle(ebFirePos, enemyBulletCurDist * 2);
-        robot.getLXXGraphics().drawCircle(ebFirePos, enemyBulletNextDist * 2);
-    }
-
-    private void addShadow(LXXBullet myBullet, LXXBullet enemyBullet, APoint ebFirePos, APoint pnt1, APoint pnt2) {
-        final double bo1 = LXXUtils.bearingOffset(ebFirePos, enemyBullet.getTargetStateAtFireTime(), pnt1);
-        final double bo2 = LXXUtils.bearingOffset(ebFirePos, enemyBullet.getTargetStateAtFireTime(), pnt2);
-        enemyBullet.addBulletShadow(myBullet, new BulletShadow(min(bo1, bo2), max(bo1, bo2)));
-    }
-
     public void bulletFired(LXXBullet bullet) {
-        recalculateBulletShadows();
+        for (LXXBullet enemyBullet : predictedBullets.values()) {
+            BulletShadowsCalculator.addShadows(enemyBullet, bullet, robot.getTime());
+        }
     }
 
     public void bulletIntercepted(LXXBullet bullet) {
-        for (LXXBullet enemyBullet : getBulletsOnAir(0)) {
-            if (!enemyBullet.getBulletShadow(bullet).isPassed) {
-                enemyBullet.removeBulletShadow(bullet);
-            }
-        }
+        removeFutureShadows(bullet);
     }
 
     public void bulletHit(LXXBullet bullet) {
+        removeFutureShadows(bullet);
     }
 
     public void bulletMiss(LXXBullet bullet) {
+        removeFutureShadows(bullet);
+    }
+
+    private void removeFutureShadows(LXXBullet myBullet) {
+        for (LXXBullet enemyBullet : predictedBullets.values()) {
+            enemyBullet.removeBulletShadows(myBullet, robot.getTime());
+        }
     }
 
     public void bulletPassing(LXXBullet bullet) {
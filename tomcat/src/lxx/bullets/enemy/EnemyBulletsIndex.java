@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.bullets.enemy;
+
+import lxx.bullets.LXXBullet;
+import lxx.utils.LXXPoint;
+import lxx.utils.wave.Wave;
+import robocode.Bullet;
+import robocode.Rules;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.floor;
+
+/**
+ * Index of enemy bullets on air by bullet speed bucket and fire tick.
+ * Robocode's bullet can be matched only with waves from its own and neighbour buckets.
+ * Within bucket waves are ordered by fire tick and bullet is looked up by expected fire tick,
+ * derived from its distance to wave's source and speed
+ */
+public class EnemyBulletsIndex {
+
+    private static final double SPEED_TOLERANCE = 0.1;
+    private static final int BUCKETS_COUNT = (int) (Rules.getBulletSpeed(Rules.MIN_BULLET_POWER) / SPEED_TOLERANCE) + 2;
+
+    private final List<List<LXXBullet>> buckets = new ArrayList<List<LXXBullet>>(BUCKETS_COUNT);
+
+    private int lastMatchesCount;
+
+    public EnemyBulletsIndex() {
+        for (int i = 0; i < BUCKETS_COUNT; i++) {
+            buckets.add(new ArrayList<LXXBullet>(2));
+        }
+    }
+
+    public void add(LXXBullet bullet) {
+        final List<LXXBullet> bucket = buckets.get(getBucket(bullet.getSpeed()));
+        final long fireTime = bullet.getWave().getLaunchTime();
+        int idx = bucket.size();
+        while (idx > 0 && bucket.get(idx - 1).getWave().getLaunchTime() > fireTime) {
+            idx--;
+        }
+        bucket.add(idx, bullet);
+    }
+
+    public void remove(LXXBullet bullet) {
+        buckets.get(getBucket(bullet.getSpeed())).remove(bullet);
+    }
+
+    /**
+     * Finds bullet, which wave is closest to robocode's bullet position within tolerance window of one tick
+     * around expected fire tick. If there're several candidates, then bullet with earliest fire time is preferred
+     *
+     * @return matched bullet or null if there're no candidates
+     */
+    public LXXBullet getBullet(Bullet b) {
+        final double speed = Rules.getBulletSpeed(b.getPower());
+        final int bucketIdx = getBucket(speed);
+
+        LXXBullet res = null;
+        double minError = Double.POSITIVE_INFINITY;
+        lastMatchesCount = 0;
+        for (int i = Math.max(0, bucketIdx - 1); i <= Math.min(BUCKETS_COUNT - 1, bucketIdx + 1); i++) {
+            final List<LXXBullet> bucket = buckets.get(i);
+            final int expectedFireTickIdx = findExpectedFireTick(bucket, b);
+            // waves, which are fired earlier than expected tick, within window
+            int from = expectedFireTickIdx;
+            while (from > 0 && getDistanceError(bucket.get(from - 1).getWave(), b) < bucket.get(from - 1).getSpeed() + 1) {
+                from--;
+            }
+            for (int j = from; j < bucket.size(); j++) {
+                final LXXBullet candidate = bucket.get(j);
+                final Wave w = candidate.getWave();
+                final double error = abs(getDistanceError(w, b));
+                if (j >= expectedFireTickIdx && error >= w.getSpeed() + 1) {
+                    // waves, which are fired later, are even farther from bullet
+                    break;
+                }
+                if (abs(w.getSpeed() - speed) >= SPEED_TOLERANCE || error >= w.getSpeed() + 1) {
+                    continue;
+                }
+                lastMatchesCount++;
+                if (error < minError || (error == minError && w.getLaunchTime() < res.getWave().getLaunchTime())) {
+                    minError = error;
+                    res = candidate;
+                }
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Bullet's speed (11 at least) is greater than robot's max speed, so every tick of fire time moves
+     * wave's front relative to bullet at least by 3 and distance error decreases monotonically along bucket
+     *
+     * @return index of first wave in bucket, which is fired not earlier than expected fire tick of bullet
+     */
+    private static int findExpectedFireTick(List<LXXBullet> bucket, Bullet b) {
+        int lo = 0;
+        int hi = bucket.size();
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (getDistanceError(bucket.get(mid).getWave(), b) > 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // positive error means, that wave is fired earlier than bullet
+    private static double getDistanceError(Wave w, Bullet b) {
+        return w.getTraveledDistance() - (LXXPoint.distance(w.getSourcePosAtFireTime().getX(), w.getSourcePosAtFireTime().getY(), b.getX(), b.getY()) + b.getVelocity());
+    }
+
+    /**
+     * @return count of candidates, found by last <code>getBullet</code> call. Value greater than 1 means ambiguous match
+     */
+    public int getLastMatchesCount() {
+        return lastMatchesCount;
+    }
+
+    private static int getBucket(double speed) {
+        return (int) floor(speed / SPEED_TOLERANCE);
+    }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.bullets.enemy;
+
+import lxx.ts_log.TurnSnapshot;
+import lxx.ts_log.attributes.Attribute;
+import lxx.ts_log.attributes.AttributesManager;
+import lxx.utils.ps_tree.MultiRangeIndex;
+import lxx.utils.ps_tree.PSTreeEntry;
+import robocode.RobocodeFileOutputStream;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.Math.round;
+
+/**
+ * Stores hit and visit entries of enemy gun model's log set in data file of enemy between battles.
+ * File is gzipped stream of: magic, version, enemy name and for each index attribute names, entries count
+ * and columns of entries from oldest to most recent: delta encoded rounded values of each attribute,
+ * scaled guess factors and lateral directions. All numbers are zigzag varints.
+ * Files of all enemies share budget and files, which weren't updated longest, are evicted first
+ */
+class EnemyGunLogsStore {
+
+    private static final int MAGIC = 0x4145474D;
+    private static final int VERSION = 1;
+
+    private static final String FILE_PREFIX = "aegm-";
+    private static final String FILE_SUFFIX = ".gz";
+
+    private static final double GUESS_FACTOR_SCALE = 1000;
+    private static final int MAX_ENTRIES = 5000;
+
+    static boolean load(File dataDirectory, String enemyName,
+                        MultiRangeIndex<UndirectedGuessFactor> hitIndex, MultiRangeIndex<UndirectedGuessFactor> visitIndex) {
+        final File file = getFile(dataDirectory, enemyName);
+        if (!file.exists()) {
+            return false;
+        }
+
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            return read(in, enemyName, hitIndex, visitIndex);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Writes entries into file of enemy, evicting files of other enemies, if it's required to fit in budget
+     *
+     * @return true if entries are stored
+     */
+    static boolean save(File dataDirectory, String enemyName,
+                        MultiRangeIndex<UndirectedGuessFactor> hitIndex, MultiRangeIndex<UndirectedGuessFactor> visitIndex,
+                        long budget, long quotaAvailable) {
+        try {
+            final byte[] data = encode(enemyName, hitIndex, visitIndex, budget);
+            if (data == null) {
+                System.out.println("[WARN] Enemy gun logs of " + enemyName + " don't fit in budget " + budget);
+                return false;
+            }
+
+            final File file = getFile(dataDirectory, enemyName);
+            long available = quotaAvailable + file.length();
+            long used = 0;
+            final File[] files = getFiles(dataDirectory);
+            for (File f : files) {
+                used += f.length();
+            }
+            used -= file.length();
+            for (File f : files) {
+                if (used + data.length <= budget && data.length <= available) {
+                    break;
+                }
+                if (f.equals(file)) {
+                    continue;
+                }
+                final long length = f.length();
+                if (f.delete()) {
+                    used -= length;
+                    available += length;
+                }
+            }
+            if (used + data.length > budget || data.length > available) {
+                System.out.println("[WARN] Not enough space for enemy gun logs of " + enemyName + ": " + data.length + " bytes");
+                return false;
+            }
+
+            OutputStream out = null;
+            try {
+                out = new RobocodeFileOutputStream(file);
+                out.write(data);
+            } finally {
+                close(out);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @return encoded most recent entries, which fit in budget, or null if even single entry doesn't fit
+     */
+    static byte[] encode(String enemyName, MultiRangeIndex<UndirectedGuessFactor> hitIndex,
+                         MultiRangeIndex<UndirectedGuessFactor> visitIndex, long budget) throws IOException {
+        for (int maxEntries = MAX_ENTRIES; maxEntries > 0; maxEntries /= 2) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            write(out, enemyName, hitIndex, visitIndex, maxEntries);
+            if (out.size() <= budget) {
+                return out.toByteArray();
+            }
+        }
+        return null;
+    }
+
+    static void write(OutputStream out, String enemyName, MultiRangeIndex<UndirectedGuessFactor> hitIndex,
+                      MultiRangeIndex<UndirectedGuessFactor> visitIndex, int maxEntries) throws IOException {
+        final GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+        final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(gzipOut));
+        dataOut.writeInt(MAGIC);
+        dataOut.writeByte(VERSION);
+        dataOut.writeUTF(enemyName);
+        writeIndex(dataOut, hitIndex, maxEntries);
+        writeIndex(dataOut, visitIndex, maxEntries);
+        dataOut.flush();
+        gzipOut.finish();
+    }
+
+    private static void writeIndex(DataOutputStream out, MultiRangeIndex<UndirectedGuessFactor> index, int maxEntries) throws IOException {
+        final Attribute[] attributes = index.getAttributes();
+        writeVarInt(out, attributes.length);
+        for (Attribute a : attributes) {
+            out.writeUTF(a.getName());
+        }
+
+        final List<PSTreeEntry<UndirectedGuessFactor>> entries = getMostRecentEntries(index, maxEntries);
+        writeVarInt(out, entries.size());
+        for (Attribute a : attributes) {
+            int prevValue = 0;
+            for (PSTreeEntry<UndirectedGuessFactor> entry : entries) {
+                final int value = entry.predicate.getRoundedAttrValue(a);
+                writeVarInt(out, zigzag(value - prevValue));
+                prevValue = value;
+            }
+        }
+        for (PSTreeEntry<UndirectedGuessFactor> entry : entries) {
+            writeVarInt(out, zigzag((int) round(entry.result.guessFactor * GUESS_FACTOR_SCALE)));
+        }
+        for (PSTreeEntry<UndirectedGuessFactor> entry : entries) {
+            writeVarInt(out, zigzag((int) Math.signum(entry.result.lateralDirection)));
+        }
+    }
+
+    // entries from oldest to most recent
+    private static List<PSTreeEntry<UndirectedGuessFactor>> getMostRecentEntries(MultiRangeIndex<UndirectedGuessFactor> index, int maxEntries) {
+        final long[] roundTimesAndIds = new long[index.size()];
+        int count = 0;
+        for (int id = 0; id < index.size(); id++) {
+            final PSTreeEntry<UndirectedGuessFactor> entry = index.getEntry(id);
+            if (entry.result != null) {
+                roundTimesAndIds[count++] = ((long) entry.predicate.roundTime << 32) | id;
+            }
+        }
+        Arrays.sort(roundTimesAndIds, 0, count);
+
+        final List<PSTreeEntry<UndirectedGuessFactor>> entries = new ArrayList<PSTreeEntry<UndirectedGuessFactor>>();
+        for (int i = Math.max(0, count - maxEntries); i < count; i++) {
+            entries.add(index.getEntry((int) roundTimesAndIds[i]));
+        }
+        return entries;
+    }
+
+    /**
+     * Adds stored entries into indexes. Restored entries are older than entries of current battle
+     *
+     * @return false if stream contains data of another enemy, version or attributes or entries count is corrupt
+     */
+    static boolean read(InputStream in, String enemyName, MultiRangeIndex<UndirectedGuessFactor> hitIndex,
+                        MultiRangeIndex<UndirectedGuessFactor> visitIndex) throws IOException {
+        final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+        if (dataIn.readInt() != MAGIC || dataIn.readUnsignedByte() != VERSION) {
+            System.out.println("[WARN] Unsupported enemy gun logs format of " + enemyName);
+            return false;
+        }
+        if (!enemyName.equals(dataIn.readUTF())) {
+            return false;
+        }
+
+        final List<PSTreeEntry<UndirectedGuessFactor>> hitEntries = readIndexEntries(dataIn, enemyName, hitIndex.getAttributes());
+        if (hitEntries == null) {
+            return false;
+        }
+        final List<PSTreeEntry<UndirectedGuessFactor>> visitEntries = readIndexEntries(dataIn, enemyName, visitIndex.getAttributes());
+        if (visitEntries == null) {
+            return false;
+        }
+        hitIndex.addEntries(hitEntries);
+        visitIndex.addEntries(visitEntries);
+        return true;
+    }
+
+    private static List<PSTreeEntry<UndirectedGuessFactor>> readIndexEntries(DataInputStream in, String enemyName,
+                                                                             Attribute[] attributes) throws IOException {
+        final int attributesCount = readVarInt(in);
+        if (attributesCount != attributes.length) {
+            System.out.println("[WARN] Attributes of enemy gun logs of " + enemyName + " are changed");
+            return null;
+        }
+        for (Attribute a : attributes) {
+            if (!a.getName().equals(in.readUTF())) {
+                System.out.println("[WARN] Attributes of enemy gun logs of " + enemyName + " are changed");
+                return null;
+            }
+        }
+
+        final int entriesCount = readVarInt(in);
+        if (entriesCount < 0 || entriesCount > MAX_ENTRIES) {
+            System.out.println("[WARN] Corrupt entries count of enemy gun logs of " + enemyName + ": " + entriesCount);
+            return null;
+        }
+        final double[][] data = new double[entriesCount][AttributesManager.attributesCount()];
+        for (double[] entryData : data) {
+            Arrays.fill(entryData, Double.NaN);
+        }
+        for (Attribute a : attributes) {
+            int value = 0;
+            for (double[] entryData : data) {
+                value += unzigzag(readVarInt(in));
+                entryData[a.getId()] = value;
+            }
+        }
+        final double[] guessFactors = new double[entriesCount];
+        for (int i = 0; i < entriesCount; i++) {
+            guessFactors[i] = unzigzag(readVarInt(in)) / GUESS_FACTOR_SCALE;
+        }
+
+        final List<PSTreeEntry<UndirectedGuessFactor>> entries = new ArrayList<PSTreeEntry<UndirectedGuessFactor>>(entriesCount);
+        for (int i = 0; i < entriesCount; i++) {
+            final PSTreeEntry<UndirectedGuessFactor> entry = new PSTreeEntry<UndirectedGuessFactor>(
+                    TurnSnapshot.createDetached(data[i], i - entriesCount));
+            entry.result = new UndirectedGuessFactor(guessFactors[i], unzigzag(readVarInt(in)));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    static File getFile(File dataDirectory, String enemyName) {
+        return new File(dataDirectory, FILE_PREFIX + enemyName.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_SUFFIX);
+    }
+
+    // files of all enemies from least recently updated
+    private static File[] getFiles(File dataDirectory) {
+        final File[] files = dataDirectory.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return f.getName().startsWith(FILE_PREFIX) && f.getName().endsWith(FILE_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File o1, File o2) {
+                return o1.lastModified() < o2.lastModified() ? -1 : (o1.lastModified() > o2.lastModified() ? 1 : 0);
+            }
+        });
+        return files;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void close(Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -4,9 +4,10 @@
 
 package lxx.bullets.my;
 
-import lxx.RobotListener;
 import lxx.bullets.BulletManagerListener;
 import lxx.bullets.LXXBullet;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.events.FireEvent;
 import lxx.events.LXXKeyEvent;
 import lxx.events.LXXPaintEvent;
@@ -26,7 +27,7 @@ import static java.lang.Math.abs;
  * User: jdev
  * Date: 15.02.2010
  */
-public class BulletManager implements RobotListener {
+public class BulletManager {
 
     private static boolean paintEnabled = false;
 
@@ -120,29 +121,55 @@ public class BulletManager implements RobotListener {
         bullets.removeAll(toDelete);
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof TickEvent) {
-            onTick();
-        } else if (event instanceof BulletMissedEvent) {
-            onBulletMissed((BulletMissedEvent) event);
-        } else if (event instanceof BulletHitEvent) {
-            onBulletHit((BulletHitEvent) event);
-        } else if (event instanceof BulletHitBulletEvent) {
-            onBulletHitBullet((BulletHitBulletEvent) event);
-        } else if (event instanceof FireEvent) {
-            addBullet(((FireEvent) event).getBullet());
-        } else if (event instanceof LXXPaintEvent && bullets.size() > 0 && paintEnabled) {
-            final LXXBullet firstBullet = getFirstBullet();
-            if (firstBullet == null) {
-                return;
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(TickEvent.class, EventBus.PRIORITY_MY_BULLETS, new EventHandler<TickEvent>() {
+            public void handle(TickEvent event) {
+                onTick();
             }
-            LXXGraphics g = ((LXXPaintEvent) event).getGraphics();
-            firstBullet.getAimPredictionData().paint(g, firstBullet);
-        } else if (event instanceof LXXKeyEvent) {
-            if (Character.toUpperCase(((LXXKeyEvent) event).getKeyChar()) == 'G') {
-                paintEnabled = !paintEnabled;
+        });
+        eventBus.subscribe(BulletMissedEvent.class, EventBus.PRIORITY_MY_BULLETS, new EventHandler<BulletMissedEvent>() {
+            public void handle(BulletMissedEvent event) {
+                onBulletMissed(event);
             }
+        });
+        eventBus.subscribe(BulletHitEvent.class, EventBus.PRIORITY_MY_BULLETS, new EventHandler<BulletHitEvent>() {
+            public void handle(BulletHitEvent event) {
+                onBulletHit(event);
+            }
+        });
+        eventBus.subscribe(BulletHitBulletEvent.class, EventBus.PRIORITY_MY_BULLETS, new EventHandler<BulletHitBulletEvent>() {
+            public void handle(BulletHitBulletEvent event) {
+                onBulletHitBullet(event);
+            }
+        });
+        eventBus.subscribe(FireEvent.class, EventBus.PRIORITY_MY_BULLETS, new EventHandler<FireEvent>() {
+            public void handle(FireEvent event) {
+                addBullet(event.getBullet());
+            }
+        });
+        eventBus.subscribe(LXXPaintEvent.class, EventBus.PRIORITY_MY_BULLETS, new EventHandler<LXXPaintEvent>() {
+            public void handle(LXXPaintEvent event) {
+                onPaint(event.getGraphics());
+            }
+        });
+        eventBus.subscribe(LXXKeyEvent.class, EventBus.PRIORITY_MY_BULLETS, new EventHandler<LXXKeyEvent>() {
+            public void handle(LXXKeyEvent event) {
+                if (Character.toUpperCase(event.getKeyChar()) == 'G') {
+                    paintEnabled = !paintEnabled;
+                }
+            }
+        });
+    }
+
+    private void onPaint(LXXGraphics g) {
+        if (bullets.size() == 0 || !paintEnabled) {
+            return;
+        }
+        final LXXBullet firstBullet = getFirstBullet();
+        if (firstBullet == null) {
+            return;
         }
+        firstBullet.getAimPredictionData().paint(g, firstBullet);
     }
 
     public List<LXXBullet> getBullets() {
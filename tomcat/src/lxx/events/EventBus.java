@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.events;
+
+import lxx.ListenersProfiler;
+import robocode.Event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers events to handlers, which are subscribed to event's class or its super classes.
+ * Handlers of each event class are resolved once into array, sorted by decreasing priority
+ * and by order of subscription within same priority
+ */
+public class EventBus {
+
+    // state of robots must be updated before anything else
+    public static final int PRIORITY_TARGETS = 100;
+    public static final int PRIORITY_WAVES = 90;
+    public static final int PRIORITY_MY_BULLETS = 80;
+    public static final int PRIORITY_ENEMY_BULLETS = 70;
+    public static final int PRIORITY_STATISTICS = 60;
+    public static final int PRIORITY_PAINT = 50;
+    public static final int PRIORITY_PLUGINS = 40;
+    public static final int PRIORITY_DATA_VIEWS = 30;
+    public static final int PRIORITY_STRATEGIES = 20;
+    // reports are printed, when all handlers have updated statistics in end of round
+    public static final int PRIORITY_REPORTS = 10;
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final List<Subscription> subscriptions = new ArrayList<Subscription>();
+    private final Map<Class<?>, Subscription[]> subscriptionsByEventClass = new HashMap<Class<?>, Subscription[]>();
+
+    private ListenersProfiler profiler;
+
+    public <T extends Event> void subscribe(Class<T> eventClass, int priority, EventHandler<? super T> handler) {
+        addSubscription(new Subscription(eventClass, priority, false, handler));
+    }
+
+    /**
+     * Subscribes handler, which may miss tick events, when robot's turn is close to CPU budget
+     */
+    public <T extends Event> void subscribeDeferrable(Class<T> eventClass, int priority, EventHandler<? super T> handler) {
+        addSubscription(new Subscription(eventClass, priority, true, handler));
+    }
+
+    private void addSubscription(Subscription subscription) {
+        int idx = subscriptions.size();
+        while (idx > 0 && subscriptions.get(idx - 1).priority < subscription.priority) {
+            idx--;
+        }
+        subscriptions.add(idx, subscription);
+        subscriptionsByEventClass.clear();
+    }
+
+    public void setProfiler(ListenersProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public void publish(Event event) {
+        final Subscription[] eventSubscriptions = getSubscriptions(event.getClass());
+        if (profiler != null) {
+            publishProfiled(event, eventSubscriptions);
+            return;
+        }
+
+        for (Subscription subscription : eventSubscriptions) {
+            try {
+                subscription.handler.handle(event);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+
+    private void publishProfiled(Event event, Subscription[] eventSubscriptions) {
+        final boolean isSkipDeferrable = event instanceof TickEvent && profiler.isSkipDeferrable();
+        for (Subscription subscription : eventSubscriptions) {
+            if (isSkipDeferrable && subscription.isDeferrable) {
+                profiler.deferrableEventSkipped();
+                continue;
+            }
+            final long startTime = System.nanoTime();
+            try {
+                subscription.handler.handle(event);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+            profiler.eventHandled(subscription.listenerClass, event, System.nanoTime() - startTime);
+        }
+    }
+
+    private Subscription[] getSubscriptions(Class<?> eventClass) {
+        Subscription[] eventSubscriptions = subscriptionsByEventClass.get(eventClass);
+        if (eventSubscriptions == null) {
+            final List<Subscription> res = new ArrayList<Subscription>();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.eventClass.isAssignableFrom(eventClass)) {
+                    res.add(subscription);
+                }
+            }
+            eventSubscriptions = res.size() == 0 ? NO_SUBSCRIPTIONS : res.toArray(new Subscription[res.size()]);
+            subscriptionsByEventClass.put(eventClass, eventSubscriptions);
+        }
+        return eventSubscriptions;
+    }
+
+    private static final class Subscription {
+
+        private final Class<? extends Event> eventClass;
+        private final int priority;
+        private final boolean isDeferrable;
+        private final EventHandler<? super Event> handler;
+        // handlers are anonymous classes usually, so time is profiled by class, which subscribes them
+        private final Class<?> listenerClass;
+
+        // handler is called only with events of its event class, so cast is safe
+        @SuppressWarnings("unchecked")
+        private <T extends Event> Subscription(Class<T> eventClass, int priority, boolean isDeferrable, EventHandler<? super T> handler) {
+            this.eventClass = eventClass;
+            this.priority = priority;
+            this.isDeferrable = isDeferrable;
+            this.handler = (EventHandler<? super Event>) handler;
+
+            Class<?> listenerClass = handler.getClass();
+            while (listenerClass.isAnonymousClass() && listenerClass.getEnclosingClass() != null) {
+                listenerClass = listenerClass.getEnclosingClass();
+            }
+            this.listenerClass = listenerClass;
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.events;
+
+import robocode.Event;
+
+public interface EventHandler<T extends Event> {
+
+    void handle(T event);
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.office;
+
+import lxx.utils.TimeHistogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of typed debug metrics. Metrics are registered once by name and updated through returned handle
+ * with primitive operations, values are formatted only when report or snapshot is requested
+ */
+public class MetricsRegistry {
+
+    private static final List<Metric> metrics = new ArrayList<Metric>();
+    private static final Map<String, Metric> metricsByName = new HashMap<String, Metric>();
+
+    // one line per round, header line is added, when set of metrics changes
+    private static final List<String> roundSnapshots = new ArrayList<String>();
+    private static int snapshotMetricsCount;
+
+    public static Counter counter(String name) {
+        final Metric metric = metricsByName.get(name);
+        if (metric == null) {
+            return register(new Counter(name));
+        }
+        return (Counter) checkType(metric, Counter.class);
+    }
+
+    public static Gauge gauge(String name) {
+        final Metric metric = metricsByName.get(name);
+        if (metric == null) {
+            return register(new Gauge(name));
+        }
+        return (Gauge) checkType(metric, Gauge.class);
+    }
+
+    public static Histogram histogram(String name) {
+        final Metric metric = metricsByName.get(name);
+        if (metric == null) {
+            return register(new Histogram(name));
+        }
+        return (Histogram) checkType(metric, Histogram.class);
+    }
+
+    /**
+     * @return metric, which reports difference of given counters, so both counters may stay monotonic
+     */
+    public static Difference difference(String name, Counter minuend, Counter subtrahend) {
+        final Metric metric = metricsByName.get(name);
+        if (metric == null) {
+            return register(new Difference(name, minuend, subtrahend));
+        }
+        return (Difference) checkType(metric, Difference.class);
+    }
+
+    private static <T extends Metric> T register(T metric) {
+        metrics.add(metric);
+        metricsByName.put(metric.name, metric);
+        return metric;
+    }
+
+    private static Metric checkType(Metric metric, Class<? extends Metric> type) {
+        if (metric.getClass() != type) {
+            throw new IllegalArgumentException("Metric " + metric.name + " is registered as " + metric.getClass().getSimpleName());
+        }
+        return metric;
+    }
+
+    public static int getMetricsCount() {
+        return metrics.size();
+    }
+
+    public static String getReportLine(int metricIdx) {
+        final Metric metric = metrics.get(metricIdx);
+        final StringBuilder sb = new StringBuilder(metric.name).append(": ");
+        metric.appendReport(sb);
+        return sb.toString();
+    }
+
+    public static void printReport() {
+        for (int i = 0; i < metrics.size(); i++) {
+            System.out.println(getReportLine(i));
+        }
+    }
+
+    /**
+     * Adds snapshot of round values of all metrics and starts new round
+     */
+    public static void roundFinished(int round) {
+        final StringBuilder sb = new StringBuilder();
+        if (snapshotMetricsCount != metrics.size()) {
+            sb.append("#round");
+            for (Metric metric : metrics) {
+                metric.appendSnapshotHeader(sb);
+            }
+            roundSnapshots.add(sb.toString());
+            sb.setLength(0);
+            snapshotMetricsCount = metrics.size();
+        }
+
+        sb.append(round);
+        for (Metric metric : metrics) {
+            metric.appendSnapshot(sb);
+        }
+        roundSnapshots.add(sb.toString());
+        // differences read round values of counters, so rounds are finished after all snapshots are taken
+        for (Metric metric : metrics) {
+            metric.roundFinished();
+        }
+    }
+
+    /**
+     * @return tab separated round snapshots
+     */
+    public static List<String> getRoundSnapshots() {
+        return roundSnapshots;
+    }
+
+    private static void appendValue(StringBuilder sb, double value) {
+        if (value == (long) value) {
+            sb.append((long) value);
+        } else {
+            sb.append(String.format("%.3f", value));
+        }
+    }
+
+    public static abstract class Metric {
+
+        protected final String name;
+
+        protected Metric(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        protected abstract void appendReport(StringBuilder sb);
+
+        protected void appendSnapshotHeader(StringBuilder sb) {
+            sb.append('\t').append(name);
+        }
+
+        protected abstract void appendSnapshot(StringBuilder sb);
+
+        protected void roundFinished() {
+        }
+    }
+
+    public static class Counter extends Metric {
+
+        private long value;
+        private long roundStartValue;
+
+        private Counter(String name) {
+            super(name);
+        }
+
+        public void inc() {
+            value++;
+        }
+
+        public void add(long delta) {
+            value += delta;
+        }
+
+        public long get() {
+            return value;
+        }
+
+        public long getRoundValue() {
+            return value - roundStartValue;
+        }
+
+        protected void appendReport(StringBuilder sb) {
+            sb.append(getRoundValue()).append(" in round, ").append(value).append(" total");
+        }
+
+        protected void appendSnapshot(StringBuilder sb) {
+            sb.append('\t').append(getRoundValue());
+        }
+
+        protected void roundFinished() {
+            roundStartValue = value;
+        }
+    }
+
+    public static class Difference extends Metric {
+
+        private final Counter minuend;
+        private final Counter subtrahend;
+
+        private Difference(String name, Counter minuend, Counter subtrahend) {
+            super(name);
+            this.minuend = minuend;
+            this.subtrahend = subtrahend;
+        }
+
+        public long get() {
+            return minuend.get() - subtrahend.get();
+        }
+
+        public long getRoundValue() {
+            return minuend.getRoundValue() - subtrahend.getRoundValue();
+        }
+
+        protected void appendReport(StringBuilder sb) {
+            sb.append(getRoundValue()).append(" in round, ").append(get()).append(" total");
+        }
+
+        protected void appendSnapshot(StringBuilder sb) {
+            sb.append('\t').append(getRoundValue());
+        }
+    }
+
+    public static class Gauge extends Metric {
+
+        private double value;
+
+        private Gauge(String name) {
+            super(name);
+        }
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        public double get() {
+            return value;
+        }
+
+        protected void appendReport(StringBuilder sb) {
+            appendValue(sb, value);
+        }
+
+        protected void appendSnapshot(StringBuilder sb) {
+            sb.append('\t');
+            appendValue(sb, value);
+        }
+    }
+
+    public static class Histogram extends Metric {
+
+        private final TimeHistogram battleValues = new TimeHistogram();
+        private final TimeHistogram roundValues = new TimeHistogram();
+
+        private Histogram(String name) {
+            super(name);
+        }
+
+        public void record(long value) {
+            battleValues.record(value);
+            roundValues.record(value);
+        }
+
+        public TimeHistogram getBattleValues() {
+            return battleValues;
+        }
+
+        public TimeHistogram getRoundValues() {
+            return roundValues;
+        }
+
+        protected void appendReport(StringBuilder sb) {
+            sb.append("count: ").append(battleValues.getCount());
+            sb.append(", mean: ");
+            appendValue(sb, battleValues.getMean());
+            sb.append(", p50: ").append(battleValues.getValueAtPercentile(50));
+            sb.append(", p99: ").append(battleValues.getValueAtPercentile(99));
+            sb.append(", max: ").append(battleValues.getMax());
+        }
+
+        protected void appendSnapshotHeader(StringBuilder sb) {
+            sb.append('\t').append(name).append(".count");
+            sb.append('\t').append(name).append(".p50");
+            sb.append('\t').append(name).append(".p99");
+            sb.append('\t').append(name).append(".max");
+        }
+
+        protected void appendSnapshot(StringBuilder sb) {
+            sb.append('\t').append(roundValues.getCount());
+            sb.append('\t').append(roundValues.getValueAtPercentile(50));
+            sb.append('\t').append(roundValues.getValueAtPercentile(99));
+            sb.append('\t').append(roundValues.getMax());
+        }
+
+        protected void roundFinished() {
+            roundValues.reset();
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.office;
+
+import lxx.Tomcat;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
+import lxx.events.LXXKeyEvent;
+import lxx.paint.LXXGraphics;
+import lxx.paint.Painter;
+import robocode.DeathEvent;
+import robocode.RobocodeFileOutputStream;
+import robocode.WinEvent;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Prints metrics report and stores round snapshots of metrics in end of round,
+ * and paints metrics overlay, which is toggled by 'S' key
+ */
+public class MetricsReporter implements Painter {
+
+    private static boolean paintEnabled = false;
+
+    private final Tomcat robot;
+
+    public MetricsReporter(Tomcat robot) {
+        this.robot = robot;
+    }
+
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(DeathEvent.class, EventBus.PRIORITY_REPORTS, new EventHandler<DeathEvent>() {
+            public void handle(DeathEvent event) {
+                roundFinished();
+            }
+        });
+        eventBus.subscribe(WinEvent.class, EventBus.PRIORITY_REPORTS, new EventHandler<WinEvent>() {
+            public void handle(WinEvent event) {
+                roundFinished();
+            }
+        });
+        eventBus.subscribe(LXXKeyEvent.class, EventBus.PRIORITY_REPORTS, new EventHandler<LXXKeyEvent>() {
+            public void handle(LXXKeyEvent event) {
+                if (Character.toUpperCase(event.getKeyChar()) == 'S') {
+                    paintEnabled = !paintEnabled;
+                }
+            }
+        });
+    }
+
+    private void roundFinished() {
+        MetricsRegistry.printReport();
+        MetricsRegistry.roundFinished(robot.getRoundNum());
+        final String snapshotsFile = PropertiesManager.getDebugProperty("lxx.MetricsReporter.snapshotsFile");
+        if (snapshotsFile != null) {
+            writeSnapshots(robot.getDataFile(snapshotsFile));
+        }
+    }
+
+    // file is rewritten every round, so it always contains all rounds of current battle
+    private void writeSnapshots(File file) {
+        final List<String> snapshots = MetricsRegistry.getRoundSnapshots();
+        long size = 0;
+        for (String snapshot : snapshots) {
+            size += snapshot.length() + 1;
+        }
+        if (size > robot.getDataQuotaAvailable() + file.length()) {
+            System.out.println("[WARN] Not enough data quota for metrics snapshots: " + size + " bytes");
+            return;
+        }
+
+        PrintStream out = null;
+        try {
+            out = new PrintStream(new RobocodeFileOutputStream(file));
+            for (String snapshot : snapshots) {
+                out.print(snapshot);
+                out.print('\n');
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    public void paint(LXXGraphics g) {
+        if (!paintEnabled) {
+            return;
+        }
+
+        g.setColor(new Color(255, 255, 255, 200));
+        for (int i = 0; i < MetricsRegistry.getMetricsCount(); i++) {
+            g.drawString(5, robot.getBattleFieldHeight() - 15 * (i + 1), MetricsRegistry.getReportLine(i));
+        }
+    }
+
+}
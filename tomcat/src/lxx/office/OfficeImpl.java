@@ -38,35 +38,39 @@ public class OfficeImpl implements Office {
         attributesManager = new AttributesManager(this, tomcat);
 
         targetManager = new TargetManager(tomcat);
-        tomcat.addListener(targetManager);
+        targetManager.subscribe(tomcat.getEventBus());
 
         turnSnapshotsLog = new TurnSnapshotsLog(this);
         targetManager.addListener(turnSnapshotsLog);
 
         waveManager = new WaveManager();
-        tomcat.addListener(waveManager);
+        waveManager.subscribe(tomcat.getEventBus());
 
         bulletManager = new BulletManager();
-        tomcat.addListener(bulletManager);
+        bulletManager.subscribe(tomcat.getEventBus());
 
         enemyBulletManager = new EnemyBulletManager(this, tomcat);
-        tomcat.addListener(enemyBulletManager);
+        enemyBulletManager.subscribe(tomcat.getEventBus());
         targetManager.addListener(enemyBulletManager);
 
         statisticsManager = new StatisticsManager(this, tomcat);
-        tomcat.addListener(statisticsManager);
+        statisticsManager.subscribe(tomcat.getEventBus());
 
         paintManager = new PaintManager();
-        tomcat.addListener(paintManager);
+        paintManager.subscribe(tomcat.getEventBus());
 
         final PluginManager pluginManager = new PluginManager(this);
-        tomcat.addListener(pluginManager);
+        pluginManager.subscribe(tomcat.getEventBus());
 
         dataViewManager = new DataViewManager(targetManager, turnSnapshotsLog);
-        tomcat.addListener(dataViewManager);
+        dataViewManager.subscribe(tomcat.getEventBus());
 
         final PropertiesManager propertiesManager = new PropertiesManager();
-        tomcat.addListener(propertiesManager);
+        propertiesManager.subscribe(tomcat.getEventBus());
+
+        final MetricsReporter metricsReporter = new MetricsReporter(tomcat);
+        metricsReporter.subscribe(tomcat.getEventBus());
+        paintManager.addPainter(metricsReporter);
     }
 
     public EnemyBulletManager getEnemyBulletManager() {
@@ -1,8 +1,8 @@
 package lxx.office;
 
-import lxx.RobotListener;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import robocode.DeathEvent;
-import robocode.Event;
 import robocode.WinEvent;
 
 import java.util.HashMap;
@@ -12,7 +12,7 @@ import java.util.Map;
  * User: jdev
  * Date: 19.06.11
  */
-public class PropertiesManager implements RobotListener {
+public class PropertiesManager {
 
     private static final Map<String, String> properties = new HashMap<String, String>();
 
@@ -24,11 +24,38 @@ public class PropertiesManager implements RobotListener {
         return properties.get(name);
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof DeathEvent || event instanceof WinEvent) {
-            for (Map.Entry<String, String> e : properties.entrySet()) {
-                System.out.println(e.getKey() + ": " + e.getValue());
+    /**
+     * @return value of property or default value, if property isn't set or isn't a number
+     */
+    public static long getLongProperty(String name, long defaultValue) {
+        final String value = properties.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("[WARN] Invalid value of " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(DeathEvent.class, EventBus.PRIORITY_REPORTS, new EventHandler<DeathEvent>() {
+            public void handle(DeathEvent event) {
+                printProperties();
             }
+        });
+        eventBus.subscribe(WinEvent.class, EventBus.PRIORITY_REPORTS, new EventHandler<WinEvent>() {
+            public void handle(WinEvent event) {
+                printProperties();
+            }
+        });
+    }
+
+    private void printProperties() {
+        for (Map.Entry<String, String> e : properties.entrySet()) {
+            System.out.println(e.getKey() + ": " + e.getValue());
         }
     }
 }
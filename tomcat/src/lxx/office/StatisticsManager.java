@@ -5,11 +5,11 @@
 package lxx.office;
 
 import lxx.LXXRobot;
-import lxx.RobotListener;
 import lxx.Tomcat;
 import lxx.bullets.BulletManagerListener;
 import lxx.bullets.LXXBullet;
-import lxx.events.TickEvent;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.utils.HitRate;
 import robocode.*;
 
@@ -17,7 +17,7 @@ import robocode.*;
  * User: jdev
  * Date: 16.06.2010
  */
-public class StatisticsManager implements RobotListener, BulletManagerListener {
+public class StatisticsManager implements BulletManagerListener {
 
     private static final int[] placeDeathCount = new int[11];
     private static final double[] placeEnergyCount = new double[11];
@@ -29,14 +29,15 @@ public class StatisticsManager implements RobotListener, BulletManagerListener {
     private static HitRate myRawHitRate;
     private static HitRate enemyRawHitRate;
 
-    private static int wallHits;
-    private static int skippedTurns;
+    private static final MetricsRegistry.Counter wallHits = MetricsRegistry.counter("Wall hits");
+    private static final MetricsRegistry.Counter skippedTurns = MetricsRegistry.counter("Skipped turns");
 
-    private final Office office;
     private final Tomcat tomcat;
+    private final MetricsRegistry.Gauge myHitRateGauge;
+    private final MetricsRegistry.Gauge myMissCountGauge;
+    private MetricsRegistry.Gauge enemyHitRateGauge;
 
     public StatisticsManager(Office office, Tomcat tomcat) {
-        this.office = office;
         this.tomcat = tomcat;
         if (myHitRate == null) {
             myHitRate = new HitRate();
@@ -46,17 +47,23 @@ public class StatisticsManager implements RobotListener, BulletManagerListener {
             enemyRawHitRate = new HitRate();
         }
 
+        myHitRateGauge = MetricsRegistry.gauge(tomcat.getName() + " static hit rate, %");
+        myMissCountGauge = MetricsRegistry.gauge(tomcat.getName() + " miss count");
+
         office.getBulletManager().addListener(this);
         office.getEnemyBulletManager().addListener(this);
 
     }
 
-    public void onTick() {
-        PropertiesManager.setDebugProperty(tomcat.getName() + " static hit rate", String.valueOf(myHitRate));
-        PropertiesManager.setDebugProperty(tomcat.getName() + " miss count", String.valueOf(myHitRate.getMissCount()));
-
-        if (tomcat.isDuel() && office.getTargetManager().hasDuelOpponent()) {
-            PropertiesManager.setDebugProperty(office.getTargetManager().getDuelOpponentName() + " static hit rate", String.valueOf(enemyHitRate));
+    private void updateHitRateGauges(LXXBullet bullet, boolean isMine) {
+        if (isMine) {
+            myHitRateGauge.set(myHitRate.getHitRate() * 100);
+            myMissCountGauge.set(myHitRate.getMissCount());
+        } else if (tomcat.isDuel()) {
+            if (enemyHitRateGauge == null) {
+                enemyHitRateGauge = MetricsRegistry.gauge(bullet.getOwner().getName() + " static hit rate, %");
+            }
+            enemyHitRateGauge.set(enemyHitRate.getHitRate() * 100);
         }
     }
 
@@ -74,48 +81,74 @@ public class StatisticsManager implements RobotListener, BulletManagerListener {
         placePassed[1]++;
     }
 
-    public void onEvent(Event event) {
-        if (tomcat.getOthers() > 10) {
-            return;
-        }
-        if (event instanceof WinEvent) {
-            onWin();
-        } else if (event instanceof DeathEvent) {
-            onDeath();
-        } else if (event instanceof RobotDeathEvent) {
-            onRobotDeath();
-        } else if (event instanceof TickEvent) {
-            onTick();
-        } else if (event instanceof HitWallEvent) {
-            wallHits++;
-            PropertiesManager.setDebugProperty("Wall hits", String.valueOf(wallHits));
-        } else if (event instanceof SkippedTurnEvent) {
-            skippedTurns++;
-            PropertiesManager.setDebugProperty("Skipped turns", String.valueOf(skippedTurns));
-        }
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(WinEvent.class, EventBus.PRIORITY_STATISTICS, new EventHandler<WinEvent>() {
+            public void handle(WinEvent event) {
+                if (isTracked()) {
+                    onWin();
+                }
+            }
+        });
+        eventBus.subscribe(DeathEvent.class, EventBus.PRIORITY_STATISTICS, new EventHandler<DeathEvent>() {
+            public void handle(DeathEvent event) {
+                if (isTracked()) {
+                    onDeath();
+                }
+            }
+        });
+        eventBus.subscribe(RobotDeathEvent.class, EventBus.PRIORITY_STATISTICS, new EventHandler<RobotDeathEvent>() {
+            public void handle(RobotDeathEvent event) {
+                if (isTracked()) {
+                    onRobotDeath();
+                }
+            }
+        });
+        eventBus.subscribe(HitWallEvent.class, EventBus.PRIORITY_STATISTICS, new EventHandler<HitWallEvent>() {
+            public void handle(HitWallEvent event) {
+                if (isTracked()) {
+                    wallHits.inc();
+                }
+            }
+        });
+        eventBus.subscribe(SkippedTurnEvent.class, EventBus.PRIORITY_STATISTICS, new EventHandler<SkippedTurnEvent>() {
+            public void handle(SkippedTurnEvent event) {
+                if (isTracked()) {
+                    skippedTurns.inc();
+                }
+            }
+        });
+    }
+
+    // place statistics arrays are sized for battles with up to 10 opponents
+    private boolean isTracked() {
+        return tomcat.getOthers() <= 10;
     }
 
     public void bulletFired(LXXBullet bullet) {
     }
 
     public void bulletHit(LXXBullet bullet) {
-        if (bullet.getOwner().getName().equals(tomcat.getName())) {
+        final boolean isMine = bullet.getOwner().getName().equals(tomcat.getName());
+        if (isMine) {
             myHitRate.hit();
             myRawHitRate.hit();
         } else {
             enemyHitRate.hit();
             enemyRawHitRate.hit();
         }
+        updateHitRateGauges(bullet, isMine);
     }
 
     public void bulletMiss(LXXBullet bullet) {
-        if (bullet.getOwner().getName().equals(tomcat.getName())) {
+        final boolean isMine = bullet.getOwner().getName().equals(tomcat.getName());
+        if (isMine) {
             myHitRate.miss();
             myRawHitRate.miss();
         } else {
             enemyHitRate.miss();
             enemyRawHitRate.miss();
         }
+        updateHitRateGauges(bullet, isMine);
     }
 
     public void bulletIntercepted(LXXBullet bullet) {
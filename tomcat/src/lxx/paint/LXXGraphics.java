@@ -16,42 +16,153 @@ import static java.lang.Math.toDegrees;
 /**
  * User: jdev
  * Date: 22.06.2010
+ *
+ * Paint commands buffer. Commands are recorded into reusable arrays only when graphics is enabled,
+ * otherwise drawing methods return before any computations, and recorded commands are drawn on robot's graphics by <code>flush</code>
  */
 @SuppressWarnings({"UnusedDeclaration"})
 public class LXXGraphics {
 
-    private final Graphics2D delegate;
+    private static final int SET_COLOR = 0;
+    private static final int DRAW_OVAL = 1;
+    private static final int FILL_OVAL = 2;
+    private static final int DRAW_LINE = 3;
+    private static final int DRAW_RECT = 4;
+    private static final int FILL_RECT = 5;
+    private static final int DRAW_STRING = 6;
+    private static final int SET_STROKE = 7;
+    private static final int SET_FONT = 8;
+    private static final int DRAW_ARC = 9;
+
+    private int[] commands = new int[256];
+    private int commandsCount;
+    private int[] args = new int[1024];
+    private int argsCount;
+    private Object[] objects = new Object[64];
+    private int objectsCount;
+
+    private boolean isEnabled;
+    private Stroke stroke;
+    private Font font;
+
+    public void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+    }
 
+    public boolean isEnabled() {
+        return isEnabled;
+    }
 
-    public LXXGraphics(Graphics2D delegate) {
-        this.delegate = delegate;
+    /**
+     * Draws recorded commands on given graphics and clears buffer
+     */
+    public void flush(Graphics2D g) {
+        final Stroke initialStroke = g.getStroke();
+        final Font initialFont = g.getFont();
+        int argIdx = 0;
+        int objectIdx = 0;
+        for (int i = 0; i < commandsCount; i++) {
+            switch (commands[i]) {
+                case SET_COLOR:
+                    g.setColor((Color) objects[objectIdx++]);
+                    break;
+                case DRAW_OVAL:
+                    g.drawOval(args[argIdx], args[argIdx + 1], args[argIdx + 2], args[argIdx + 3]);
+                    argIdx += 4;
+                    break;
+                case FILL_OVAL:
+                    g.fillOval(args[argIdx], args[argIdx + 1], args[argIdx + 2], args[argIdx + 3]);
+                    argIdx += 4;
+                    break;
+                case DRAW_LINE:
+                    g.drawLine(args[argIdx], args[argIdx + 1], args[argIdx + 2], args[argIdx + 3]);
+                    argIdx += 4;
+                    break;
+                case DRAW_RECT:
+                    g.drawRect(args[argIdx], args[argIdx + 1], args[argIdx + 2], args[argIdx + 3]);
+                    argIdx += 4;
+                    break;
+                case FILL_RECT:
+                    g.fillRect(args[argIdx], args[argIdx + 1], args[argIdx + 2], args[argIdx + 3]);
+                    argIdx += 4;
+                    break;
+                case DRAW_STRING:
+                    g.drawString((String) objects[objectIdx++], args[argIdx], args[argIdx + 1]);
+                    argIdx += 2;
+                    break;
+                case SET_STROKE:
+                    final Stroke s = (Stroke) objects[objectIdx++];
+                    g.setStroke(s != null ? s : initialStroke);
+                    break;
+                case SET_FONT:
+                    final Font f = (Font) objects[objectIdx++];
+                    g.setFont(f != null ? f : initialFont);
+                    break;
+                case DRAW_ARC:
+                    g.drawArc(args[argIdx], args[argIdx + 1], args[argIdx + 2], args[argIdx + 3], args[argIdx + 4], args[argIdx + 5]);
+                    argIdx += 6;
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported command: " + commands[i]);
+            }
+        }
+
+        for (int i = 0; i < objectsCount; i++) {
+            objects[i] = null;
+        }
+        commandsCount = 0;
+        argsCount = 0;
+        objectsCount = 0;
+        stroke = null;
+        font = null;
     }
 
     public void setColor(Color c) {
-        delegate.setColor(c);
+        if (isEnabled) {
+            addCommand(SET_COLOR);
+            addObject(c);
+        }
     }
 
     public void drawOval(double centerX, double centerY, double width, double height) {
-        delegate.drawOval((int) (centerX - width / 2), (int) (centerY - height / 2), (int) width, (int) height);
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(DRAW_OVAL, (int) (centerX - width / 2), (int) (centerY - height / 2), (int) width, (int) height);
     }
 
     public void fillOval(double centerX, double centerY, double width, double height) {
-        delegate.fillOval((int) (centerX - width / 2), (int) (centerY - height / 2), (int) width, (int) height);
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(FILL_OVAL, (int) (centerX - width / 2), (int) (centerY - height / 2), (int) width, (int) height);
     }
 
     public void drawLine(double x1, double y1, double x2, double y2) {
-        delegate.drawLine((int) x1, (int) y1, (int) x2, (int) y2);
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(DRAW_LINE, (int) x1, (int) y1, (int) x2, (int) y2);
     }
 
     public void drawLine(APoint pnt1, APoint pnt2) {
+        if (!isEnabled) {
+            return;
+        }
         drawLine(pnt1.getX(), pnt1.getY(), pnt2.getX(), pnt2.getY());
     }
 
     public void drawLine(APoint center, double angle, double length) {
+        if (!isEnabled) {
+            return;
+        }
         drawLine(center.project(angle, length / 2), center.project(robocode.util.Utils.normalAbsoluteAngle(angle - Math.PI), length / 2));
     }
 
     public void drawLine(APoint center, double alpha, double distance, double length) {
+        if (!isEnabled) {
+            return;
+        }
         drawLine(center.project(alpha, distance - length / 2), center.project(alpha, distance + length / 2));
     }
 
@@ -60,6 +171,9 @@ public class LXXGraphics {
     }
 
     public void drawArrow(APoint from, APoint to, int peakLength) {
+        if (!isEnabled) {
+            return;
+        }
         final double angle = from.angleTo(to);
         final double arrowLength = from.aDistance(to);
         final APoint peakBase = from.project(angle, arrowLength - peakLength);
@@ -90,11 +204,17 @@ public class LXXGraphics {
     }
 
     public void fillRect(double x, double y, double width, double height) {
-        delegate.fillRect((int) x, (int) y, (int) width, (int) height);
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(FILL_RECT, (int) x, (int) y, (int) width, (int) height);
     }
 
     public void drawRect(double x, double y, double width, double height) {
-        delegate.drawRect((int) x, (int) y, (int) width, (int) height);
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(DRAW_RECT, (int) x, (int) y, (int) width, (int) height);
     }
 
     public void fillCircle(APoint pnt, int radius) {
@@ -102,49 +222,125 @@ public class LXXGraphics {
     }
 
     public void drawString(APoint pos, String s) {
-        delegate.drawString(s, (int) pos.getX(), (int) pos.getY());
+        drawString(pos.getX(), pos.getY(), s);
     }
 
     public void drawString(double x, double y, String s) {
-        delegate.drawString(s, (int) x, (int) y);
+        if (isEnabled) {
+            addCommand(DRAW_STRING);
+            addObject(s);
+            ensureArgsCapacity(2);
+            args[argsCount++] = (int) x;
+            args[argsCount++] = (int) y;
+        }
     }
 
     public void drawSquare(APoint center, double side) {
-        delegate.drawRect((int) (center.getX() - (side / 2)), (int) (center.getY() - (side / 2)),
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(DRAW_RECT, (int) (center.getX() - (side / 2)), (int) (center.getY() - (side / 2)),
                 (int) side, (int) side);
     }
 
     public void fillSquare(APoint center, double side) {
-        delegate.fillRect((int) (center.getX() - (side / 2)), (int) (center.getY() - (side / 2)),
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(FILL_RECT, (int) (center.getX() - (side / 2)), (int) (center.getY() - (side / 2)),
                 (int) side, (int) side);
     }
 
+    /**
+     * @param stroke stroke or null to restore initial stroke of robot's graphics
+     */
     public void setStroke(Stroke stroke) {
-        delegate.setStroke(stroke);
+        if (isEnabled) {
+            this.stroke = stroke;
+            addCommand(SET_STROKE);
+            addObject(stroke);
+        }
     }
 
+    /**
+     * @return last recorded stroke or null if it's initial stroke of robot's graphics
+     */
     public Stroke getStroke() {
-        return delegate.getStroke();
+        return stroke;
     }
 
+    /**
+     * @param font font or null to restore initial font of robot's graphics
+     */
     public void setFont(Font font) {
-        delegate.setFont(font);
+        if (isEnabled) {
+            this.font = font;
+            addCommand(SET_FONT);
+            addObject(font);
+        }
     }
 
+    /**
+     * @return last recorded font or null if it's initial font of robot's graphics
+     */
     public Font getFont() {
-        return delegate.getFont();
+        return font;
     }
 
     public void drawRect(Rectangle rectangle) {
-        delegate.drawRect(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(DRAW_RECT, rectangle.x, rectangle.y, rectangle.width, rectangle.height);
     }
 
     public void drawArc(APoint center, APoint leftBorder, APoint rightBorder) {
-        delegate.drawArc((int) (center.getX() - center.aDistance(leftBorder)),
-                (int) (center.getY() - center.aDistance(leftBorder)),
-                (int) center.aDistance(leftBorder) * 2 - 1, (int) center.aDistance(leftBorder) * 2 - 1,
-                (int) round(toDegrees(center.angleTo(leftBorder))),
-                (int) round(toDegrees(Utils.normalRelativeAngle(center.angleTo(rightBorder) - center.angleTo(leftBorder)))));
+        if (!isEnabled) {
+            return;
+        }
+        addCommand(DRAW_ARC);
+        ensureArgsCapacity(6);
+        args[argsCount++] = (int) (center.getX() - center.aDistance(leftBorder));
+        args[argsCount++] = (int) (center.getY() - center.aDistance(leftBorder));
+        args[argsCount++] = (int) center.aDistance(leftBorder) * 2 - 1;
+        args[argsCount++] = (int) center.aDistance(leftBorder) * 2 - 1;
+        args[argsCount++] = (int) round(toDegrees(center.angleTo(leftBorder)));
+        args[argsCount++] = (int) round(toDegrees(Utils.normalRelativeAngle(center.angleTo(rightBorder) - center.angleTo(leftBorder))));
+    }
+
+    private void addCommand(int command, int arg1, int arg2, int arg3, int arg4) {
+        addCommand(command);
+        ensureArgsCapacity(4);
+        args[argsCount++] = arg1;
+        args[argsCount++] = arg2;
+        args[argsCount++] = arg3;
+        args[argsCount++] = arg4;
+    }
+
+    private void addCommand(int command) {
+        if (commandsCount == commands.length) {
+            final int[] newCommands = new int[commands.length * 2];
+            System.arraycopy(commands, 0, newCommands, 0, commandsCount);
+            commands = newCommands;
+        }
+        commands[commandsCount++] = command;
+    }
+
+    private void ensureArgsCapacity(int count) {
+        if (argsCount + count > args.length) {
+            final int[] newArgs = new int[args.length * 2];
+            System.arraycopy(args, 0, newArgs, 0, argsCount);
+            args = newArgs;
+        }
+    }
+
+    private void addObject(Object object) {
+        if (objectsCount == objects.length) {
+            final Object[] newObjects = new Object[objects.length * 2];
+            System.arraycopy(objects, 0, newObjects, 0, objectsCount);
+            objects = newObjects;
+        }
+        objects[objectsCount++] = object;
     }
 
     public void drawRect(APoint center, double width, double height) {
@@ -4,27 +4,43 @@
 
 package lxx.paint;
 
-import lxx.RobotListener;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.events.LXXPaintEvent;
-import robocode.Event;
 
+import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
 
-public class PaintManager implements RobotListener {
+public class PaintManager {
 
     private final List<Painter> painters = new ArrayList<Painter>();
 
+    private EventBus eventBus;
+
     public void addPainter(Painter painter) {
         painters.add(painter);
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof LXXPaintEvent) {
-            LXXGraphics g = ((LXXPaintEvent) event).getGraphics();
-            for (Painter p : painters) {
-                p.paint(g);
+    public void subscribe(EventBus eventBus) {
+        this.eventBus = eventBus;
+        eventBus.subscribe(LXXPaintEvent.class, EventBus.PRIORITY_PAINT, new EventHandler<LXXPaintEvent>() {
+            public void handle(LXXPaintEvent event) {
+                final LXXGraphics g = event.getGraphics();
+                for (Painter p : painters) {
+                    p.paint(g);
+                }
             }
-        }
+        });
+    }
+
+    /**
+     * Records paint commands of all listeners and draws them on robot's graphics, once per tick
+     */
+    public void paint(LXXGraphics g, Graphics2D robotGraphics) {
+        g.setEnabled(true);
+        eventBus.publish(new LXXPaintEvent(g));
+        g.setEnabled(false);
+        g.flush(robotGraphics);
     }
 }
@@ -4,11 +4,11 @@
 
 package lxx.plugins;
 
-import lxx.RobotListener;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.events.TickEvent;
 import lxx.office.Office;
 import robocode.BattleEndedEvent;
-import robocode.Event;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,7 +17,7 @@ import java.util.List;
  * User: jdev
  * Date: 30.09.2010
  */
-public class PluginManager implements RobotListener {
+public class PluginManager {
 
     @SuppressWarnings({"MismatchedQueryAndUpdateOfCollection"})
     private final List<Plugin> plugins = new ArrayList<Plugin>();
@@ -31,15 +31,20 @@ public class PluginManager implements RobotListener {
         }
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof BattleEndedEvent) {
-            for (Plugin plugin : plugins) {
-                plugin.battleEnded();
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(BattleEndedEvent.class, EventBus.PRIORITY_PLUGINS, new EventHandler<BattleEndedEvent>() {
+            public void handle(BattleEndedEvent event) {
+                for (Plugin plugin : plugins) {
+                    plugin.battleEnded();
+                }
             }
-        } else if (event instanceof TickEvent) {
-            for (Plugin plugin : plugins) {
-                plugin.tick();
+        });
+        eventBus.subscribeDeferrable(TickEvent.class, EventBus.PRIORITY_PLUGINS, new EventHandler<TickEvent>() {
+            public void handle(TickEvent event) {
+                for (Plugin plugin : plugins) {
+                    plugin.tick();
+                }
             }
-        }
+        });
     }
 }
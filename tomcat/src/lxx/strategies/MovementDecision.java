@@ -6,7 +6,6 @@ package lxx.strategies;
 
 import lxx.LXXRobotState;
 import lxx.utils.LXXConstants;
-import lxx.utils.LXXPoint;
 import lxx.utils.LXXUtils;
 import robocode.Rules;
 import robocode.util.Utils;
@@ -34,28 +33,41 @@ public class MovementDecision implements Serializable {
     }
 
     public static MovementDecision toMovementDecision(LXXRobotState robot, double desiredSpeed, double desiredHeading) {
-        if (desiredSpeed > Rules.MAX_VELOCITY) {
-            desiredSpeed = Rules.MAX_VELOCITY;
-        }
+        final double turnRateRadians = getTurnRateRadians(robot, desiredHeading);
+        return new MovementDecision(getDesiredVelocity(robot, desiredSpeed, desiredHeading, turnRateRadians), turnRateRadians);
+    }
 
-        final boolean wantToGoFront = LXXUtils.anglesDiff(robot.getHeadingRadians(), desiredHeading) < LXXConstants.RADIANS_90;
+    public static double getTurnRateRadians(LXXRobotState robot, double desiredHeading) {
+        final boolean wantToGoFront = isWantToGoFront(robot, desiredHeading);
         final double normalizedDesiredHeading = wantToGoFront ? desiredHeading : Utils.normalAbsoluteAngle(desiredHeading + LXXConstants.RADIANS_180);
 
         final double turnRemaining = Utils.normalRelativeAngle(normalizedDesiredHeading - robot.getHeadingRadians());
-        double turnRateRadians =
-                LXXUtils.limit(-Rules.getTurnRateRadians(robot.getSpeed()),
-                        turnRemaining,
-                        Rules.getTurnRateRadians(robot.getSpeed()));
+        return LXXUtils.limit(-Rules.getTurnRateRadians(robot.getSpeed()),
+                turnRemaining,
+                Rules.getTurnRateRadians(robot.getSpeed()));
+    }
 
-        final LXXPoint robotPos = new LXXPoint(robot);
+    /**
+     * @param turnRateRadians turn rate, which is returned by <code>getTurnRateRadians</code> for same robot and heading
+     */
+    public static double getDesiredVelocity(LXXRobotState robot, double desiredSpeed, double desiredHeading, double turnRateRadians) {
+        if (desiredSpeed > Rules.MAX_VELOCITY) {
+            desiredSpeed = Rules.MAX_VELOCITY;
+        }
+
+        final boolean wantToGoFront = isWantToGoFront(robot, desiredHeading);
         final double futureHeading = getFutureHeading(robot, wantToGoFront, turnRateRadians);
-        final double distanceToWall = robotPos.distanceToWall(robot.getBattleField(), futureHeading);
+        final double distanceToWall = robot.getBattleField().getDistanceToWall(robot, futureHeading);
         final double futureSpeed = getFutureSpeed(robot.getVelocity(), desiredSpeed, wantToGoFront);
         if (distanceToWall - 4 < LXXUtils.getStopDistance(futureSpeed) + futureSpeed) {
             desiredSpeed = 0;
         }
 
-        return new MovementDecision(desiredSpeed * (wantToGoFront ? 1 : -1), turnRateRadians);
+        return desiredSpeed * (wantToGoFront ? 1 : -1);
+    }
+
+    private static boolean isWantToGoFront(LXXRobotState robot, double desiredHeading) {
+        return LXXUtils.anglesDiff(robot.getHeadingRadians(), desiredHeading) < LXXConstants.RADIANS_90;
     }
 
     private static double getFutureSpeed(double velocity, double desiredSpeed, boolean wantToGoFront) {
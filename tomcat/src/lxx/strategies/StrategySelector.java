@@ -7,6 +7,7 @@ package lxx.strategies;
 import lxx.Tomcat;
 import lxx.bullets.enemy.EnemyBulletManager;
 import lxx.office.Office;
+import lxx.office.PropertiesManager;
 import lxx.strategies.challenges.MCChallengerStrategy;
 import lxx.strategies.challenges.TCChallengerStrategy;
 import lxx.strategies.duel.DuelFirePowerSelector;
@@ -32,8 +33,9 @@ public class StrategySelector {
         targetManager.addListener(tomcatEyes);
         enemyBulletManager.addListener(tomcatEyes);
 
-        final TomcatClaws tomcatClaws = new TomcatClaws(robot, office.getTurnSnapshotsLog(), office.getDataViewManager().getDuelDataView());
-        final WaveSurfingMovement wsm = new WaveSurfingMovement(office, tomcatEyes);
+        final TomcatClaws tomcatClaws = new TomcatClaws(robot, office.getTurnSnapshotsLog(), office.getDataViewManager().getDuelDataView(),
+                getClawsReplayMode());
+        final WaveSurfingMovement wsm = new WaveSurfingMovement(office, tomcatEyes, getSurfPlanSearchBudgetNanos());
         office.getPaintManager().addPainter(wsm);
 
         strategies.add(new FindEnemiesStrategy(robot, targetManager, robot.getInitialOthers()));
@@ -51,6 +53,24 @@ public class StrategySelector {
         strategies.add(winStrategy);
     }
 
+    private static TomcatClaws.ReplayMode getClawsReplayMode() {
+        final String replayMode = PropertiesManager.getDebugProperty("lxx.TomcatClaws.replayMode");
+        if (replayMode == null) {
+            return TomcatClaws.ReplayMode.POINTS;
+        }
+        try {
+            return TomcatClaws.ReplayMode.valueOf(replayMode.trim());
+        } catch (IllegalArgumentException e) {
+            System.out.println("[WARN] Unknown claws replay mode: " + replayMode);
+            return TomcatClaws.ReplayMode.POINTS;
+        }
+    }
+
+    // budget is set in microseconds
+    private static long getSurfPlanSearchBudgetNanos() {
+        return PropertiesManager.getLongProperty("lxx.WaveSurfingMovement.surfPlanSearchBudget", 0) * 1000;
+    }
+
     public Strategy selectStrategy() {
         for (Strategy s : strategies) {
             if (s.match()) {
@@ -6,11 +6,13 @@ package lxx.strategies.challenges;
 
 import lxx.Tomcat;
 import lxx.bullets.enemy.EnemyBulletManager;
+import lxx.events.EventBus;
 import lxx.office.PropertiesManager;
 import lxx.strategies.Movement;
 import lxx.strategies.Strategy;
 import lxx.strategies.TurnDecision;
 import lxx.targeting.TargetManager;
+import robocode.ScannedRobotEvent;
 
 public class MCChallengerStrategy implements Strategy {
 
@@ -19,6 +21,8 @@ public class MCChallengerStrategy implements Strategy {
     private final EnemyBulletManager enemyBulletManager;
     private final Movement movement;
 
+    private boolean isGunSubscribed;
+
     public MCChallengerStrategy(Tomcat robot,
                                 Movement movement,
                                 TargetManager targetManager,
@@ -34,7 +38,10 @@ public class MCChallengerStrategy implements Strategy {
         final boolean match = targetManager.hasDuelOpponent() || enemyBulletManager.getBulletsOnAir(1).size() > 0;
         if ("MCc".equals(PropertiesManager.getDebugProperty("lxx.Tomcat.mode")) &&
                 match) {
-            robot.addListener(new RaikoGun(robot));
+            if (!isGunSubscribed) {
+                robot.getEventBus().subscribe(ScannedRobotEvent.class, EventBus.PRIORITY_STRATEGIES, new RaikoGun(robot));
+                isGunSubscribed = true;
+            }
             return true;
         }
         return false;
@@ -4,13 +4,12 @@
 
 package lxx.strategies.challenges;
 
-import lxx.RobotListener;
+import lxx.events.EventHandler;
 import lxx.strategies.Gun;
 import lxx.strategies.GunDecision;
 import lxx.targeting.Target;
 import robocode.AdvancedRobot;
 import robocode.Condition;
-import robocode.Event;
 import robocode.ScannedRobotEvent;
 import robocode.util.Utils;
 
@@ -53,7 +52,7 @@ import java.awt.geom.Rectangle2D;
 		// you can certainly place code here, too.
 	}
 */
-public class RaikoGun implements Gun, RobotListener {
+public class RaikoGun implements Gun, EventHandler<ScannedRobotEvent> {
 
     private static double bearingDirection = 1;
     private static double lastVChangeTime;
@@ -185,10 +184,8 @@ public class RaikoGun implements Gun, RobotListener {
         }
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof ScannedRobotEvent) {
-            onScannedRobot((ScannedRobotEvent) event);
-        }
+    public void handle(ScannedRobotEvent event) {
+        onScannedRobot(event);
     }
 
     public GunDecision getGunDecision(Target t, double firePower) {
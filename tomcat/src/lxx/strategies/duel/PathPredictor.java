@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.strategies.duel;
+
+import lxx.LXXRobotState;
+import lxx.bullets.LXXBullet;
+import lxx.strategies.MovementDecision;
+import lxx.utils.*;
+import robocode.Rules;
+import robocode.util.Utils;
+
+import java.util.List;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.signum;
+
+/**
+ * Predicts robot's movement along orbit until first bullet passes it and dangers of path's points.
+ * Robot and opponent are simulated by reused images and path is written into reused buffer,
+ * so prediction doesn't create objects
+ */
+public class PathPredictor {
+
+    private static final int DESIRED_SPEED = 8;
+    // half of robot's bounding box side, which is used to check collision with opponent
+    private static final int COLLISION_SIDE_HALF_SIZE = LXXConstants.ROBOT_SIDE_SIZE / 2 - 2;
+
+    private final DistanceController distanceController;
+    private final BattleField battleField;
+
+    private final RobotImage robotImg;
+    private final RobotImage opponentImg;
+
+    public PathPredictor(DistanceController distanceController, BattleField battleField) {
+        this.distanceController = distanceController;
+        this.battleField = battleField;
+
+        robotImg = new RobotImage(battleField.center, 0, 0, battleField, 0, 0);
+        opponentImg = new RobotImage(battleField.center, 0, 0, battleField, 0, 0);
+    }
+
+    /**
+     * @param robot    robot's state in current tick
+     * @param opponent opponent's state in current tick or null
+     * @param bullets  bullets on air, at least one
+     */
+    public void predict(PredictedPath path, LXXRobotState robot, LXXRobotState opponent,
+                        WaveSurfingMovement.OrbitDirection orbitDirection, List<LXXBullet> bullets) {
+        path.clear();
+        robotImg.set(robot.getX(), robot.getY(), robot.getVelocity(), robot.getHeadingRadians(), 0, robot.getEnergy());
+        final RobotImage opponentImg;
+        if (opponent != null) {
+            opponentImg = this.opponentImg;
+            opponentImg.set(opponent.getX(), opponent.getY(), opponent.getVelocity(), opponent.getHeadingRadians(), 0, opponent.getEnergy());
+        } else {
+            opponentImg = null;
+        }
+
+        final LXXBullet bullet = bullets.get(0);
+        final APoint firePosition = bullet.getFirePosition();
+        final APoint surfPoint = opponentImg != null ? opponentImg : firePosition;
+        final double travelledDistance = bullet.getTravelledDistance();
+        final double bulletSpeed = bullet.getSpeed();
+        int time = 0;
+        while (firePosition.aDistance(robotImg) - travelledDistance > bulletSpeed * time) {
+            step(surfPoint, orbitDirection, DESIRED_SPEED, opponentImg, bullets);
+            path.add(robotImg.getX(), robotImg.getY(), getPointDanger(bullets, robotImg, opponentImg, robot));
+            time++;
+        }
+    }
+
+    /**
+     * Simulates robot, which moves along orbit in given direction, reverses orbit direction at reverse tick
+     * and stops at stop tick, until first two bullets pass it.
+     * Danger of first wave is known first, so simulation is stopped when danger accumulated on it isn't less than bound
+     *
+     * @return danger of plan or Double.POSITIVE_INFINITY if it isn't less than bound
+     */
+    public double getPlanDanger(LXXRobotState robot, LXXRobotState opponent, WaveSurfingMovement.OrbitDirection orbitDirection,
+                                int reverseTick, int stopTick, List<LXXBullet> bullets, double bound) {
+        robotImg.set(robot.getX(), robot.getY(), robot.getVelocity(), robot.getHeadingRadians(), 0, robot.getEnergy());
+        final RobotImage opponentImg;
+        if (opponent != null) {
+            opponentImg = this.opponentImg;
+            opponentImg.set(opponent.getX(), opponent.getY(), opponent.getVelocity(), opponent.getHeadingRadians(), 0, opponent.getEnergy());
+        } else {
+            opponentImg = null;
+        }
+
+        final APoint surfPoint = opponentImg != null ? opponentImg : bullets.get(0).getFirePosition();
+        final double distanceToCenter = battleField.center.aDistance(robot);
+        double firstWaveDanger = 0;
+        double enemyAttackAngleDanger = 0;
+        double danger = 0;
+        int time = 0;
+        for (int waveIdx = 0; waveIdx < bullets.size() && waveIdx < 2; waveIdx++) {
+            final LXXBullet bullet = bullets.get(waveIdx);
+            final APoint firePosition = bullet.getFirePosition();
+            final double travelledDistance = bullet.getTravelledDistance();
+            final double bulletSpeed = bullet.getSpeed();
+            while (firePosition.aDistance(robotImg) - travelledDistance > bulletSpeed * time) {
+                step(surfPoint, time < reverseTick ? orbitDirection : orbitDirection.opposite(), time < stopTick ? DESIRED_SPEED : 0,
+                        opponentImg, bullets);
+                time++;
+            }
+
+            if (waveIdx == 0) {
+                firstWaveDanger = getWaveDanger(robotImg, bullet);
+                enemyAttackAngleDanger = getEnemyAttackAngleDanger(opponentImg, robot);
+                danger = getPointDanger(firstWaveDanger, 0, distanceToCenter, enemyAttackAngleDanger);
+                if (danger >= bound) {
+                    return Double.POSITIVE_INFINITY;
+                }
+            } else {
+                danger = getPointDanger(firstWaveDanger, getWaveDanger(robotImg, bullet), distanceToCenter, enemyAttackAngleDanger);
+            }
+        }
+
+        return danger;
+    }
+
+    private void step(APoint surfPoint, WaveSurfingMovement.OrbitDirection orbitDirection, double desiredSpeed, RobotImage opponentImg,
+                      List<LXXBullet> bullets) {
+        final double desiredHeading = getDesiredHeading(surfPoint, orbitDirection, robotImg, bullets);
+        desiredSpeed = getDesiredSpeed(robotImg, opponentImg, desiredSpeed, desiredHeading);
+        final double turnRateRadians = MovementDecision.getTurnRateRadians(robotImg, desiredHeading);
+        final double desiredVelocity = MovementDecision.getDesiredVelocity(robotImg, desiredSpeed, desiredHeading, turnRateRadians);
+        if (opponentImg != null) {
+            opponentImg.apply(Rules.MAX_VELOCITY * signum(opponentImg.getVelocity()), 0);
+        }
+        robotImg.apply(desiredVelocity, turnRateRadians);
+    }
+
+    public double getDesiredHeading(APoint surfPoint, WaveSurfingMovement.OrbitDirection orbitDirection, LXXRobotState robot,
+                                    List<LXXBullet> bulletsOnAir) {
+        final double desiredHeading = distanceController.getDesiredHeading(surfPoint, robot, orbitDirection, bulletsOnAir);
+        return battleField.smoothWalls(robot, desiredHeading, orbitDirection == WaveSurfingMovement.OrbitDirection.CLOCKWISE);
+    }
+
+    /**
+     * @return 0 if robot will collide with opponent or move toward it, desired speed otherwise
+     */
+    public double getDesiredSpeed(LXXRobotState robot, LXXRobotState opponent, double desiredSpeed, double desiredHeading) {
+        if (opponent == null) {
+            return desiredSpeed;
+        }
+
+        double direction = robot.getAbsoluteHeadingRadians();
+        if (LXXUtils.anglesDiff(direction, desiredHeading) > LXXConstants.RADIANS_90) {
+            direction = Utils.normalAbsoluteAngle(direction + LXXConstants.RADIANS_180);
+        }
+        if (LXXUtils.anglesDiff(direction, robot.angleTo(opponent)) < LXXUtils.getRobotWidthInRadians(robot, opponent) * 1.1) {
+            return 0;
+        }
+
+        // bounding boxes of robot's next position and opponent intersection
+        final double nextX = robot.getX() + QuickMath.sin(direction) * desiredSpeed;
+        final double nextY = robot.getY() + QuickMath.cos(direction) * desiredSpeed;
+        final double minDistance = COLLISION_SIDE_HALF_SIZE + LXXConstants.ROBOT_SIDE_HALF_SIZE;
+        if (abs(nextX - opponent.getX()) < minDistance && abs(nextY - opponent.getY()) < minDistance) {
+            return 0;
+        }
+
+        return desiredSpeed;
+    }
+
+    private double getPointDanger(List<LXXBullet> bullets, APoint pnt, LXXRobotState opponent, LXXRobotState robot) {
+        final double firstWaveDanger = getWaveDanger(pnt, bullets.get(0));
+        final double secondWaveDanger = bullets.size() == 1 ? 0 : getWaveDanger(pnt, bullets.get(1));
+
+        return getPointDanger(firstWaveDanger, secondWaveDanger, battleField.center.aDistance(robot), getEnemyAttackAngleDanger(opponent, robot));
+    }
+
+    private double getEnemyAttackAngleDanger(LXXRobotState opponent, LXXRobotState robot) {
+        double enemyAttackAngle = opponent == null
+                ? LXXConstants.RADIANS_90
+                : LXXUtils.anglesDiff(opponent.angleTo(robot), robot.getAbsoluteHeadingRadians());
+        if (enemyAttackAngle > LXXConstants.RADIANS_90) {
+            enemyAttackAngle = abs(enemyAttackAngle - LXXConstants.RADIANS_180);
+        }
+        return LXXConstants.RADIANS_90 - enemyAttackAngle;
+    }
+
+    public static double getPointDanger(double firstWaveDanger, double secondWaveDanger, double distanceToCenter, double enemyAttackAngle) {
+        return firstWaveDanger * 90 +
+                secondWaveDanger * 10 +
+                distanceToCenter / 800 * 3 +
+                enemyAttackAngle * 2;
+    }
+
+    private double getWaveDanger(APoint pnt, LXXBullet bullet) {
+        final double bearingOffset = LXXUtils.bearingOffset(bullet.getFirePosition(), bullet.getTargetStateAtFireTime(), pnt);
+        final double robotWidthInRadians = LXXUtils.getRobotWidthInRadians(bullet.getFirePosition(), pnt);
+
+        return bullet.getDangerProfile().getDanger(bearingOffset, robotWidthInRadians);
+    }
+
+}
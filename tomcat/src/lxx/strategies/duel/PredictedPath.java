@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.strategies.duel;
+
+/**
+ * Points of predicted robot's path and their dangers, stored in reusable arrays
+ */
+public class PredictedPath {
+
+    private double[] xs = new double[64];
+    private double[] ys = new double[64];
+    private double[] dangers = new double[64];
+    private int size;
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(double x, double y, double danger) {
+        if (size == xs.length) {
+            xs = grow(xs);
+            ys = grow(ys);
+            dangers = grow(dangers);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        dangers[size] = danger;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int idx) {
+        return xs[idx];
+    }
+
+    public double getY(int idx) {
+        return ys[idx];
+    }
+
+    public double getDanger(int idx) {
+        return dangers[idx];
+    }
+
+    private double[] grow(double[] array) {
+        final double[] newArray = new double[array.length * 2];
+        System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+}
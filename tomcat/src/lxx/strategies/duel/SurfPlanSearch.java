@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.strategies.duel;
+
+import lxx.LXXRobotState;
+import lxx.bullets.LXXBullet;
+import lxx.strategies.duel.WaveSurfingMovement.OrbitDirection;
+
+import java.util.List;
+
+/**
+ * Search of surfing plan: orbit direction, tick to reverse orbit direction and tick to stop.
+ * Candidates are evaluated with branch and bound on danger of first wave, because it's known before second wave passes.
+ * Search is aborted, when time budget is exhausted, and then caller should fall back to plain orbit directions prediction
+ */
+public class SurfPlanSearch {
+
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private static final int STOP_TICK_STEP = 2;
+    private static final int REVERSE_TICK_STEP = 4;
+
+    private final PathPredictor pathPredictor;
+    private final long budgetNanos;
+
+    private OrbitDirection orbitDirection;
+    private int reverseTick;
+    private int stopTick;
+    private double danger;
+
+    public SurfPlanSearch(PathPredictor pathPredictor, long budgetNanos) {
+        this.pathPredictor = pathPredictor;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Evaluates plans with reverse and stop ticks less than horizon, starting from plan of preferred direction,
+     * which stops at preferred stop tick
+     *
+     * @return true if all candidates are evaluated within time budget
+     */
+    public boolean search(LXXRobotState robot, LXXRobotState opponent, List<LXXBullet> bullets,
+                          OrbitDirection preferredDirection, int preferredStopTick, int horizon) {
+        final long startTime = System.nanoTime();
+
+        orbitDirection = preferredDirection;
+        reverseTick = NEVER;
+        stopTick = preferredStopTick;
+        danger = pathPredictor.getPlanDanger(robot, opponent, preferredDirection, NEVER, preferredStopTick, bullets, Double.POSITIVE_INFINITY);
+
+        for (int dirIdx = 0; dirIdx < 2; dirIdx++) {
+            final OrbitDirection candidateDirection = dirIdx == 0 ? preferredDirection : preferredDirection.opposite();
+            // reverse at zero tick is same as moving in opposite direction, so it's used for plan without reverse
+            for (int r = 0; r < horizon; r += REVERSE_TICK_STEP) {
+                final int candidateReverseTick = r == 0 ? NEVER : r;
+                // plan without stop is evaluated first, because it's the best plan most often and gives tight bound
+                for (int s = -STOP_TICK_STEP; s < horizon; s += STOP_TICK_STEP) {
+                    final int candidateStopTick = s < 0 ? NEVER : s;
+                    if (candidateReverseTick != NEVER && candidateStopTick <= candidateReverseTick) {
+                        continue;
+                    }
+
+                    final double candidateDanger = pathPredictor.getPlanDanger(robot, opponent, candidateDirection,
+                            candidateReverseTick, candidateStopTick, bullets, danger);
+                    if (candidateDanger < danger) {
+                        orbitDirection = candidateDirection;
+                        reverseTick = candidateReverseTick;
+                        stopTick = candidateStopTick;
+                        danger = candidateDanger;
+                    }
+
+                    if (System.nanoTime() - startTime > budgetNanos) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public OrbitDirection getOrbitDirection() {
+        return orbitDirection;
+    }
+
+    public int getReverseTick() {
+        return reverseTick;
+    }
+
+    public int getStopTick() {
+        return stopTick;
+    }
+
+    public double getDanger() {
+        return danger;
+    }
+
+}
@@ -5,7 +5,8 @@
 package lxx.targeting;
 
 import lxx.BasicRobot;
-import lxx.RobotListener;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.events.LXXPaintEvent;
 import lxx.events.TickEvent;
 import lxx.paint.LXXGraphics;
@@ -23,7 +24,7 @@ import java.util.List;
  */
 
 @SuppressWarnings({"UnusedDeclaration"})
-public class TargetManager implements RobotListener {
+public class TargetManager {
 
     private final Map<String, Target> targets = new HashMap<String, Target>();
 
@@ -141,23 +142,43 @@ public class TargetManager implements RobotListener {
         listeners.add(listener);
     }
 
-    public void onEvent(robocode.Event event) {
-        if (event instanceof TickEvent) {
-            onTick();
-        } else if (event instanceof LXXPaintEvent) {
-            onPaint(((LXXPaintEvent) event).getGraphics());
-        } else if (event instanceof RobotDeathEvent) {
-            onTargetKilled(((RobotDeathEvent) event).getName());
-            updateTarget(event, ((RobotDeathEvent) event).getName());
-        } else if (event instanceof HitByBulletEvent) {
-            updateTarget(event, ((HitByBulletEvent) event).getName());
-        } else if (event instanceof BulletHitEvent) {
-            updateTarget(event, ((BulletHitEvent) event).getName());
-        } else if (event instanceof HitRobotEvent) {
-            updateTarget(event, ((HitRobotEvent) event).getName());
-        } else if (event instanceof ScannedRobotEvent) {
-            updateTarget(event, ((ScannedRobotEvent) event).getName());
-        }
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(TickEvent.class, EventBus.PRIORITY_TARGETS, new EventHandler<TickEvent>() {
+            public void handle(TickEvent event) {
+                onTick();
+            }
+        });
+        eventBus.subscribe(LXXPaintEvent.class, EventBus.PRIORITY_TARGETS, new EventHandler<LXXPaintEvent>() {
+            public void handle(LXXPaintEvent event) {
+                onPaint(event.getGraphics());
+            }
+        });
+        eventBus.subscribe(RobotDeathEvent.class, EventBus.PRIORITY_TARGETS, new EventHandler<RobotDeathEvent>() {
+            public void handle(RobotDeathEvent event) {
+                onTargetKilled(event.getName());
+                updateTarget(event, event.getName());
+            }
+        });
+        eventBus.subscribe(HitByBulletEvent.class, EventBus.PRIORITY_TARGETS, new EventHandler<HitByBulletEvent>() {
+            public void handle(HitByBulletEvent event) {
+                updateTarget(event, event.getName());
+            }
+        });
+        eventBus.subscribe(BulletHitEvent.class, EventBus.PRIORITY_TARGETS, new EventHandler<BulletHitEvent>() {
+            public void handle(BulletHitEvent event) {
+                updateTarget(event, event.getName());
+            }
+        });
+        eventBus.subscribe(HitRobotEvent.class, EventBus.PRIORITY_TARGETS, new EventHandler<HitRobotEvent>() {
+            public void handle(HitRobotEvent event) {
+                updateTarget(event, event.getName());
+            }
+        });
+        eventBus.subscribe(ScannedRobotEvent.class, EventBus.PRIORITY_TARGETS, new EventHandler<ScannedRobotEvent>() {
+            public void handle(ScannedRobotEvent event) {
+                updateTarget(event, event.getName());
+            }
+        });
     }
 
     // todo(zhidkov): will be used in melee strategies
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.targeting.tomcat_claws;
+
+import lxx.ts_log.TurnSnapshot;
+import lxx.utils.DeltaVector;
+import lxx.utils.LXXUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of enemy's movement paths after historical snapshots, relative to enemy's heading and position in start snapshot.
+ * Path doesn't depend on bullet speed and current battle situation, so it's computed once and reused for all shots,
+ * and it's extended lazily, when new snapshots arrive
+ */
+public class DeltaPathsCache {
+
+    private static final int MAX_PATHS = 5000;
+
+    private final Map<TurnSnapshot, DeltaPath> paths = new LinkedHashMap<TurnSnapshot, DeltaPath>(MAX_PATHS, 0.75F, true) {
+        protected boolean removeEldestEntry(Map.Entry<TurnSnapshot, DeltaPath> eldest) {
+            return size() > MAX_PATHS;
+        }
+    };
+
+    private int hits;
+    private int misses;
+
+    public DeltaPath getPath(TurnSnapshot start) {
+        DeltaPath path = paths.get(start);
+        if (path == null) {
+            path = new DeltaPath(start);
+            paths.put(start, path);
+            misses++;
+        } else {
+            hits++;
+        }
+        return path;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public static class DeltaPath {
+
+        private final TurnSnapshot start;
+        private TurnSnapshot last;
+
+        // i-th element is delta vector between start snapshot and snapshot after i ticks
+        private double[] alphas = new double[32];
+        private double[] lengths = new double[32];
+        private int length = 1;
+
+        private DeltaPath(TurnSnapshot start) {
+            this.start = start;
+            this.last = start;
+        }
+
+        /**
+         * @return true if path contains delta vector after given count of ticks
+         */
+        public boolean ensureLength(int ticks) {
+            while (length <= ticks) {
+                final TurnSnapshot next = last.next();
+                if (next == null) {
+                    return false;
+                }
+                if (length == alphas.length) {
+                    final double[] newAlphas = new double[alphas.length * 2];
+                    System.arraycopy(alphas, 0, newAlphas, 0, length);
+                    alphas = newAlphas;
+                    final double[] newLengths = new double[lengths.length * 2];
+                    System.arraycopy(lengths, 0, newLengths, 0, length);
+                    lengths = newLengths;
+                }
+                final DeltaVector dv = LXXUtils.getEnemyDeltaVector(start, next);
+                alphas[length] = dv.getAlphaRadians();
+                lengths[length] = dv.getLength();
+                length++;
+                last = next;
+            }
+            return true;
+        }
+
+        public double getAlphaRadians(int ticks) {
+            return alphas[ticks];
+        }
+
+        public double getLength(int ticks) {
+            return lengths[ticks];
+        }
+    }
+
+}
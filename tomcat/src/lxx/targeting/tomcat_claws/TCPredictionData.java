@@ -14,6 +14,7 @@ import lxx.utils.LXXUtils;
 import java.awt.*;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static java.lang.Math.min;
 
@@ -23,19 +24,35 @@ import static java.lang.Math.min;
  */
 public class TCPredictionData extends AbstractGFAimingPredictionData {
 
-    private final Map<Double, Double> matches;
+    private final double[] dangers;
+    private final double firstBearingOffset;
+    private final double step;
     private final List<APoint> predictedPoses;
     private final APoint robotPos;
     private final APoint initialPos;
 
-    public TCPredictionData(Map<Double, Double> matches, List<APoint> predictedPoses, APoint robotPos, APoint initialPos) {
-        this.matches = matches;
+    private Map<Double, Double> matches;
+
+    /**
+     * @param dangers dangers of bearing offsets, i-th danger is danger of <code>firstBearingOffset + i * step</code>
+     */
+    public TCPredictionData(double[] dangers, double firstBearingOffset, double step,
+                            List<APoint> predictedPoses, APoint robotPos, APoint initialPos) {
+        this.dangers = dangers;
+        this.firstBearingOffset = firstBearingOffset;
+        this.step = step;
         this.predictedPoses = predictedPoses;
         this.robotPos = robotPos;
         this.initialPos = initialPos;
     }
 
     public Map<Double, Double> getMatches() {
+        if (matches == null && dangers != null) {
+            matches = new TreeMap<Double, Double>();
+            for (int i = 0; i < dangers.length; i++) {
+                matches.put(firstBearingOffset + i * step, dangers[i]);
+            }
+        }
         return matches;
     }
 
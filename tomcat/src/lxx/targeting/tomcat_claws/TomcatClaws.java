@@ -25,22 +25,49 @@ public class TomcatClaws implements Gun {
     private static final double BEARING_OFFSET_STEP = LXXConstants.RADIANS_0_5;
     private static final double MAX_BEARING_OFFSET = LXXConstants.RADIANS_45;
 
+    private static final int BINS_COUNT = (int) round(MAX_BEARING_OFFSET * 2 / BEARING_OFFSET_STEP) + 1;
+
     private static final int AIMING_TIME = 2;
     private static final int NO_BEARING_OFFSET = 0;
 
+    // replays of enemy's movement are reused between rounds
+    private static final Map<String, DeltaPathsCache> deltaPathsCaches = new HashMap<String, DeltaPathsCache>();
+
     private final Tomcat robot;
     private final TurnSnapshotsLog log;
     private final DataView dataView;
+    private final ReplayMode replayMode;
+    private final int smoothingBins;
+
+    private final double[] binsDiff = new double[BINS_COUNT + 1];
+    private final double[] binsSmoothed = new double[BINS_COUNT];
 
     private APoint robotPosAtFireTime;
     private List<APoint> futurePoses;
-    private Map<Double, Double> bearingOffsetDangers;
+    private double[] bearingOffsetDangers;
     private double bestBearingOffset;
 
+    // result of analytic replay
+    private double futureX;
+    private double futureY;
+
     public TomcatClaws(Tomcat robot, TurnSnapshotsLog log, DataView dataView) {
+        this(robot, log, dataView, ReplayMode.POINTS, 0);
+    }
+
+    public TomcatClaws(Tomcat robot, TurnSnapshotsLog log, DataView dataView, ReplayMode replayMode) {
+        this(robot, log, dataView, replayMode, 0);
+    }
+
+    /**
+     * @param smoothingBins half width of triangular kernel, which smooths bearing offsets dangers, 0 to disable smoothing
+     */
+    public TomcatClaws(Tomcat robot, TurnSnapshotsLog log, DataView dataView, ReplayMode replayMode, int smoothingBins) {
         this.robot = robot;
         this.log = log;
         this.dataView = dataView;
+        this.replayMode = replayMode;
+        this.smoothingBins = smoothingBins;
     }
 
     public GunDecision getGunDecision(Target t, double firePower) {
@@ -50,7 +77,7 @@ public class TomcatClaws implements Gun {
 
         if (robot.getTurnsToGunCool() > AIMING_TIME || t.getEnergy() == 0) {
             futurePoses = null;
-            return new GunDecision(getGunTurnAngle(angleToTarget), new TCPredictionData(bearingOffsetDangers, futurePoses, robotPosAtFireTime, initialPos));
+            return new GunDecision(getGunTurnAngle(angleToTarget), new TCPredictionData(bearingOffsetDangers, -MAX_BEARING_OFFSET, BEARING_OFFSET_STEP, futurePoses, robotPosAtFireTime, initialPos));
         }
 
         if (futurePoses == null) {
@@ -58,7 +85,7 @@ public class TomcatClaws implements Gun {
         }
 
         return new GunDecision(getGunTurnAngle(Utils.normalAbsoluteAngle(robotPosAtFireTime.angleTo(t) + bestBearingOffset)),
-                new TCPredictionData(bearingOffsetDangers, futurePoses, robotPosAtFireTime, initialPos));
+                new TCPredictionData(bearingOffsetDangers, -MAX_BEARING_OFFSET, BEARING_OFFSET_STEP, futurePoses, robotPosAtFireTime, initialPos));
     }
 
 
@@ -67,56 +94,185 @@ public class TomcatClaws implements Gun {
     }
 
     private double getBearingOffset(Target t, Collection<TurnSnapshot> starts, double bulletSpeed) {
-        futurePoses = getFuturePoses(t, starts, bulletSpeed);
-        final List<IntervalDouble> botIntervalsRadians = new ArrayList<IntervalDouble>();
-        for (APoint pnt : futurePoses) {
-            final double bearingOffset = LXXUtils.bearingOffset(robotPosAtFireTime, t, pnt);
-            final double botWidth = LXXUtils.getRobotWidthInRadians(robotPosAtFireTime, pnt) * 0.75;
-            final double bo1 = bearingOffset - botWidth / 2;
-            final double bo2 = bearingOffset + botWidth / 2;
-            botIntervalsRadians.add(new IntervalDouble(min(bo1, bo2), max(bo1, bo2)));
+        replay(t.getPosition(), t.getAbsoluteHeadingRadians(), starts, bulletSpeed, getDeltaPathsCache(t),
+                robot.getState().getBattleField(), robot.isPaintEnabled());
+
+        bearingOffsetDangers = new double[BINS_COUNT];
+        double danger = 0;
+        for (int i = 0; i < BINS_COUNT; i++) {
+            danger += binsDiff[i];
+            bearingOffsetDangers[i] = danger;
+        }
+        if (smoothingBins > 0) {
+            smooth(bearingOffsetDangers);
         }
 
-        bearingOffsetDangers = new TreeMap<Double, Double>();
         double maxDanger = 0;
-        for (double wavePointBearingOffset = -MAX_BEARING_OFFSET; wavePointBearingOffset <= MAX_BEARING_OFFSET + LXXConstants.RADIANS_0_1; wavePointBearingOffset += BEARING_OFFSET_STEP) {
-            double bearingOffsetDanger = 0;
-            for (IntervalDouble ival : botIntervalsRadians) {
-                if (ival.contains(wavePointBearingOffset)) {
-                    //final double dist = abs(wavePointBearingOffset - ival.center());
-                    bearingOffsetDanger++;
-                }
+        int candidatesCount = 0;
+        for (int i = 0; i < BINS_COUNT; i++) {
+            if (bearingOffsetDangers[i] > maxDanger) {
+                maxDanger = bearingOffsetDangers[i];
+                candidatesCount = 1;
+            } else if (bearingOffsetDangers[i] == maxDanger) {
+                candidatesCount++;
             }
-
-            maxDanger = max(maxDanger, bearingOffsetDanger);
-
-            bearingOffsetDangers.put(wavePointBearingOffset, bearingOffsetDanger);
         }
 
         if (maxDanger == 0) {
             return NO_BEARING_OFFSET;
         }
 
-        final List<Double> candidates = new ArrayList<Double>();
-        for (double wavePointBearingOffset = -MAX_BEARING_OFFSET; wavePointBearingOffset <= MAX_BEARING_OFFSET + LXXConstants.RADIANS_0_1; wavePointBearingOffset += BEARING_OFFSET_STEP) {
-            if (bearingOffsetDangers.get(wavePointBearingOffset) == maxDanger) {
-                candidates.add(wavePointBearingOffset);
+        int candidateIdx = (int) (candidatesCount * random());
+        for (int i = 0; i < BINS_COUNT; i++) {
+            if (bearingOffsetDangers[i] == maxDanger && candidateIdx-- == 0) {
+                return -MAX_BEARING_OFFSET + i * BEARING_OFFSET_STEP;
             }
         }
 
-        return candidates.get((int) (candidates.size() * random()));
+        throw new RuntimeException("Something wrong");
     }
 
-    private List<APoint> getFuturePoses(Target t, Collection<TurnSnapshot> starts, double bulletSpeed) {
-        final List<APoint> futurePoses = new ArrayList<APoint>();
-        final Map<TurnSnapshot, APoint> futurePosesCache = new HashMap<TurnSnapshot, APoint>();
+    /**
+     * Replays enemy's paths from given starts and fills binsDiff with bot intervals at hit positions
+     *
+     * @param collectFuturePoses if analytic replay should collect hit positions, points replay collects them always
+     */
+    void replay(LXXPoint targetPos, double targetHeading, Collection<TurnSnapshot> starts, double bulletSpeed,
+                DeltaPathsCache deltaPathsCache, BattleField battleField, boolean collectFuturePoses) {
+        Arrays.fill(binsDiff, 0);
+        if (replayMode == ReplayMode.ANALYTIC) {
+            replayAnalytic(targetPos, targetHeading, starts, bulletSpeed, deltaPathsCache, battleField, collectFuturePoses);
+        } else {
+            futurePoses = getFuturePoses(targetPos, targetHeading, starts, bulletSpeed, deltaPathsCache, battleField);
+            for (APoint pnt : futurePoses) {
+                addBotInterval(LXXUtils.bearingOffset(robotPosAtFireTime, targetPos, pnt),
+                        LXXUtils.getRobotWidthInRadians(robotPosAtFireTime, pnt) * 0.75 / 2);
+            }
+        }
+    }
+
+    void setRobotPosAtFireTime(APoint robotPosAtFireTime) {
+        this.robotPosAtFireTime = robotPosAtFireTime;
+    }
+
+    List<APoint> getLastFuturePoses() {
+        return futurePoses;
+    }
+
+    double[] getBinsDiff() {
+        return binsDiff;
+    }
+
+    // difference array: each bot interval increments all bins in it in O(1)
+    private void addBotInterval(double bearingOffset, double botHalfWidth) {
+        final int fromBin = max((int) ceil((bearingOffset - botHalfWidth + MAX_BEARING_OFFSET) / BEARING_OFFSET_STEP), 0);
+        final int toBin = min((int) floor((bearingOffset + botHalfWidth + MAX_BEARING_OFFSET) / BEARING_OFFSET_STEP), BINS_COUNT - 1);
+        if (fromBin <= toBin) {
+            binsDiff[fromBin]++;
+            binsDiff[toBin + 1]--;
+        }
+    }
+
+    // triangular kernel smoothing
+    private void smooth(double[] dangers) {
+        System.arraycopy(dangers, 0, binsSmoothed, 0, BINS_COUNT);
+        for (int i = 0; i < BINS_COUNT; i++) {
+            double danger = 0;
+            final int from = max(i - smoothingBins, 0);
+            final int to = min(i + smoothingBins, BINS_COUNT - 1);
+            for (int j = from; j <= to; j++) {
+                danger += binsSmoothed[j] * (smoothingBins + 1 - abs(i - j));
+            }
+            dangers[i] = danger / (smoothingBins + 1);
+        }
+    }
+
+    private DeltaPathsCache getDeltaPathsCache(Target t) {
+        DeltaPathsCache deltaPathsCache = deltaPathsCaches.get(t.getName());
+        if (deltaPathsCache == null) {
+            deltaPathsCache = new DeltaPathsCache();
+            deltaPathsCaches.put(t.getName(), deltaPathsCache);
+        }
+        return deltaPathsCache;
+    }
+
+    private void replayAnalytic(LXXPoint targetPos, double targetHeading, Collection<TurnSnapshot> starts, double bulletSpeed,
+                                DeltaPathsCache deltaPathsCache, BattleField battleField, boolean collectFuturePoses) {
+        final double robotX = robotPosAtFireTime.getX();
+        final double robotY = robotPosAtFireTime.getY();
+        final double angleToTarget = robotPosAtFireTime.angleTo(targetPos);
+        // future poses are required only for painting
+        futurePoses = collectFuturePoses ? new ArrayList<APoint>() : Collections.<APoint>emptyList();
         for (TurnSnapshot start : starts) {
-            APoint futurePos = futurePosesCache.get(start);
-            if (futurePos == null) {
-                futurePos = getFuturePos(t, start, bulletSpeed);
-                futurePosesCache.put(start, futurePos);
+            if (!replayAnalytic(targetPos, targetHeading, deltaPathsCache.getPath(start), bulletSpeed, battleField)) {
+                continue;
+            }
+            final double angle = LXXUtils.angle(robotX, robotY, futureX, futureY);
+            final double distance = LXXPoint.distance(robotX, robotY, futureX, futureY);
+            addBotInterval(Utils.normalRelativeAngle(angle - angleToTarget),
+                    LXXUtils.getRobotWidthInRadians(angle, distance) * 0.75 / 2);
+            if (collectFuturePoses) {
+                futurePoses.add(new LXXPoint(futureX, futureY));
+            }
+        }
+    }
+
+    /**
+     * Same replay as in getFuturePos, but on primitives: bullet hits enemy, when bullet's position on ray
+     * from fire position to enemy's center is within enemy's bounding box. Box is half-open as Rectangle2D.contains,
+     * so both replays hit at the same tick. Hit position is stored in futureX and futureY
+     *
+     * @return true if bullet hits enemy within battle field and known path
+     */
+    private boolean replayAnalytic(LXXPoint targetPos, double absoluteHeadingRadians, DeltaPathsCache.DeltaPath path,
+                                   double bulletSpeed, BattleField battleField) {
+        final double robotX = robotPosAtFireTime.getX();
+        final double robotY = robotPosAtFireTime.getY();
+        final double targetX = targetPos.getX();
+        final double targetY = targetPos.getY();
+        final double speedSum = bulletSpeed + Rules.MAX_VELOCITY;
+
+        double x = targetX;
+        double y = targetY;
+        int ticks = 1 + AIMING_TIME;
+        double bulletTravelledDistance = bulletSpeed;
+        while (true) {
+            final double dx = x - robotX;
+            final double dy = y - robotY;
+            final double distance = sqrt(dx * dx + dy * dy);
+            // bullet flies north, when enemy is at fire position, as angle to same point is 0
+            final double bulletX = distance > 0 ? robotX + dx * bulletTravelledDistance / distance : robotX;
+            final double bulletY = distance > 0 ? robotY + dy * bulletTravelledDistance / distance : robotY + bulletTravelledDistance;
+            if (bulletX >= x - LXXConstants.ROBOT_SIDE_HALF_SIZE && bulletX < x + LXXConstants.ROBOT_SIDE_HALF_SIZE &&
+                    bulletY >= y - LXXConstants.ROBOT_SIDE_HALF_SIZE && bulletY < y + LXXConstants.ROBOT_SIDE_HALF_SIZE) {
+                futureX = x;
+                futureY = y;
+                return true;
+            } else if (bulletTravelledDistance > distance + LXXConstants.ROBOT_SIDE_HALF_SIZE) {
+                throw new RuntimeException("Future pos calculation error");
+            }
+
+            if (!path.ensureLength(ticks)) {
+                return false;
             }
+            final double alpha = absoluteHeadingRadians + path.getAlphaRadians(ticks);
+            final double length = path.getLength(ticks);
+            x = targetX + QuickMath.sin(alpha) * length;
+            y = targetY + QuickMath.cos(alpha) * length;
+            if (!battleField.contains(x, y)) {
+                return false;
+            }
+            bulletTravelledDistance = (ticks - AIMING_TIME) * bulletSpeed;
+            final double toDistance = LXXPoint.distance(robotX, robotY, x, y);
+            ticks += max((int) ((toDistance - bulletTravelledDistance) / speedSum) - 1, 1);
+        }
+    }
 
+    private List<APoint> getFuturePoses(LXXPoint targetPos, double targetHeading, Collection<TurnSnapshot> starts, double bulletSpeed,
+                                        DeltaPathsCache deltaPathsCache, BattleField battleField) {
+        final List<APoint> futurePoses = new ArrayList<APoint>();
+        for (TurnSnapshot start : starts) {
+            final APoint futurePos = getFuturePos(targetPos, targetHeading, deltaPathsCache.getPath(start), bulletSpeed, battleField);
             if (futurePos != null) {
                 futurePoses.add(futurePos);
             }
@@ -124,32 +280,26 @@ public class TomcatClaws implements Gun {
         return futurePoses;
     }
 
-    private APoint getFuturePos(Target t, TurnSnapshot start, double bulletSpeed) {
-        final LXXPoint targetPos = t.getPosition();
+    private APoint getFuturePos(LXXPoint targetPos, double absoluteHeadingRadians, DeltaPathsCache.DeltaPath path,
+                                double bulletSpeed, BattleField battleField) {
         APoint futurePos = new LXXPoint(targetPos);
 
-        TurnSnapshot currentSnapshot = start.next;
-        currentSnapshot = skip(currentSnapshot, AIMING_TIME);
-        final BattleField battleField = robot.getState().getBattleField();
-        final double absoluteHeadingRadians = t.getAbsoluteHeadingRadians();
+        int ticks = 1 + AIMING_TIME;
         BulletState bs;
         final double speedSum = bulletSpeed + Rules.MAX_VELOCITY;
-        long timeDelta;
         double bulletTravelledDistance = bulletSpeed;
         while ((bs = isBulletHitEnemy(futurePos, bulletTravelledDistance)) == BulletState.COMING) {
-            if (currentSnapshot == null) {
+            if (!path.ensureLength(ticks)) {
                 return null;
             }
-            final DeltaVector dv = LXXUtils.getEnemyDeltaVector(start, currentSnapshot);
-            final double alpha = absoluteHeadingRadians + dv.getAlphaRadians();
-            futurePos = targetPos.project(alpha, dv.getLength());
+            final double alpha = absoluteHeadingRadians + path.getAlphaRadians(ticks);
+            futurePos = targetPos.project(alpha, path.getLength(ticks));
             if (!battleField.contains(futurePos)) {
                 return null;
             }
-            timeDelta = currentSnapshot.getTime() - start.getTime() - AIMING_TIME;
-            bulletTravelledDistance = timeDelta * bulletSpeed;
+            bulletTravelledDistance = (ticks - AIMING_TIME) * bulletSpeed;
             int minBulletFlightTime = max((int) ((robotPosAtFireTime.aDistance(futurePos) - bulletTravelledDistance) / speedSum) - 1, 1);
-            currentSnapshot = skip(currentSnapshot, minBulletFlightTime);
+            ticks += minBulletFlightTime;
         }
 
         if (bs == BulletState.PASSED) {
@@ -159,18 +309,6 @@ public class TomcatClaws implements Gun {
         return futurePos;
     }
 
-    private TurnSnapshot skip(TurnSnapshot start, int count) {
-
-        for (int i = 0; i < count; i++) {
-            if (start == null) {
-                return null;
-            }
-            start = start.next;
-        }
-
-        return start;
-    }
-
     private BulletState isBulletHitEnemy(APoint predictedPos, double bulletTravelledDistance) {
         final double angleToPredictedPos = robotPosAtFireTime.angleTo(predictedPos);
         final LXXPoint bulletPos = (LXXPoint) robotPosAtFireTime.project(angleToPredictedPos, bulletTravelledDistance);
@@ -183,6 +321,13 @@ public class TomcatClaws implements Gun {
         return BulletState.COMING;
     }
 
+    public enum ReplayMode {
+        // replay by projected points and bounding rectangles
+        POINTS,
+        // allocation free replay with analytic bullet-box intersection
+        ANALYTIC
+    }
+
     private enum BulletState {
         COMING,
         HITTING,
@@ -4,21 +4,31 @@
 
 package lxx.targeting.tomcat_claws.data_analise;
 
-import lxx.RobotListener;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.events.TickEvent;
+import lxx.office.MetricsRegistry;
 import lxx.targeting.Target;
 import lxx.targeting.TargetManager;
 import lxx.ts_log.TurnSnapshot;
 import lxx.ts_log.TurnSnapshotsLog;
 import lxx.ts_log.attributes.Attribute;
 import lxx.ts_log.attributes.AttributesManager;
-import robocode.Event;
+import robocode.DeathEvent;
+import robocode.WinEvent;
 
 /**
  * User: jdev
  * Date: 17.06.11
  */
-public class DataViewManager implements RobotListener {
+public class DataViewManager {
+
+    // total heap budget of single source data views, splitted equally between views
+    private static final long HEAP_BUDGET = 16 * 1024 * 1024;
+    private static final int SINGLE_SOURCE_VIEWS_COUNT = 4;
+    private static final long VIEW_HEAP_BUDGET = HEAP_BUDGET / SINGLE_SOURCE_VIEWS_COUNT;
+
+    private static final int MAX_VIEW_SIZE = 30000;
 
     private static final Attribute[] mainDVAttrs = {
             AttributesManager.enemyAcceleration,
@@ -26,7 +36,8 @@ public class DataViewManager implements RobotListener {
             AttributesManager.enemyDistanceToForwardWall,
             AttributesManager.enemyBearingToForwardWall,
     };
-    private static final DataView mainDataView = new SingleSourceDataView(mainDVAttrs, new double[]{0.25, 0.75});
+    private static final SingleSourceDataView mainDataView = new SingleSourceDataView("Main", mainDVAttrs, new double[]{0.25, 0.75},
+            MAX_VIEW_SIZE, Integer.MAX_VALUE, VIEW_HEAP_BUDGET);
 
     private static final Attribute[] asDVAttrs = {
             AttributesManager.enemyAcceleration,
@@ -37,7 +48,9 @@ public class DataViewManager implements RobotListener {
             AttributesManager.enemyBearingOffsetOnFirstBullet,
             AttributesManager.enemyBearingOffsetOnSecondBullet,
     };
-    private static final DataView asDataView = new SingleSourceDataView(asDVAttrs, new double[]{0.75, 0.25});
+    // anti surfer view should keep only recent enemy behaviour
+    private static final SingleSourceDataView asDataView = new SingleSourceDataView("Anti surfer", asDVAttrs, new double[]{0.75, 0.25},
+            MAX_VIEW_SIZE, 10, VIEW_HEAP_BUDGET);
 
     private static final Attribute[] distanceDVAttrs = {
             AttributesManager.enemyAcceleration,
@@ -48,7 +61,8 @@ public class DataViewManager implements RobotListener {
             AttributesManager.distBetween,
             AttributesManager.enemyTurnRate
     };
-    private static final DataView distanceDataView = new SingleSourceDataView(distanceDVAttrs, new double[]{0.5, 0.5});
+    private static final SingleSourceDataView distanceDataView = new SingleSourceDataView("Distance", distanceDVAttrs, new double[]{0.5, 0.5},
+            MAX_VIEW_SIZE, Integer.MAX_VALUE, VIEW_HEAP_BUDGET);
 
     private static final Attribute[] timeSinceDirChangeDVAttrs = {
             AttributesManager.enemyAcceleration,
@@ -59,11 +73,13 @@ public class DataViewManager implements RobotListener {
             AttributesManager.enemyTimeSinceLastDirChange,
             AttributesManager.enemyTurnRate
     };
-    private static final DataView timeSinceDirChangeDataView = new SingleSourceDataView(timeSinceDirChangeDVAttrs, new double[]{0.5, 0.5});
+    private static final SingleSourceDataView timeSinceDirChangeDataView = new SingleSourceDataView("Time since dir change", timeSinceDirChangeDVAttrs, new double[]{0.5, 0.5},
+            MAX_VIEW_SIZE, Integer.MAX_VALUE, VIEW_HEAP_BUDGET);
 
     private static final CompositeDataView duelCompositeDataView = new CompositeDataView(mainDataView, asDataView, distanceDataView, timeSinceDirChangeDataView);
 
     private DataView[] views = {mainDataView, asDataView, distanceDataView, duelCompositeDataView, timeSinceDirChangeDataView};
+    private SingleSourceDataView[] singleSourceViews = {mainDataView, asDataView, distanceDataView, timeSinceDirChangeDataView};
 
     private final TargetManager targetManager;
     private final TurnSnapshotsLog turnSnapshotLog;
@@ -71,17 +87,45 @@ public class DataViewManager implements RobotListener {
     public DataViewManager(TargetManager targetManager, TurnSnapshotsLog turnSnapshotLog) {
         this.targetManager = targetManager;
         this.turnSnapshotLog = turnSnapshotLog;
+
+        // data views are created once per battle, so rebalance them on new round
+        for (SingleSourceDataView view : singleSourceViews) {
+            view.rebuild();
+        }
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof TickEvent) {
-            for (Target t : targetManager.getAliveTargets()) {
-                final TurnSnapshot lastSnapshot = turnSnapshotLog.getLastSnapshot(t);
-                for (DataView view : views) {
-                    view.addEntry(lastSnapshot);
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribeDeferrable(TickEvent.class, EventBus.PRIORITY_DATA_VIEWS, new EventHandler<TickEvent>() {
+            public void handle(TickEvent event) {
+                for (Target t : targetManager.getAliveTargets()) {
+                    final TurnSnapshot lastSnapshot = turnSnapshotLog.getLastSnapshot(t);
+                    for (DataView view : views) {
+                        view.addEntry(lastSnapshot);
+                    }
                 }
             }
+        });
+        eventBus.subscribe(DeathEvent.class, EventBus.PRIORITY_DATA_VIEWS, new EventHandler<DeathEvent>() {
+            public void handle(DeathEvent event) {
+                updateMetrics();
+            }
+        });
+        eventBus.subscribe(WinEvent.class, EventBus.PRIORITY_DATA_VIEWS, new EventHandler<WinEvent>() {
+            public void handle(WinEvent event) {
+                updateMetrics();
+            }
+        });
+    }
+
+    private void updateMetrics() {
+        long totalFootprint = 0;
+        for (SingleSourceDataView view : singleSourceViews) {
+            MetricsRegistry.gauge(view.getName() + " data view entries").set(view.size());
+            MetricsRegistry.gauge(view.getName() + " data view evicted").set(view.getEvictedCount());
+            MetricsRegistry.gauge(view.getName() + " data view, kb").set(view.getFootprint() / 1024);
+            totalFootprint += view.getFootprint();
         }
+        MetricsRegistry.gauge("Data views footprint, kb").set(totalFootprint / 1024);
     }
 
     public DataView getDuelDataView() {
@@ -4,39 +4,55 @@
 
 package lxx.targeting.tomcat_claws.data_analise;
 
-import ags.utils.KdTree;
 import lxx.ts_log.TurnSnapshot;
 import lxx.ts_log.attributes.Attribute;
 import lxx.utils.KdTreeAdapter;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
+import static java.lang.Math.min;
+
 /**
  * User: jdev
  * Date: 17.06.11
  */
 public class SingleSourceDataView implements DataView {
 
+    private static final int DATA_SET_SIZE = 11;
+
     private final KdTreeAdapter<KdTreeAdapter.KdTreeEntry> dataSource;
+    private final KdTreeAdapter.NeighboursBuffer<KdTreeAdapter.KdTreeEntry> neighbours =
+            new KdTreeAdapter.NeighboursBuffer<KdTreeAdapter.KdTreeEntry>();
 
+    private final String name;
     private final double[] weights;
 
-    public SingleSourceDataView(Attribute[] attributes, double[] weights) {
+    public SingleSourceDataView(String name, Attribute[] attributes, double[] weights) {
+        this(name, attributes, weights, KdTreeAdapter.DEFAULT_MAX_SIZE, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSize      max count of entries in view
+     * @param maxAgeRounds entries older than given count of rounds are evicted
+     * @param heapBudget   max estimated heap usage in bytes, which additionally limits size of view
+     */
+    public SingleSourceDataView(String name, Attribute[] attributes, double[] weights,
+                                int maxSize, int maxAgeRounds, long heapBudget) {
+        this.name = name;
         this.weights = weights;
-        dataSource = new KdTreeAdapter<KdTreeAdapter.KdTreeEntry>(attributes);
+        final long budgetSize = heapBudget / KdTreeAdapter.getEntryFootprint(attributes.length);
+        dataSource = new KdTreeAdapter<KdTreeAdapter.KdTreeEntry>(attributes, (int) min(maxSize, budgetSize), maxAgeRounds);
     }
 
     public Collection<TurnSnapshot> getDataSet(TurnSnapshot ts) {
-        final List<KdTree.Entry<KdTreeAdapter.KdTreeEntry>> similarEntries = dataSource.getNearestNeighboursS(ts, weights);
-        final List<TurnSnapshot> dataSet = new LinkedList<TurnSnapshot>();
-
-        for (KdTree.Entry<KdTreeAdapter.KdTreeEntry> e : similarEntries) {
-            dataSet.add(e.value.turnSnapshot);
-            if (dataSet.size() > 10) {
-                break;
-            }
+        dataSource.getNearestNeighboursS(ts, weights, DATA_SET_SIZE, neighbours);
+        final int size = min(neighbours.size(), DATA_SET_SIZE);
+        final List<TurnSnapshot> dataSet = new ArrayList<TurnSnapshot>(size);
+
+        for (int i = 0; i < size; i++) {
+            dataSet.add(neighbours.get(i).turnSnapshot);
         }
 
         return dataSet;
@@ -46,4 +62,24 @@ public class SingleSourceDataView implements DataView {
         dataSource.addEntry(new KdTreeAdapter.KdTreeEntry(ts));
     }
 
+    public void rebuild() {
+        dataSource.rebuild();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return dataSource.size();
+    }
+
+    public int getEvictedCount() {
+        return dataSource.getEvictedCount();
+    }
+
+    public long getFootprint() {
+        return dataSource.getFootprint();
+    }
+
 }
@@ -6,7 +6,7 @@ package lxx.targeting.tomcat_eyes;
 
 import lxx.LXXRobot;
 import lxx.utils.LXXUtils;
-import lxx.utils.Median;
+import lxx.utils.MedianSketch;
 
 import static java.lang.Math.round;
 import static java.lang.Math.toDegrees;
@@ -18,7 +18,7 @@ import static java.lang.Math.toDegrees;
 public class MovementMetaProfile {
 
     private static final int DISTANCE_SEGMENTS = 25;
-    private final Median[] distancesMedianAngles = new Median[1700 / DISTANCE_SEGMENTS];
+    private final MedianSketch[] distancesMedianAngles = new MedianSketch[1700 / DISTANCE_SEGMENTS];
 
     private int enemyPreferredDistance = -1;
     private boolean canRam = false;
@@ -29,7 +29,8 @@ public class MovementMetaProfile {
         if (owner.getState().getSpeed() > 0) {
             int idx = (int) round(distanceBetween / DISTANCE_SEGMENTS);
             if (distancesMedianAngles[idx] == null) {
-                distancesMedianAngles[idx] = new Median(2000);
+                // angles are integer degrees, which are kept exactly with bin per degree
+                distancesMedianAngles[idx] = new MedianSketch(2000, 0, 180, 181);
             }
             final double angle = toDegrees(LXXUtils.anglesDiff(viewPoint.angleTo(owner), owner.getState().getAbsoluteHeadingRadians()));
             distancesMedianAngles[idx].addValue((int) angle);
@@ -41,7 +42,7 @@ public class MovementMetaProfile {
 
     private void checkRammer() {
         boolean isRamming = true;
-        for (Median distancesMedianAngle : distancesMedianAngles) {
+        for (MedianSketch distancesMedianAngle : distancesMedianAngles) {
             if (distancesMedianAngle == null) {
                 continue;
             }
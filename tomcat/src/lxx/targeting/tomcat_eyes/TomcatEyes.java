@@ -8,6 +8,7 @@ import lxx.LXXRobot;
 import lxx.Tomcat;
 import lxx.bullets.BulletManagerListener;
 import lxx.bullets.LXXBullet;
+import lxx.office.MetricsRegistry;
 import lxx.office.PropertiesManager;
 import lxx.targeting.GunType;
 import lxx.targeting.Target;
@@ -28,6 +29,10 @@ public class TomcatEyes implements TargetManagerListener, BulletManagerListener
     private static final Map<LXXRobot, MovementMetaProfile> movementMetaProfiles = new HashMap<LXXRobot, MovementMetaProfile>();
     private static final Map<LXXRobot, TargetingProfile> targetingProfiles = new HashMap<LXXRobot, TargetingProfile>();
 
+    private static final MetricsRegistry.Gauge preferredDistanceGauge = MetricsRegistry.gauge("Enemy's preferred distance");
+    private static final MetricsRegistry.Gauge canRamGauge = MetricsRegistry.gauge("Can enemy ram");
+    private static final MetricsRegistry.Counter rammingTicksCount = MetricsRegistry.counter("Enemy ramming ticks");
+
     private final Tomcat robot;
 
     public TomcatEyes(Tomcat robot) {
@@ -37,9 +42,11 @@ public class TomcatEyes implements TargetManagerListener, BulletManagerListener
     public void targetUpdated(Target target) {
         final MovementMetaProfile movementMetaProfile = getMovementMetaProfile(target);
         movementMetaProfile.update(target, robot);
-        PropertiesManager.setDebugProperty("Enemy's preferred distance", String.valueOf(movementMetaProfile.getPreferredDistance()));
-        PropertiesManager.setDebugProperty("Can enemy ram", String.valueOf(movementMetaProfile.canRam()));
-        PropertiesManager.setDebugProperty("Is enemy ramming", String.valueOf(isRammingNow(target)));
+        preferredDistanceGauge.set(movementMetaProfile.getPreferredDistance());
+        canRamGauge.set(movementMetaProfile.canRam() ? 1 : 0);
+        if (isRammingNow(target)) {
+            rammingTicksCount.inc();
+        }
     }
 
     private MovementMetaProfile getMovementMetaProfile(LXXRobot t) {
@@ -8,7 +8,6 @@ import lxx.ts_log.attributes.Attribute;
 import lxx.ts_log.attributes.AttributesManager;
 
 import java.io.Serializable;
-import java.util.Arrays;
 
 import static java.lang.Math.toRadians;
 import static java.lang.StrictMath.round;
@@ -20,16 +19,20 @@ import static java.lang.StrictMath.round;
 public class TurnSnapshot implements Serializable {
 
     private static final int FIFTEEN_BITS = 0x7FFF;
-    private final double[] attributeValues;
+
+    private final transient TurnSnapshotsStore store;
+    private final double[] data;
+    private final int offset;
     private final long time;
     private final int round;
 
     // access optimisation
-    public TurnSnapshot next;
     public final int roundTime;
 
-    public TurnSnapshot(double[] attributeValues, long time, int round) {
-        this.attributeValues = attributeValues;
+    TurnSnapshot(TurnSnapshotsStore store, double[] data, int offset, long time, int round) {
+        this.store = store;
+        this.data = data;
+        this.offset = offset;
         this.time = time;
         this.round = round;
         if (round > FIFTEEN_BITS || time > FIFTEEN_BITS) {
@@ -38,12 +41,34 @@ public class TurnSnapshot implements Serializable {
         this.roundTime = (int) (((round & FIFTEEN_BITS) << 15) | (time & FIFTEEN_BITS));
     }
 
+    private TurnSnapshot(double[] data, int roundTime) {
+        this.store = null;
+        this.data = data;
+        this.offset = 0;
+        this.time = -1;
+        this.round = -1;
+        this.roundTime = roundTime;
+    }
+
+    /**
+     * Creates snapshot, which isn't bound to store, for data restored from previous battles.
+     * Round time of such snapshots must be negative, so they are older than snapshots of current battle
+     *
+     * @param data attribute values by attribute id
+     */
+    public static TurnSnapshot createDetached(double[] data, int roundTime) {
+        if (roundTime >= 0) {
+            throw new IllegalArgumentException("Round time of detached snapshot must be negative: " + roundTime);
+        }
+        return new TurnSnapshot(data, roundTime);
+    }
+
     public int getRoundedAttrValue(Attribute a) {
-        return (int) round(attributeValues[a.getId()]);
+        return (int) round(data[offset + a.getId()]);
     }
 
     public double getAttrValue(Attribute a) {
-        return attributeValues[a.getId()];
+        return data[offset + a.getId()];
     }
 
     public long getTime() {
@@ -54,19 +79,25 @@ public class TurnSnapshot implements Serializable {
         return round;
     }
 
-    public double[] toArray() {
-        return attributeValues;
-    }
-
-    public void setNext(TurnSnapshot next) {
-        if (time + 1 != next.time) {
-            throw new RuntimeException("Snapshot skipped");
+    /**
+     * @return snapshot of next tick or null for detached snapshot
+     */
+    public TurnSnapshot next() {
+        if (store == null) {
+            return null;
         }
-        this.next = next;
+        return store.get((int) time + 1);
     }
 
     public String toString() {
-        return Arrays.toString(attributeValues);
+        final StringBuilder res = new StringBuilder("[");
+        for (int i = 0; i < AttributesManager.attributesCount(); i++) {
+            if (i > 0) {
+                res.append(", ");
+            }
+            res.append(data[offset + i]);
+        }
+        return res.append("]").toString();
     }
 
     @Override
@@ -86,14 +117,14 @@ public class TurnSnapshot implements Serializable {
     }
 
     public double getMySpeed() {
-        return attributeValues[AttributesManager.mySpeed.getId()];
+        return data[offset + AttributesManager.mySpeed.getId()];
     }
 
     public double getMyAbsoluteHeadingRadians() {
-        return toRadians(attributeValues[AttributesManager.myAbsoluteHeadingDegrees.getId()]);
+        return toRadians(data[offset + AttributesManager.myAbsoluteHeadingDegrees.getId()]);
     }
 
     public double getEnemyAbsoluteHeading() {
-        return toRadians(attributeValues[AttributesManager.enemyAbsoluteHeading.getId()]);
+        return toRadians(data[offset + AttributesManager.enemyAbsoluteHeading.getId()]);
     }
 }
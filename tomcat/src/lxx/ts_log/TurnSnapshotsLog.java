@@ -8,7 +8,6 @@ import lxx.LXXRobot;
 import lxx.office.Office;
 import lxx.targeting.Target;
 import lxx.targeting.TargetManagerListener;
-import lxx.ts_log.attributes.Attribute;
 import lxx.ts_log.attributes.AttributesManager;
 
 import java.util.ArrayList;
@@ -22,7 +21,11 @@ import java.util.Map;
  */
 public class TurnSnapshotsLog implements TargetManagerListener {
 
-    private final Map<LXXRobot, List<TurnSnapshot>> logs = new HashMap<LXXRobot, List<TurnSnapshot>>();
+    private final Map<LXXRobot, TurnSnapshotsStore> logs = new HashMap<LXXRobot, TurnSnapshotsStore>();
+
+    // reusable buffers to avoid allocation per tick
+    private final double[] currentValues = new double[AttributesManager.attributesCount()];
+    private final double[] interpolatedValues = new double[AttributesManager.attributesCount()];
 
     private final Office office;
     private final AttributesManager factory;
@@ -35,41 +38,42 @@ public class TurnSnapshotsLog implements TargetManagerListener {
     public List<TurnSnapshot> getLastSnapshots(LXXRobot robot, int... indexes) {
         final List<TurnSnapshot> res = new ArrayList<TurnSnapshot>();
 
-        final List<TurnSnapshot> log = this.logs.get(robot);
+        final TurnSnapshotsStore log = getLog(robot);
         if (log == null) {
-            System.out.println("[WARN]: logs for " + robot.getName() + " not found");
             return null;
         }
         for (int index : indexes) {
-            int idx = log.size() - 1 - index;
-            if (idx >= 0 && idx < log.size()) {
-                res.add(log.get(idx));
-            } else {
-                res.add(null);
-            }
+            res.add(log.getLast(index));
         }
 
         return res;
     }
 
     public TurnSnapshot getLastSnapshot(LXXRobot robot, int timeDelta) {
-        return getLastSnapshots(robot, timeDelta).get(0);
+        final TurnSnapshotsStore log = getLog(robot);
+        if (log == null) {
+            return null;
+        }
+        return log.getLast(timeDelta);
+    }
+
+    private TurnSnapshotsStore getLog(LXXRobot robot) {
+        final TurnSnapshotsStore log = this.logs.get(robot);
+        if (log == null) {
+            System.out.println("[WARN]: logs for " + robot.getName() + " not found");
+        }
+        return log;
     }
 
-    private void interpolate(List<TurnSnapshot> log, TurnSnapshot turnSnapshot1, TurnSnapshot turnSnapshot2, String targetName) {
+    private void interpolate(TurnSnapshotsStore log, TurnSnapshot turnSnapshot1, double[] values2) {
         final int steps = (int) (office.getTime() - turnSnapshot1.getTime());
-        final long startRoundTime = turnSnapshot1.getTime();
-        final int round = turnSnapshot1.getRound();
+        final int attributesCount = AttributesManager.attributesCount();
         for (int i = 1; i < steps; i++) {
-            double[] attrValue = new double[AttributesManager.attributesCount()];
-            for (Attribute a : AttributesManager.attributes) {
-                attrValue[a.getId()] = turnSnapshot1.getAttrValue(a) + (turnSnapshot2.getAttrValue(a) - turnSnapshot1.getAttrValue(a)) / steps * i;
+            for (int attrId = 0; attrId < attributesCount; attrId++) {
+                final double value1 = turnSnapshot1.getAttrValue(AttributesManager.attributes[attrId]);
+                interpolatedValues[attrId] = value1 + (values2[attrId] - value1) / steps * i;
             }
-            final TurnSnapshot turnSnapshot = new TurnSnapshot(attrValue, startRoundTime + i, round);
-            if (log.size() > 0 && log.get(log.size() - 1) != null) {
-                log.get(log.size() - 1).setNext(turnSnapshot);
-            }
-            log.add(turnSnapshot);
+            log.append(interpolatedValues);
         }
     }
 
@@ -81,26 +85,22 @@ public class TurnSnapshotsLog implements TargetManagerListener {
         if (target.getUpdateTime() == 0) {
             return;
         }
-        List<TurnSnapshot> log = this.logs.get(target);
+        TurnSnapshotsStore log = this.logs.get(target);
         if (log == null) {
-            log = new ArrayList<TurnSnapshot>();
+            log = new TurnSnapshotsStore(AttributesManager.attributesCount(), office.getRobot().getRoundNum());
             this.logs.put(target, log);
         }
 
         if (log.size() == 0) {
-            for (int i = 0; i < office.getTime(); i++) {
-                log.add(null);
-            }
+            log.skipTo((int) office.getTime());
         }
 
-        final TurnSnapshot turnSnapshot = factory.getBattleSnapshot(target);
-        if (log.get(log.size() - 1) != null && log.get(log.size() - 1).getTime() + 1 < office.getTime()) {
-            interpolate(log, log.get(log.size() - 1), turnSnapshot, target.getName());
+        factory.fillAttributeValues(target, currentValues);
+        final TurnSnapshot lastSnapshot = log.getLast(0);
+        if (lastSnapshot != null && lastSnapshot.getTime() + 1 < office.getTime()) {
+            interpolate(log, lastSnapshot, currentValues);
         }
 
-        if (log.size() > 0 && log.get(log.size() - 1) != null) {
-            log.get(log.size() - 1).setNext(turnSnapshot);
-        }
-        log.add(turnSnapshot);
+        log.append(currentValues);
     }
 }
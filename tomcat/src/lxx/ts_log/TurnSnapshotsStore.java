@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.ts_log;
+
+/**
+ * Columnar storage of one robot's turn snapshots for one round.
+ * Attribute values are stored row by row in fixed size <code>double[]</code> chunks,
+ * row index is equal to round time, so snapshots are just views on chunk rows
+ * and no arrays are allocated per tick.
+ */
+public class TurnSnapshotsStore {
+
+    private static final int CHUNK_ROWS = 256;
+
+    private final int rowSize;
+    private final int round;
+
+    private double[][] chunks = new double[8][];
+    private TurnSnapshot[] snapshots = new TurnSnapshot[CHUNK_ROWS];
+    private int size;
+
+    public TurnSnapshotsStore(int rowSize, int round) {
+        this.rowSize = rowSize;
+        this.round = round;
+    }
+
+    /**
+     * @return count of time slots in store, including empty slots before first snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    public TurnSnapshot get(int time) {
+        if (time < 0 || time >= size) {
+            return null;
+        }
+        return snapshots[time];
+    }
+
+    public TurnSnapshot getLast(int timeDelta) {
+        return get(size - 1 - timeDelta);
+    }
+
+    public void skipTo(int time) {
+        ensureCapacity(time);
+        size = time;
+    }
+
+    public TurnSnapshot append(double[] values) {
+        final int time = size;
+        ensureCapacity(time + 1);
+
+        final int chunkIdx = time / CHUNK_ROWS;
+        if (chunks[chunkIdx] == null) {
+            chunks[chunkIdx] = new double[CHUNK_ROWS * rowSize];
+        }
+        final double[] chunk = chunks[chunkIdx];
+        final int offset = (time % CHUNK_ROWS) * rowSize;
+        System.arraycopy(values, 0, chunk, offset, rowSize);
+
+        final TurnSnapshot snapshot = new TurnSnapshot(this, chunk, offset, time, round);
+        snapshots[time] = snapshot;
+        size++;
+
+        return snapshot;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > snapshots.length) {
+            int newLength = snapshots.length * 2;
+            while (newLength < capacity) {
+                newLength *= 2;
+            }
+            final TurnSnapshot[] newSnapshots = new TurnSnapshot[newLength];
+            System.arraycopy(snapshots, 0, newSnapshots, 0, size);
+            snapshots = newSnapshots;
+        }
+
+        final int chunksCount = (capacity + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        if (chunksCount > chunks.length) {
+            final double[][] newChunks = new double[Math.max(chunksCount, chunks.length * 2)][];
+            System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+            chunks = newChunks;
+        }
+    }
+
+}
@@ -35,6 +35,10 @@ public class Attribute {
         this.id = idSequence++;
     }
 
+    public String getName() {
+        return name;
+    }
+
     public double getMinValue() {
         return minValue;
     }
@@ -5,17 +5,14 @@
 package lxx.ts_log.attributes;
 
 import lxx.Tomcat;
-import lxx.bullets.LXXBullet;
 import lxx.office.Office;
 import lxx.targeting.Target;
-import lxx.ts_log.TurnSnapshot;
 import lxx.ts_log.attributes.attribute_extractors.DistanceBetweenVE;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 import lxx.ts_log.attributes.attribute_extractors.enemy.*;
 import lxx.ts_log.attributes.attribute_extractors.my.*;
 import robocode.Rules;
 
-import java.util.List;
-
 public class AttributesManager {
 
 
@@ -89,6 +86,32 @@ public class AttributesManager {
             myDistLast10Ticks,
     };
 
+    // only attributes, which are read by logs, data views or snapshot accessors, are computed, others are NaN.
+    // set is fixed, so snapshots taken before first log or data view is created contain all its attributes
+    private static final Attribute[] requiredAttributes = {
+            // TurnSnapshot and LXXUtils accessors
+            enemyX, enemyY, enemyAbsoluteHeading,
+            myX, myY, mySpeed, myAbsoluteHeadingDegrees,
+
+            // TomcatClaws data views
+            enemyAcceleration, enemySpeed, enemyTurnRate,
+            enemyDistanceToForwardWall, enemyBearingToForwardWall, enemyBearingToMe,
+            firstBulletFlightTimeToEnemy, enemyBearingOffsetOnFirstBullet, enemyBearingOffsetOnSecondBullet,
+            enemyTimeSinceLastDirChange, distBetween,
+
+            // AdvancedEnemyGunModel logs
+            myLateralSpeed, myAcceleration, myDistToForwardWall, myDistLast10Ticks, enemyOutgoingWavesCollected,
+    };
+
+    private static final boolean[] isRequired = new boolean[attributes.length];
+
+    static {
+        for (Attribute a : requiredAttributes) {
+            isRequired[a.getId()] = true;
+        }
+    }
+
+    private final ExtractionContext context = new ExtractionContext(attributes.length);
     private final Office office;
     private final Tomcat robot;
 
@@ -97,16 +120,40 @@ public class AttributesManager {
         this.robot = robot;
     }
 
-    public TurnSnapshot getBattleSnapshot(Target t) {
-        final double[] attrValues = new double[attributes.length];
-        final List<LXXBullet> myBullets = office.getBulletManager().getBullets();
+    /**
+     * @throws IllegalArgumentException if any of given attributes isn't computed
+     */
+    public static void checkRequired(Attribute[] attrs) {
+        for (Attribute a : attrs) {
+            if (!isRequired[a.getId()]) {
+                throw new IllegalArgumentException("Attribute " + a + " isn't required");
+            }
+        }
+    }
+
+    public static boolean isRequired(Attribute a) {
+        return isRequired[a.getId()];
+    }
+
+    public void fillAttributeValues(Target t, double[] attrValues) {
+        context.reset(t, robot, office.getBulletManager().getBullets(), office);
+        fillAttributeValues(context, attrValues);
+    }
+
+    /**
+     * Fills values of required attributes, values of other attributes are NaN
+     */
+    public static void fillAttributeValues(ExtractionContext context, double[] attrValues) {
         for (final Attribute a : attributes) {
             if (a.getId() >= attributes.length) {
                 throw new RuntimeException("Something wrong!");
             }
-            final double av = a.getExtractor().getAttributeValue(t, robot, myBullets, office);
+            if (!isRequired[a.getId()]) {
+                attrValues[a.getId()] = Double.NaN;
+                continue;
+            }
+            final double av = context.getAttrValue(a);
             if (av < a.getMinValue() || av > a.getMaxValue()) {
-                a.getExtractor().getAttributeValue(t, robot, myBullets, office);
                 System.out.println("[WARN]: " + a + " = " + av);
             }
             if (a.getActualMin() > av) {
@@ -117,8 +164,6 @@ public class AttributesManager {
             }
             attrValues[a.getId()] = av;
         }
-
-        return new TurnSnapshot(attrValues, robot.getTime(), robot.getRoundNum());
     }
 
     public static int attributesCount() {
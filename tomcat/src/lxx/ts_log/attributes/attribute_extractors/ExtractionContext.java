@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.ts_log.attributes.attribute_extractors;
+
+import lxx.LXXRobot;
+import lxx.bullets.LXXBullet;
+import lxx.office.Office;
+import lxx.ts_log.attributes.Attribute;
+import lxx.utils.LXXUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * State of attributes extraction for single snapshot. Geometry, which is shared by many extractors,
+ * and attribute values are computed on first request and cached until next <code>reset</code>,
+ * so extractors declare dependencies just by requesting them from context
+ */
+public class ExtractionContext {
+
+    private static final int NOT_COMPUTED = -2;
+
+    private final double[] attrValues;
+    private final boolean[] isAttrComputed;
+
+    private LXXRobot enemy;
+    private LXXRobot me;
+    private List<LXXBullet> myBullets;
+    private Office office;
+
+    // NaN means, that value isn't computed yet
+    private double distance;
+    private double enemyAbsoluteHeading;
+    private double myAbsoluteHeading;
+    private double enemyAngleToMe;
+    private double enemyDistanceToForwardWall;
+    private double myDistanceToForwardWall;
+
+    private int firstBulletIdx;
+    private double firstBulletFlightTime;
+
+    public ExtractionContext(int attributesCount) {
+        attrValues = new double[attributesCount];
+        isAttrComputed = new boolean[attributesCount];
+    }
+
+    public void reset(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
+        this.enemy = enemy;
+        this.me = me;
+        this.myBullets = myBullets;
+        this.office = office;
+
+        Arrays.fill(isAttrComputed, false);
+        distance = Double.NaN;
+        enemyAbsoluteHeading = Double.NaN;
+        myAbsoluteHeading = Double.NaN;
+        enemyAngleToMe = Double.NaN;
+        enemyDistanceToForwardWall = Double.NaN;
+        myDistanceToForwardWall = Double.NaN;
+        firstBulletIdx = NOT_COMPUTED;
+    }
+
+    public double getAttrValue(Attribute a) {
+        final int id = a.getId();
+        if (!isAttrComputed[id]) {
+            attrValues[id] = a.getExtractor().getAttributeValue(this);
+            isAttrComputed[id] = true;
+        }
+        return attrValues[id];
+    }
+
+    public LXXRobot getEnemy() {
+        return enemy;
+    }
+
+    public LXXRobot getMe() {
+        return me;
+    }
+
+    public List<LXXBullet> getMyBullets() {
+        return myBullets;
+    }
+
+    public double getDistance() {
+        if (Double.isNaN(distance)) {
+            distance = me.aDistance(enemy);
+        }
+        return distance;
+    }
+
+    public double getEnemyAbsoluteHeading() {
+        if (Double.isNaN(enemyAbsoluteHeading)) {
+            enemyAbsoluteHeading = enemy.getState().getAbsoluteHeadingRadians();
+        }
+        return enemyAbsoluteHeading;
+    }
+
+    public double getMyAbsoluteHeading() {
+        if (Double.isNaN(myAbsoluteHeading)) {
+            myAbsoluteHeading = me.getState().getAbsoluteHeadingRadians();
+        }
+        return myAbsoluteHeading;
+    }
+
+    public double getEnemyAngleToMe() {
+        if (Double.isNaN(enemyAngleToMe)) {
+            enemyAngleToMe = enemy.angleTo(me);
+        }
+        return enemyAngleToMe;
+    }
+
+    public double getEnemyDistanceToForwardWall() {
+        if (Double.isNaN(enemyDistanceToForwardWall)) {
+            enemyDistanceToForwardWall = LXXUtils.limit(0,
+                    enemy.getState().getBattleField().getDistanceToWall(enemy, getEnemyAbsoluteHeading()), Integer.MAX_VALUE);
+        }
+        return enemyDistanceToForwardWall;
+    }
+
+    public double getMyDistanceToForwardWall() {
+        if (Double.isNaN(myDistanceToForwardWall)) {
+            myDistanceToForwardWall = LXXUtils.limit(0,
+                    me.getState().getBattleField().getDistanceToWall(me, getMyAbsoluteHeading()), Integer.MAX_VALUE);
+        }
+        return myDistanceToForwardWall;
+    }
+
+    /**
+     * @return index of first my bullet, which will reach enemy not earlier than in next tick, or -1 if there's no such bullet
+     */
+    public int getFirstBulletIdx() {
+        if (firstBulletIdx == NOT_COMPUTED) {
+            firstBulletIdx = -1;
+            firstBulletFlightTime = 0;
+            for (int i = 0; i < myBullets.size(); i++) {
+                final LXXBullet bullet = myBullets.get(i);
+                final double bulletFlightTime = (bullet.getFirePosition().aDistance(enemy) - bullet.getFirePosition().aDistance(bullet.getCurrentPosition())) /
+                        bullet.getSpeed();
+                if (bulletFlightTime >= 1) {
+                    firstBulletIdx = i;
+                    firstBulletFlightTime = bulletFlightTime;
+                    break;
+                }
+            }
+        }
+        return firstBulletIdx;
+    }
+
+    public double getFirstBulletFlightTime() {
+        getFirstBulletIdx();
+        return firstBulletFlightTime;
+    }
+
+    public int getEnemyFireCount() {
+        return office.getStatisticsManager().getEnemyHitRate().getFireCount();
+    }
+
+}
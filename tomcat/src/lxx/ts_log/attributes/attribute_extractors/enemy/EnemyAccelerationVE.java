@@ -4,19 +4,15 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 /**
  * User: jdev
  * Date: 02.03.2010
  */
 public class EnemyAccelerationVE implements AttributeValueExtractor {
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return enemy.getAcceleration();
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getEnemy().getAcceleration();
     }
 }
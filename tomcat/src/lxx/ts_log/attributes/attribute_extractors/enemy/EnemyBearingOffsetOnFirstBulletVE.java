@@ -4,15 +4,12 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
 import lxx.LXXRobotState;
 import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 import lxx.utils.LXXUtils;
 
-import java.util.List;
-
 import static java.lang.Math.signum;
 import static java.lang.Math.toDegrees;
 
@@ -21,25 +18,15 @@ import static java.lang.Math.toDegrees;
  * Date: 30.04.11
  */
 public class EnemyBearingOffsetOnFirstBulletVE implements AttributeValueExtractor {
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        if (myBullets.size() == 0) {
+    public double getAttributeValue(ExtractionContext ctx) {
+        final int firstBulletIdx = ctx.getFirstBulletIdx();
+        if (firstBulletIdx == -1) {
             return 0;
         }
 
-        LXXBullet firstBullet;
-        int idx = 0;
-        double bulletFlightTime;
-        do {
-            if (idx == myBullets.size()) {
-                return 0;
-            }
-            firstBullet = myBullets.get(idx++);
-            bulletFlightTime = (firstBullet.getFirePosition().aDistance(enemy) - firstBullet.getFirePosition().aDistance(firstBullet.getCurrentPosition())) /
-                    firstBullet.getSpeed();
-        } while (bulletFlightTime < 1);
-
+        final LXXBullet firstBullet = ctx.getMyBullets().get(firstBulletIdx);
         final LXXRobotState targetState = firstBullet.getTargetStateAtFireTime();
         double lateralDirection = signum(LXXUtils.lateralVelocity2(firstBullet.getFirePosition(), targetState, targetState.getSpeed(), targetState.getAbsoluteHeadingRadians()));
-        return toDegrees(LXXUtils.bearingOffset(firstBullet.getFirePosition(), targetState, enemy)) * lateralDirection;
+        return toDegrees(LXXUtils.bearingOffset(firstBullet.getFirePosition(), targetState, ctx.getEnemy())) * lateralDirection;
     }
 }
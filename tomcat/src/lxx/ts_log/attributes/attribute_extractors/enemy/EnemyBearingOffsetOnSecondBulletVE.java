@@ -4,42 +4,25 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
 import lxx.LXXRobotState;
 import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 import lxx.utils.LXXUtils;
 
-import java.util.List;
-
 import static java.lang.Math.signum;
 import static java.lang.Math.toDegrees;
 
 public class EnemyBearingOffsetOnSecondBulletVE implements AttributeValueExtractor {
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        if (myBullets.size() == 0) {
-            return 0;
-        }
-
-        LXXBullet firstBullet;
-        int idx = 0;
-        double bulletFlightTime;
-        do {
-            if (idx == myBullets.size()) {
-                return 0;
-            }
-            firstBullet = myBullets.get(idx++);
-            bulletFlightTime = (firstBullet.getFirePosition().aDistance(enemy) - firstBullet.getFirePosition().aDistance(firstBullet.getCurrentPosition())) /
-                    firstBullet.getSpeed();
-        } while (bulletFlightTime < 1);
-        if (idx == myBullets.size()) {
+    public double getAttributeValue(ExtractionContext ctx) {
+        final int firstBulletIdx = ctx.getFirstBulletIdx();
+        if (firstBulletIdx == -1 || firstBulletIdx + 1 == ctx.getMyBullets().size()) {
             return 0;
         }
-        firstBullet = myBullets.get(idx);
 
-        final LXXRobotState targetState = firstBullet.getTargetStateAtFireTime();
-        double lateralDirection = signum(LXXUtils.lateralVelocity2(firstBullet.getFirePosition(), targetState, targetState.getSpeed(), targetState.getAbsoluteHeadingRadians()));
-        return toDegrees(LXXUtils.bearingOffset(firstBullet.getFirePosition(), targetState, enemy)) * lateralDirection;
+        final LXXBullet secondBullet = ctx.getMyBullets().get(firstBulletIdx + 1);
+        final LXXRobotState targetState = secondBullet.getTargetStateAtFireTime();
+        double lateralDirection = signum(LXXUtils.lateralVelocity2(secondBullet.getFirePosition(), targetState, targetState.getSpeed(), targetState.getAbsoluteHeadingRadians()));
+        return toDegrees(LXXUtils.bearingOffset(secondBullet.getFirePosition(), targetState, ctx.getEnemy())) * lateralDirection;
     }
 }
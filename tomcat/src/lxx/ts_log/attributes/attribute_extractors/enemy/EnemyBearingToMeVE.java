@@ -4,20 +4,16 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 import robocode.util.Utils;
 
-import java.util.List;
-
 import static java.lang.Math.toDegrees;
 
 public class EnemyBearingToMeVE implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return toDegrees(Utils.normalRelativeAngle(enemy.angleTo(me) - enemy.getState().getAbsoluteHeadingRadians()));
+    public double getAttributeValue(ExtractionContext ctx) {
+        return toDegrees(Utils.normalRelativeAngle(ctx.getEnemyAngleToMe() - ctx.getEnemyAbsoluteHeading()));
     }
 
 }
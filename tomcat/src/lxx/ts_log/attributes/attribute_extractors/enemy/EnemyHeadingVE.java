@@ -4,12 +4,8 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 import static java.lang.Math.toDegrees;
 
@@ -18,7 +14,7 @@ import static java.lang.Math.toDegrees;
  * Date: 23.02.2010
  */
 public class EnemyHeadingVE implements AttributeValueExtractor {
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return toDegrees(enemy.getState().getAbsoluteHeadingRadians());
+    public double getAttributeValue(ExtractionContext ctx) {
+        return toDegrees(ctx.getEnemyAbsoluteHeading());
     }
 }
@@ -1,11 +1,7 @@
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 /**
  * User: jdev
@@ -13,8 +9,8 @@ import java.util.List;
  */
 public class EnemyOutgoingWavesCollectedVE implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return office.getStatisticsManager().getEnemyHitRate().getFireCount();
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getEnemyFireCount();
     }
 
 }
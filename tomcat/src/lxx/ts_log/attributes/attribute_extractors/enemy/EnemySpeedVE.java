@@ -4,12 +4,8 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 /**
  * User: jdev
@@ -17,8 +13,8 @@ import java.util.List;
  */
 public class EnemySpeedVE implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return enemy.getState().getSpeed();
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getEnemy().getState().getSpeed();
     }
 
 }
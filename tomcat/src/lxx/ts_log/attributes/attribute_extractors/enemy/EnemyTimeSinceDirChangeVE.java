@@ -1,18 +1,14 @@
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 /**
  * User: jdev
  * Date: 18.06.11
  */
 public class EnemyTimeSinceDirChangeVE implements AttributeValueExtractor {
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return enemy.getTime() - enemy.getLastDirChangeTime();
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getEnemy().getTime() - ctx.getEnemy().getLastDirChangeTime();
     }
 }
@@ -4,12 +4,8 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-import lxx.bullets.LXXBullet;
-import lxx.LXXRobot;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 import static java.lang.Math.toDegrees;
 
@@ -19,8 +15,8 @@ import static java.lang.Math.toDegrees;
  */
 public class EnemyTurnRateVE implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return toDegrees(enemy.getState().getTurnRateRadians());
+    public double getAttributeValue(ExtractionContext ctx) {
+        return toDegrees(ctx.getEnemy().getState().getTurnRateRadians());
     }
 
 }
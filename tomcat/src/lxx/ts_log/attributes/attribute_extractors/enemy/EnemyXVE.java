@@ -4,19 +4,15 @@
 
 package lxx.ts_log.attributes.attribute_extractors.enemy;
 
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-import lxx.LXXRobot;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 /**
  * User: jdev
  * Date: 28.02.2010
  */
 public class EnemyXVE implements AttributeValueExtractor {
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return enemy.getX();
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getEnemy().getX();
     }
 }
@@ -4,17 +4,13 @@
 
 package lxx.ts_log.attributes.attribute_extractors.my;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 public class MyDistanceLast10Ticks implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return me.getLast10TicksDist();
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getMe().getLast10TicksDist();
     }
 
 }
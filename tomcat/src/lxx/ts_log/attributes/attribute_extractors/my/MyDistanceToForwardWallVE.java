@@ -4,13 +4,8 @@
 
 package lxx.ts_log.attributes.attribute_extractors.my;
 
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-import lxx.bullets.LXXBullet;
-import lxx.LXXRobot;
-import lxx.utils.LXXUtils;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 /**
  * User: jdev
@@ -18,8 +13,8 @@ import java.util.List;
  */
 public class MyDistanceToForwardWallVE implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return LXXUtils.limit(0, me.getPosition().distanceToWall(me.getState().getBattleField(), me.getState().getAbsoluteHeadingRadians()), Integer.MAX_VALUE);
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getMyDistanceToForwardWall();
     }
 
 }
@@ -4,20 +4,17 @@
 
 package lxx.ts_log.attributes.attribute_extractors.my;
 
-import lxx.LXXRobot;
-import lxx.bullets.LXXBullet;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-import lxx.utils.LXXUtils;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
+import robocode.util.Utils;
 
 import static java.lang.Math.abs;
+import static java.lang.Math.sin;
 
 public class MyLateralSpeed implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return abs(LXXUtils.lateralVelocity(enemy, me.getState()));
+    public double getAttributeValue(ExtractionContext ctx) {
+        return abs(ctx.getMe().getState().getSpeed() * sin(Utils.normalRelativeAngle(ctx.getMyAbsoluteHeading() - ctx.getEnemyAngleToMe())));
     }
 
 }
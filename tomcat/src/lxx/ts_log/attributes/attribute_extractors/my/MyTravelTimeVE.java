@@ -4,18 +4,14 @@
 
 package lxx.ts_log.attributes.attribute_extractors.my;
 
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-import lxx.bullets.LXXBullet;
-import lxx.LXXRobot;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 import lxx.utils.LXXUtils;
 
-import java.util.List;
-
 public class MyTravelTimeVE implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return LXXUtils.limit(0D, (me.getTime() - me.getLastStopTime()), 255D);
+    public double getAttributeValue(ExtractionContext ctx) {
+        return LXXUtils.limit(0D, (ctx.getMe().getTime() - ctx.getMe().getLastStopTime()), 255D);
     }
 
 }
@@ -4,12 +4,8 @@
 
 package lxx.ts_log.attributes.attribute_extractors.my;
 
-import lxx.LXXRobot;
-import lxx.office.Office;
 import lxx.ts_log.attributes.attribute_extractors.AttributeValueExtractor;
-import lxx.bullets.LXXBullet;
-
-import java.util.List;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
 
 /**
  * User: jdev
@@ -17,8 +13,8 @@ import java.util.List;
  */
 public class MyVelocityVE implements AttributeValueExtractor {
 
-    public double getAttributeValue(LXXRobot enemy, LXXRobot me, List<LXXBullet> myBullets, Office office) {
-        return me.getState().getVelocity();
+    public double getAttributeValue(ExtractionContext ctx) {
+        return ctx.getMe().getState().getVelocity();
     }
 
 }
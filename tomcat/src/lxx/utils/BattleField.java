@@ -10,6 +10,7 @@ import robocode.util.Utils;
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
 
+import static java.lang.Math.abs;
 import static java.lang.Math.max;
 
 /**
@@ -123,6 +124,14 @@ public class BattleField {
         return Utils.normalRelativeAngle(getWall(pnt, heading).wallType.fromCenterAngle - heading);
     }
 
+    /**
+     * @return distance from point to wall in given direction
+     */
+    public double getDistanceToWall(APoint pnt, double direction) {
+        final Wall w = getWall(pnt, direction);
+        return getDistanceToWall(w, pnt) / abs(QuickMath.cos(direction - w.wallType.fromCenterAngle));
+    }
+
     public double getDistanceToWall(Wall wall, APoint pnt) {
         switch (wall.wallType) {
             case TOP:
@@ -156,7 +165,7 @@ public class BattleField {
         }
         final double baseAngle = wall.wallType.fromCenterAngle;
         double smoothedAngle = Utils.normalAbsoluteAngle(baseAngle + smoothAngle);
-        if (!containsExact(robot.project(smoothedAngle, hypotenuse))) {
+        if (!containsExact(robot.getX() + QuickMath.sin(smoothedAngle) * hypotenuse, robot.getY() + QuickMath.cos(smoothedAngle) * hypotenuse)) {
             final Wall secondWall = isClockwise ? wall.clockwiseWall : wall.counterClockwiseWall;
             return smoothWall(secondWall, robot, smoothedAngle, isClockwise);
         }
@@ -171,10 +180,18 @@ public class BattleField {
         return availableBattleFieldRectangle.contains(point.getX(), point.getY());
     }
 
+    public boolean contains(double x, double y) {
+        return availableBattleFieldRectangle.contains(x, y);
+    }
+
     public boolean containsExact(APoint point) {
         return exactAvailableBattleFieldRectangle.contains(point.getX(), point.getY());
     }
 
+    public boolean containsExact(double x, double y) {
+        return exactAvailableBattleFieldRectangle.contains(x, y);
+    }
+
     public class Wall {
 
         public final WallType wallType;
@@ -4,83 +4,178 @@
 
 package lxx.utils;
 
-import ags.utils.KdTree;
 import lxx.ts_log.TurnSnapshot;
 import lxx.ts_log.attributes.Attribute;
+import lxx.ts_log.attributes.AttributesManager;
+import lxx.utils.kd_tree.FlatKdTree;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.lang.Math.*;
 
 public class KdTreeAdapter<T extends KdTreeAdapter.KdTreeEntry> {
 
-    private final KdTree<T> delegate;
+    public static final int DEFAULT_MAX_SIZE = 50000;
+
+    // estimated heap usage of entry excluding coordinates: entry object, value, ring, free list, heap and bucket slots
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final double[] location;
+    private final double[] queryLocation;
+
+    private FlatKdTree<T> delegate;
     private final Attribute[] attributes;
+    private final int maxSize;
+    private final int maxAgeRounds;
+
+    private int evictedCount;
 
     public KdTreeAdapter(Attribute[] attributes) {
+        this(attributes, DEFAULT_MAX_SIZE, Integer.MAX_VALUE);
+    }
+
+    public KdTreeAdapter(Attribute[] attributes, int maxSize, int maxAgeRounds) {
+        if (maxSize < 1 || maxAgeRounds < 0) {
+            throw new IllegalArgumentException("Invalid limits: size " + maxSize + ", age " + maxAgeRounds);
+        }
         this.attributes = attributes;
-        delegate = new KdTree.SqrEuclid<T>(attributes.length, 50000);
+        AttributesManager.checkRequired(attributes);
+        this.maxSize = maxSize;
+        this.maxAgeRounds = maxAgeRounds;
+        location = new double[attributes.length];
+        queryLocation = new double[attributes.length];
+        delegate = new FlatKdTree<T>(attributes.length, maxSize);
     }
 
     public void addEntry(T entry) {
-        delegate.addPoint(getLocation(entry.turnSnapshot), entry);
+        if (delegate.size() == maxSize) {
+            // tree evicts oldest entry by itself, when it's full
+            evictedCount++;
+        }
+        fillLocation(entry.turnSnapshot, location);
+        delegate.add(location, entry);
+
+        final int minRound = entry.turnSnapshot.getRound() - maxAgeRounds;
+        while (delegate.size() > 1 && delegate.getValue(delegate.getOldestId()).turnSnapshot.getRound() < minRound) {
+            delegate.removeOldest();
+            evictedCount++;
+        }
     }
 
-    public List<KdTree.Entry<T>> getNearestNeighbours(TurnSnapshot ts) {
-        return delegate.nearestNeighbor(getLocation(ts), (int) sqrt(delegate.size()), true);
+    /**
+     * Rebuilds balanced tree from current entries, because removals doesn't trim nodes bounds
+     */
+    public void rebuild() {
+        final int[] ids = new int[delegate.size()];
+        final int count = delegate.getIdsByAge(ids);
+        final double[][] points = new double[count][attributes.length];
+        final List<T> values = new ArrayList<T>(count);
+        for (int i = 0; i < count; i++) {
+            for (int dim = 0; dim < attributes.length; dim++) {
+                points[i][dim] = delegate.getCoordinate(ids[i], dim);
+            }
+            values.add(delegate.getValue(ids[i]));
+        }
+        delegate = new FlatKdTree<T>(attributes.length, maxSize, points, values);
     }
 
-    public List<KdTree.Entry<T>> getNearestNeighboursS(final TurnSnapshot ts, final double[] weights) {
-        final List<KdTree.Entry<T>> entries = delegate.nearestNeighbor(getLocation(ts), (int) sqrt(delegate.size()), true);
-        final IntervalLong timeInterval = new IntervalLong(Integer.MAX_VALUE, Integer.MIN_VALUE);
-        final IntervalDouble distInterval = new IntervalDouble(Integer.MAX_VALUE, Integer.MIN_VALUE);
-        for (KdTree.Entry<T> entry : entries) {
-            final int timeDiff = ts.roundTime - entry.value.turnSnapshot.roundTime;
+    public int size() {
+        return delegate.size();
+    }
+
+    public int getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * @return estimated heap usage, tree storage is preallocated for max size
+     */
+    public long getFootprint() {
+        return (long) maxSize * getEntryFootprint(attributes.length);
+    }
+
+    public static int getEntryFootprint(int dimensions) {
+        return ENTRY_OVERHEAD_BYTES + 8 * dimensions;
+    }
+
+    /**
+     * Finds nearest neighbours of given snapshot, orders them by combined score of age and distance,
+     * drops entries, which are closer than 5 ticks to better entry, and keeps up to <code>limit</code> best entries.
+     * Result is written into given buffer, so query doesn't produce garbage
+     */
+    public void getNearestNeighboursS(final TurnSnapshot ts, final double[] weights, int limit, NeighboursBuffer<T> buffer) {
+        fillLocation(ts, queryLocation);
+        final int count = (int) sqrt(delegate.size());
+        buffer.ensureCapacity(count);
+        final int found = delegate.nearestNeighbours(queryLocation, count, buffer.ids, buffer.distances);
+        for (int i = 0; i < found; i++) {
+            buffer.values[i] = delegate.getValue(buffer.ids[i]);
+        }
+
+        int minTimeDiff = Integer.MAX_VALUE;
+        int maxTimeDiff = Integer.MIN_VALUE;
+        double minDist = Double.POSITIVE_INFINITY;
+        double maxDist = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < found; i++) {
+            final int timeDiff = ts.roundTime - buffer.getFound(i).turnSnapshot.roundTime;
             if (timeDiff < 0) {
                 throw new RuntimeException("Something wrong");
             }
-            timeInterval.extend(timeDiff);
-            distInterval.extend(entry.distance);
+            minTimeDiff = min(minTimeDiff, timeDiff);
+            maxTimeDiff = max(maxTimeDiff, timeDiff);
+            minDist = min(minDist, buffer.distances[i]);
+            maxDist = max(maxDist, buffer.distances[i]);
         }
 
-        Collections.sort(entries, new Comparator<KdTree.Entry<T>>() {
-            public int compare(KdTree.Entry<T> o1, KdTree.Entry<T> o2) {
-                final double timeDist1 = (o1.value.turnSnapshot.roundTime - timeInterval.a) / (timeInterval.getLength()) * weights[0];
-                final double locDist1 = (o1.distance - distInterval.a) / (distInterval.getLength()) * weights[1];
-
-                final double timeDist2 = (o2.value.turnSnapshot.roundTime - timeInterval.a) / (timeInterval.getLength()) * weights[0];
-                final double locDist2 = (o2.distance - distInterval.a) / (distInterval.getLength()) * weights[1];
+        final double timeFactor = maxTimeDiff > minTimeDiff ? weights[0] / (maxTimeDiff - minTimeDiff) : 0;
+        final double distFactor = maxDist > minDist ? weights[1] / (maxDist - minDist) : 0;
+        for (int i = 0; i < found; i++) {
+            // time distance grows with entry's round time, so older entries are ranked first
+            final double timeDist = (buffer.getFound(i).turnSnapshot.roundTime - minTimeDiff) * timeFactor;
+            final double locDist = (buffer.distances[i] - minDist) * distFactor;
+            buffer.scores[i] = sqrt(timeDist * timeDist + locDist * locDist);
+        }
 
-                return (int) signum(sqrt(timeDist1 * timeDist1 + locDist1 * locDist1) -
-                        sqrt(timeDist2 * timeDist2 + locDist2 * locDist2));
+        // only best candidates are ordered. Result is complete, when entry after last kept one
+        // isn't dropped, because dropping depends only on last kept entry
+        int candidatesCount = min(found, max(1, limit * 2));
+        int size;
+        while (true) {
+            buffer.orderSelector.reset(candidatesCount);
+            for (int i = 0; i < found; i++) {
+                buffer.orderSelector.offer(buffer.scores[i], i);
             }
-        });
+            buffer.orderSelector.drain(buffer.order);
 
-        for (int i = 0; i < entries.size() - 1; i++) {
-            if (abs(entries.get(i).value.turnSnapshot.roundTime -
-                    entries.get(i + 1).value.turnSnapshot.roundTime) < 5) {
-                if (entries.get(i).distance < entries.get(i + 1).distance) {
-                    entries.remove(i + 1);
+            boolean isComplete = candidatesCount == found;
+            size = 0;
+            for (int j = 0; j < candidatesCount; j++) {
+                final int i = buffer.order[j];
+                if (size > 0 && abs(buffer.getFound(buffer.kept[size - 1]).turnSnapshot.roundTime - buffer.getFound(i).turnSnapshot.roundTime) < 5) {
+                    if (buffer.distances[i] <= buffer.distances[buffer.kept[size - 1]]) {
+                        buffer.kept[size - 1] = i;
+                    }
+                } else if (size == limit) {
+                    isComplete = true;
+                    break;
                 } else {
-                    entries.remove(i);
+                    buffer.kept[size++] = i;
                 }
-                i--;
             }
-        }
 
-        return entries;
+            if (isComplete) {
+                break;
+            }
+            candidatesCount = min(found, candidatesCount * 2);
+        }
+        buffer.setResult(size, found);
     }
 
-    private double[] getLocation(TurnSnapshot ts) {
-        final double[] location = new double[attributes.length];
-
+    private void fillLocation(TurnSnapshot ts, double[] location) {
         for (int i = 0; i < attributes.length; i++) {
             location[i] = ts.getAttrValue(attributes[i]) / attributes[i].getRange().getLength();
         }
-
-        return location;
     }
 
     public static class KdTreeEntry {
@@ -92,4 +187,71 @@ public class KdTreeAdapter<T extends KdTreeAdapter.KdTreeEntry> {
         }
     }
 
+    /**
+     * Reusable result of nearest neighbours query
+     */
+    public static class NeighboursBuffer<T extends KdTreeEntry> {
+
+        // all found neighbours
+        private int[] ids = new int[0];
+        private Object[] values = new Object[0];
+        private double[] distances = new double[0];
+        private double[] scores = new double[0];
+
+        private TopKSelector orderSelector = new TopKSelector(0);
+        private int[] order = new int[0];
+        private int[] kept = new int[0];
+
+        // result
+        private Object[] resultValues = new Object[0];
+        private double[] resultDistances = new double[0];
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(int idx) {
+            return (T) resultValues[idx];
+        }
+
+        public double getDistance(int idx) {
+            return resultDistances[idx];
+        }
+
+        @SuppressWarnings("unchecked")
+        private T getFound(int idx) {
+            return (T) values[idx];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                ids = new int[capacity];
+                values = new Object[capacity];
+                distances = new double[capacity];
+                scores = new double[capacity];
+                orderSelector = new TopKSelector(capacity);
+                order = new int[capacity];
+                kept = new int[capacity];
+                resultValues = new Object[capacity];
+                resultDistances = new double[capacity];
+            }
+        }
+
+        private void setResult(int size, int found) {
+            for (int i = 0; i < size; i++) {
+                resultValues[i] = values[kept[i]];
+                resultDistances[i] = distances[kept[i]];
+            }
+            for (int i = size; i < this.size; i++) {
+                resultValues[i] = null;
+            }
+            for (int i = 0; i < found; i++) {
+                values[i] = null;
+            }
+            this.size = size;
+        }
+    }
+
 }
@@ -9,8 +9,6 @@ import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 
-import static java.lang.Math.abs;
-
 /**
  * User: jdev
  * Date: 25.07.2009
@@ -60,7 +58,6 @@ public class LXXPoint extends Point2D.Double implements APoint, Serializable {
     }
 
     public double distanceToWall(BattleField battleField, double direction) {
-        final BattleField.Wall w = battleField.getWall(this, direction);
-        return battleField.getDistanceToWall(w, this) / abs(QuickMath.cos(direction - w.wallType.fromCenterAngle));
+        return battleField.getDistanceToWall(this, direction);
     }
 }
\ No newline at end of file
@@ -57,6 +57,18 @@ public class LXXUtils {
         return res;
     }
 
+    public static double factoredManhettanDistance(int[] indexes, TurnSnapshot a, TurnSnapshot b, double[] factors) {
+        double res = 0;
+
+        final int len = indexes.length;
+        for (int i = 0; i < len; i++) {
+            final Attribute attr = AttributesManager.attributes[indexes[i]];
+            res += abs(b.getAttrValue(attr) - a.getAttrValue(attr)) * factors[indexes[i]];
+        }
+
+        return res;
+    }
+
     public static double getBulletPower(double bulletSpeed) {
         // speed = 20 - 3 * firepower
         // - 3 * firepower = speed - 20
@@ -4,58 +4,228 @@
 
 package lxx.utils;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
 
+/**
+ * Order statistics of last <code>limit</code> values.
+ * Values are kept in ring buffer, and slots of ring buffer are nodes of treap ordered by value,
+ * where each node knows size of its subtree, so add, evict and quantile query take O(log n)
+ */
 public class Median {
 
+    private static final int NIL = -1;
+
     private final int limit;
-    private final List<Double> values;
+
+    private final double[] values;
+    private final int[] left;
+    private final int[] right;
+    private final int[] sizes;
+    private final int[] priorities;
+
+    private int root = NIL;
+    private long addedCount;
+    private int seed = 0x2F6B3A71;
+
+    // results of split
+    private int splitLeft;
+    private int splitRight;
 
     public Median(int limit) {
         this.limit = limit;
-        values = new ArrayList<Double>(limit);
+        values = new double[limit];
+        left = new int[limit];
+        right = new int[limit];
+        sizes = new int[limit];
+        priorities = new int[limit];
     }
 
     public void addValue(double value) {
-        if (values.size() == limit) {
-            double m = getMedian();
-            if (value < m) {
-                values.remove(0);
-            } else {
-                values.remove(values.size() - 1);
-            }
+        final int node = (int) (addedCount % limit);
+        if (addedCount >= limit) {
+            root = remove(root, node);
         }
+        addedCount++;
 
-        int idx = Collections.binarySearch(values, value);
-        if (idx < 0) {
-            idx = -idx - 1;
-        }
-        if (idx < values.size()) {
-            values.add(idx, value);
-        } else {
-            values.add(value);
-        }
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        sizes[node] = 1;
+        priorities[node] = nextPriority();
+        root = insert(root, node);
     }
 
     public double getMedian() {
-        if (values.size() == 0) {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * @return value at given quantile, linearly interpolated between neighbour values
+     */
+    public double getQuantile(double quantile) {
+        final int size = size();
+        if (size == 0) {
             return 0;
         }
-        if (values.size() == 1) {
-            return values.get(0);
+        final double pos = quantile * (size - 1);
+        final int lowIdx = (int) pos;
+        final double low = get(lowIdx);
+        if (lowIdx == size - 1 || pos == lowIdx) {
+            return low;
+        }
+        return low + (get(lowIdx + 1) - low) * (pos - lowIdx);
+    }
+
+    /**
+     * @return value with given index in ascending order
+     */
+    public double get(int idx) {
+        int t = root;
+        while (true) {
+            final int leftSize = size(left[t]);
+            if (idx < leftSize) {
+                t = left[t];
+            } else if (idx == leftSize) {
+                return values[t];
+            } else {
+                idx -= leftSize + 1;
+                t = right[t];
+            }
         }
-        int idx = values.size() / 2 - 1;
-        return (values.get(idx) + values.get(idx + 1)) / 2;
+    }
+
+    public int size() {
+        return size(root);
     }
 
     public String toString() {
         return String.format("Median = %f", getMedian());
     }
 
+    /**
+     * @return snapshot of values in ascending order
+     */
     public List<Double> getValues() {
-        return values;
+        final int size = size();
+        final double[] sortedValues = new double[size];
+        // in-order traversal with explicit stack
+        final int[] stack = new int[size];
+        int stackSize = 0;
+        int idx = 0;
+        int t = root;
+        while (t != NIL || stackSize > 0) {
+            while (t != NIL) {
+                stack[stackSize++] = t;
+                t = left[t];
+            }
+            t = stack[--stackSize];
+            sortedValues[idx++] = values[t];
+            t = right[t];
+        }
+
+        return new AbstractList<Double>() {
+            public Double get(int index) {
+                return sortedValues[index];
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // ties are ordered by slot, so each node has unique position
+    private boolean isLess(int node1, int node2) {
+        return values[node1] < values[node2] || (values[node1] == values[node2] && node1 < node2);
+    }
+
+    private int insert(int t, int node) {
+        if (t == NIL) {
+            return node;
+        }
+        if (priorities[node] > priorities[t]) {
+            split(t, node);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            update(node);
+            return node;
+        }
+
+        if (isLess(node, t)) {
+            left[t] = insert(left[t], node);
+        } else {
+            right[t] = insert(right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    private int remove(int t, int node) {
+        if (t == node) {
+            return merge(left[t], right[t]);
+        }
+
+        if (isLess(node, t)) {
+            left[t] = remove(left[t], node);
+        } else {
+            right[t] = remove(right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    // splits subtree into nodes, which are less than given node, and other nodes
+    private void split(int t, int node) {
+        if (t == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+        } else if (isLess(t, node)) {
+            split(right[t], node);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], node);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    // all nodes of first subtree must be less than nodes of second subtree
+    private int merge(int t1, int t2) {
+        if (t1 == NIL) {
+            return t2;
+        } else if (t2 == NIL) {
+            return t1;
+        }
+
+        if (priorities[t1] > priorities[t2]) {
+            right[t1] = merge(right[t1], t2);
+            update(t1);
+            return t1;
+        } else {
+            left[t2] = merge(t1, left[t2]);
+            update(t2);
+            return t2;
+        }
+    }
+
+    private void update(int t) {
+        sizes[t] = 1 + size(left[t]) + size(right[t]);
+    }
+
+    private int size(int t) {
+        return t == NIL ? 0 : sizes[t];
+    }
+
+    // xorshift, so order of values is the only thing, which determines tree shape
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
     }
 
 }
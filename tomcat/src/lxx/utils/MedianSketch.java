@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils;
+
+/**
+ * Approximate order statistics of last <code>limit</code> values in fixed memory.
+ * Values are rounded to nearest of <code>binsCount</code> evenly spaced points within [minValue, maxValue]
+ * and ring buffer keeps bins of values, so evicted value decrements exactly its own bin.
+ * Results are same as of Median for values in bin points, otherwise error is up to half of bin width
+ */
+public class MedianSketch {
+
+    private final int limit;
+    private final double minValue;
+    private final double binWidth;
+    private final short[] valueBins;
+    private final int[] counts;
+
+    private long addedCount;
+
+    public MedianSketch(int limit, double minValue, double maxValue, int binsCount) {
+        if (binsCount < 2 || binsCount > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid bins count: " + binsCount);
+        }
+        this.limit = limit;
+        this.minValue = minValue;
+        binWidth = (maxValue - minValue) / (binsCount - 1);
+        valueBins = new short[limit];
+        counts = new int[binsCount];
+    }
+
+    public void addValue(double value) {
+        final int slot = (int) (addedCount % limit);
+        if (addedCount >= limit) {
+            counts[valueBins[slot]]--;
+        }
+        addedCount++;
+
+        final int bin = (int) LXXUtils.limit(0, Math.round((value - minValue) / binWidth), counts.length - 1);
+        valueBins[slot] = (short) bin;
+        counts[bin]++;
+    }
+
+    public double getMedian() {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * @return value at given quantile, linearly interpolated between neighbour values
+     */
+    public double getQuantile(double quantile) {
+        final int size = size();
+        if (size == 0) {
+            return 0;
+        }
+        final double pos = quantile * (size - 1);
+        final int lowIdx = (int) pos;
+        final double low = get(lowIdx);
+        if (lowIdx == size - 1 || pos == lowIdx) {
+            return low;
+        }
+        return low + (get(lowIdx + 1) - low) * (pos - lowIdx);
+    }
+
+    /**
+     * @return value with given index in ascending order
+     */
+    public double get(int idx) {
+        int bin = 0;
+        for (int count = counts[0]; count <= idx; count += counts[bin]) {
+            bin++;
+        }
+        return minValue + bin * binWidth;
+    }
+
+    public int size() {
+        return (int) Math.min(addedCount, limit);
+    }
+
+    public String toString() {
+        return String.format("Median = %f", getMedian());
+    }
+
+}
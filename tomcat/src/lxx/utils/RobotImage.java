@@ -16,10 +16,13 @@ import static java.lang.Math.signum;
 /**
  * User: jdev
  * Date: 19.02.11
+ *
+ * Mutable robot state for movement simulation, which may be reused by <code>set</code>
  */
 public final class RobotImage implements LXXRobotState {
 
-    private APoint position;
+    private double x;
+    private double y;
     private double velocity;
     private double heading;
     private BattleField battleField;
@@ -27,20 +30,29 @@ public final class RobotImage implements LXXRobotState {
     private double energy;
 
     public RobotImage(APoint position, double velocity, double heading, BattleField battleField, double turnRateRadians, double energy) {
-        this.position = position;
+        this.battleField = battleField;
+        set(position.getX(), position.getY(), velocity, heading, turnRateRadians, energy);
+    }
+
+    public void set(double x, double y, double velocity, double heading, double turnRateRadians, double energy) {
+        this.x = x;
+        this.y = y;
         this.velocity = velocity;
         this.heading = heading;
-        this.battleField = battleField;
         this.turnRateRadians = turnRateRadians;
         this.energy = energy;
     }
 
     public void apply(MovementDecision movementDecision) {
-        heading = Utils.normalAbsoluteAngle(heading + movementDecision.getTurnRateRadians());
+        apply(movementDecision.getDesiredVelocity(), movementDecision.getTurnRateRadians());
+    }
+
+    public void apply(double desiredVelocity, double turnRateRadians) {
+        heading = Utils.normalAbsoluteAngle(heading + turnRateRadians);
         final double acceleration;
-        if (abs(signum(velocity) - signum(movementDecision.getDesiredVelocity())) <= 1) {
-            acceleration = LXXUtils.limit(-Rules.DECELERATION, abs(movementDecision.getDesiredVelocity()) - abs(velocity), Rules.ACCELERATION);
-            velocity = (abs(velocity) + acceleration) * signum(movementDecision.getDesiredVelocity());
+        if (abs(signum(velocity) - signum(desiredVelocity)) <= 1) {
+            acceleration = LXXUtils.limit(-Rules.DECELERATION, abs(desiredVelocity) - abs(velocity), Rules.ACCELERATION);
+            velocity = (abs(velocity) + acceleration) * signum(desiredVelocity);
         } else {
             // robocode has difficult 2-step rules in this case,
             // but we will keep it simple
@@ -51,31 +63,34 @@ public final class RobotImage implements LXXRobotState {
             }
         }
 
-        position = position.project(velocity >= 0 ? heading : Utils.normalAbsoluteAngle(heading + LXXConstants.RADIANS_180), abs(velocity));
+        final double direction = velocity >= 0 ? heading : Utils.normalAbsoluteAngle(heading + LXXConstants.RADIANS_180);
+        final double distance = abs(velocity);
+        x += QuickMath.sin(direction) * distance;
+        y += QuickMath.cos(direction) * distance;
     }
 
     public double getX() {
-        return position.getX();
+        return x;
     }
 
     public double getY() {
-        return position.getY();
+        return y;
     }
 
     public double aDistance(APoint p) {
-        return position.aDistance(p);
+        return LXXPoint.distance(x, y, p.getX(), p.getY());
     }
 
     public double angleTo(APoint pnt) {
-        return position.angleTo(pnt);
+        return LXXUtils.angle(x, y, pnt.getX(), pnt.getY());
     }
 
     public APoint project(double alpha, double distance) {
-        return position.project(alpha, distance);
+        return new LXXPoint(x + QuickMath.sin(alpha) * distance, y + QuickMath.cos(alpha) * distance);
     }
 
     public APoint project(DeltaVector dv) {
-        return position.project(dv);
+        return project(dv.getAlphaRadians(), dv.getLength());
     }
 
     public double getAbsoluteHeadingRadians() {
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils;
+
+/**
+ * Histogram of durations in nanoseconds with log-linear buckets: each power of two range
+ * is splitted into equal sub buckets, so relative error of percentiles doesn't exceed 1 / SUB_BUCKETS_COUNT
+ */
+public class TimeHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[SUB_BUCKETS_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS_COUNT];
+
+    private long count;
+    private long total;
+    private long max;
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[getBucketIdx(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * @return upper bound of value, which isn't less than given part of recorded values
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long threshold = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long cumulativeCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= threshold) {
+                return Math.min(getBucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    static int getBucketIdx(long value) {
+        if (value < SUB_BUCKETS_COUNT) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS_COUNT + shift * SUB_BUCKETS_COUNT + (int) ((value >> shift) - SUB_BUCKETS_COUNT);
+    }
+
+    static long getBucketUpperBound(int idx) {
+        if (idx < SUB_BUCKETS_COUNT) {
+            return idx;
+        }
+        final int shift = (idx - SUB_BUCKETS_COUNT) / SUB_BUCKETS_COUNT;
+        final long subBucket = SUB_BUCKETS_COUNT + (idx - SUB_BUCKETS_COUNT) % SUB_BUCKETS_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils;
+
+/**
+ * Selects values with k smallest keys from stream of (key, value) pairs with bounded max-heap.
+ * Offer costs O(log k) and selector doesn't allocate memory after creation, so it can be reused for every query.
+ * To select greatest keys (for example, most recent entries by round time) offer negated keys
+ */
+public class TopKSelector {
+
+    private final double[] keys;
+    private final int[] values;
+
+    private int k;
+    private int size;
+
+    public TopKSelector(int capacity) {
+        keys = new double[capacity];
+        values = new int[capacity];
+        k = capacity;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public void reset(int k) {
+        if (k > keys.length) {
+            throw new IllegalArgumentException("K " + k + " is greater than capacity " + keys.length);
+        }
+        this.k = k;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if value is selected
+     */
+    public boolean offer(double key, int value) {
+        if (size < k) {
+            int idx = size++;
+            while (idx > 0) {
+                final int parent = (idx - 1) >> 1;
+                if (keys[parent] >= key) {
+                    break;
+                }
+                keys[idx] = keys[parent];
+                values[idx] = values[parent];
+                idx = parent;
+            }
+            keys[idx] = key;
+            values[idx] = value;
+            return true;
+        } else if (k > 0 && key < keys[0]) {
+            siftDown(0, key, value, size);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes selected values into given array in order of increasing keys and resets selector
+     *
+     * @return count of values
+     */
+    public int drain(int[] res) {
+        final int count = size;
+        // heap sort, greatest key is moved to the end of heap on each step
+        for (int last = count - 1; last > 0; last--) {
+            final double key = keys[last];
+            final int value = values[last];
+            keys[last] = keys[0];
+            values[last] = values[0];
+            siftDown(0, key, value, last);
+        }
+        System.arraycopy(values, 0, res, 0, count);
+        size = 0;
+        return count;
+    }
+
+    private void siftDown(int idx, double key, int value, int heapSize) {
+        while (true) {
+            int child = (idx << 1) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && keys[child + 1] > keys[child]) {
+                child++;
+            }
+            if (keys[child] <= key) {
+                break;
+            }
+            keys[idx] = keys[child];
+            values[idx] = values[child];
+            idx = child;
+        }
+        keys[idx] = key;
+        values[idx] = value;
+    }
+
+}
@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils.kd_tree;
+
+import java.util.List;
+
+/**
+ * Primitive specialized kd-tree with squared euclidean distance, based on ags.utils.KdTree by Rednaxela.
+ * Coordinates of points are stored in single flat array, points are addressed by int ids,
+ * values are stored in side table indexed by id and nodes are stored in parallel arrays.
+ * Tree holds at most <code>capacity</code> points and evicts the oldest point, when it's full
+ */
+public class FlatKdTree<T> {
+
+    private static final int BUCKET_SIZE = 24;
+    private static final int NO_ID = -1;
+    private static final int LEAF = -1;
+
+    private final int dimensions;
+    private final int capacity;
+
+    // points, indexed by id
+    private final double[] coords;
+    private final Object[] values;
+    private final int[] ringPositions;
+    private final int[] freeIds;
+    private int freeIdsCount;
+    private int nextId;
+    private int size;
+
+    // ids in insertion order, removed points are marked with NO_ID
+    private final int[] ring;
+    private int ringHead;
+    private int ringCount;
+
+    // nodes
+    private int nodesCount;
+    private int[] splitDimensions;
+    private double[] splitValues;
+    private int[] lefts;
+    private int[] rights;
+    private int[] counts;
+    private int[][] buckets;
+    private int[] bucketSizes;
+    private double[] minBounds;
+    private double[] maxBounds;
+
+    // query buffers
+    private int[] stack;
+    private final int[] heapIds;
+    private final double[] heapDistances;
+    private int heapSize;
+
+    public FlatKdTree(int dimensions, int capacity) {
+        if (dimensions < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid tree dimensions " + dimensions + " or capacity " + capacity);
+        }
+        this.dimensions = dimensions;
+        this.capacity = capacity;
+
+        coords = new double[capacity * dimensions];
+        values = new Object[capacity];
+        ringPositions = new int[capacity];
+        freeIds = new int[capacity];
+        ring = new int[capacity];
+
+        final int nodesCapacity = 2 * (capacity / BUCKET_SIZE) + 1;
+        splitDimensions = new int[nodesCapacity];
+        splitValues = new double[nodesCapacity];
+        lefts = new int[nodesCapacity];
+        rights = new int[nodesCapacity];
+        counts = new int[nodesCapacity];
+        buckets = new int[nodesCapacity][];
+        bucketSizes = new int[nodesCapacity];
+        minBounds = new double[nodesCapacity * dimensions];
+        maxBounds = new double[nodesCapacity * dimensions];
+        stack = new int[nodesCapacity + 1];
+
+        heapIds = new int[capacity];
+        heapDistances = new double[capacity];
+
+        createLeaf(BUCKET_SIZE + 1);
+    }
+
+    /**
+     * Builds balanced tree from given points in one pass. Points should be ordered from oldest to newest,
+     * if there are more points than capacity, only newest points are loaded
+     */
+    public FlatKdTree(int dimensions, int capacity, double[][] points, List<T> pointValues) {
+        this(dimensions, capacity);
+        if (points.length != pointValues.size()) {
+            throw new IllegalArgumentException("Points count " + points.length + " != values count " + pointValues.size());
+        }
+
+        final int from = Math.max(0, points.length - capacity);
+        final int count = points.length - from;
+        if (count == 0) {
+            return;
+        }
+        final int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            final int id = nextId++;
+            System.arraycopy(points[from + i], 0, coords, id * dimensions, dimensions);
+            values[id] = pointValues.get(from + i);
+            ring[i] = id;
+            ringPositions[id] = i;
+            ids[i] = id;
+        }
+        ringCount = count;
+        size = count;
+
+        nodesCount = 0;
+        build(ids, 0, count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getValue(int id) {
+        return (T) values[id];
+    }
+
+    public double getCoordinate(int id, int dimension) {
+        return coords[id * dimensions + dimension];
+    }
+
+    /**
+     * @return id of the oldest point or -1 if tree is empty
+     */
+    public int getOldestId() {
+        return ringCount > 0 ? ring[ringHead] : NO_ID;
+    }
+
+    /**
+     * Fills given array with ids of points from oldest to newest
+     *
+     * @return count of points
+     */
+    public int getIdsByAge(int[] ids) {
+        int count = 0;
+        for (int i = 0; i < ringCount; i++) {
+            final int id = ring[(ringHead + i) % capacity];
+            if (id != NO_ID) {
+                ids[count++] = id;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds point into tree, evicting the oldest point if tree is full. Location is copied
+     *
+     * @return id of added point
+     */
+    public int add(double[] location, T value) {
+        if (size == capacity) {
+            removeOldest();
+        }
+        if (ringCount == capacity) {
+            compactRing();
+        }
+
+        final int id = freeIdsCount > 0 ? freeIds[--freeIdsCount] : nextId++;
+        System.arraycopy(location, 0, coords, id * dimensions, dimensions);
+        values[id] = value;
+
+        final int ringPosition = (ringHead + ringCount) % capacity;
+        ring[ringPosition] = id;
+        ringPositions[id] = ringPosition;
+        ringCount++;
+        size++;
+
+        insert(id);
+
+        return id;
+    }
+
+    /**
+     * @return id of removed point or -1 if tree is empty
+     */
+    public int removeOldest() {
+        final int id = getOldestId();
+        if (id != NO_ID) {
+            remove(id);
+        }
+        return id;
+    }
+
+    /**
+     * Removes point with given id. Note: as in original tree, bounds of nodes aren't trimmed
+     */
+    public void remove(int id) {
+        if (id < 0 || id >= nextId || ring[ringPositions[id]] != id) {
+            throw new IllegalArgumentException("Point " + id + " isn't in tree");
+        }
+        int node = 0;
+        while (true) {
+            counts[node]--;
+            if (splitDimensions[node] == LEAF) {
+                final int[] bucket = buckets[node];
+                final int last = bucketSizes[node] - 1;
+                for (int i = 0; i <= last; i++) {
+                    if (bucket[i] == id) {
+                        bucket[i] = bucket[last];
+                        bucketSizes[node]--;
+                        break;
+                    }
+                }
+                break;
+            }
+            node = coords[id * dimensions + splitDimensions[node]] > splitValues[node] ? rights[node] : lefts[node];
+        }
+
+        values[id] = null;
+        freeIds[freeIdsCount++] = id;
+        ring[ringPositions[id]] = NO_ID;
+        while (ringCount > 0 && ring[ringHead] == NO_ID) {
+            ringHead = (ringHead + 1) % capacity;
+            ringCount--;
+        }
+        size--;
+    }
+
+    /**
+     * Finds up to <code>count</code> nearest points to given location without allocations.
+     * Ids and squared distances are written into given arrays, sorted by distance ascending
+     *
+     * @return count of found points
+     */
+    public int nearestNeighbours(double[] location, int count, int[] ids, double[] distances) {
+        count = Math.min(count, size);
+        heapSize = 0;
+        if (count <= 0) {
+            return 0;
+        }
+
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            final int node = stack[--stackSize];
+            if (counts[node] == 0 ||
+                    (heapSize == count && regionDistance(location, node) > heapDistances[0])) {
+                continue;
+            }
+
+            if (splitDimensions[node] == LEAF) {
+                final int[] bucket = buckets[node];
+                for (int i = bucketSizes[node] - 1; i >= 0; i--) {
+                    final int id = bucket[i];
+                    final double dist = pointDistance(location, id);
+                    if (heapSize < count) {
+                        heapIds[heapSize] = id;
+                        heapDistances[heapSize] = dist;
+                        upHeapify(heapSize++);
+                    } else if (dist < heapDistances[0]) {
+                        heapIds[0] = id;
+                        heapDistances[0] = dist;
+                        downHeapify(0);
+                    }
+                }
+            } else if (location[splitDimensions[node]] > splitValues[node]) {
+                stack[stackSize++] = lefts[node];
+                stack[stackSize++] = rights[node];
+            } else {
+                stack[stackSize++] = rights[node];
+                stack[stackSize++] = lefts[node];
+            }
+        }
+
+        final int found = heapSize;
+        while (heapSize > 0) {
+            heapSize--;
+            ids[heapSize] = heapIds[0];
+            distances[heapSize] = heapDistances[0];
+            heapIds[0] = heapIds[heapSize];
+            heapDistances[0] = heapDistances[heapSize];
+            downHeapify(0);
+        }
+
+        return found;
+    }
+
+    private void insert(int id) {
+        final int offset = id * dimensions;
+        int node = 0;
+        while (splitDimensions[node] != LEAF) {
+            counts[node]++;
+            extendBounds(node, offset);
+            node = coords[offset + splitDimensions[node]] > splitValues[node] ? rights[node] : lefts[node];
+        }
+        addToLeaf(node, id);
+
+        if (bucketSizes[node] > BUCKET_SIZE) {
+            split(node);
+        }
+    }
+
+    private void split(int node) {
+        final int splitDimension = findWidestDimension(node);
+        final int boundsOffset = node * dimensions + splitDimension;
+        final double min = minBounds[boundsOffset];
+        final double max = maxBounds[boundsOffset];
+        if (min == max) {
+            // all points are equal on all axises, bucket just grows
+            return;
+        }
+
+        double splitValue = (min + max) * 0.5;
+        // don't let the split value be the same as the upper value due to rounding errors
+        if (splitValue == max) {
+            splitValue = min;
+        }
+
+        final int[] bucket = buckets[node];
+        final int bucketSize = bucketSizes[node];
+        final int left = createLeaf(bucketSize);
+        final int right = createLeaf(bucketSize);
+        for (int i = 0; i < bucketSize; i++) {
+            final int id = bucket[i];
+            addToLeaf(coords[id * dimensions + splitDimension] > splitValue ? right : left, id);
+        }
+
+        splitDimensions[node] = splitDimension;
+        splitValues[node] = splitValue;
+        lefts[node] = left;
+        rights[node] = right;
+        buckets[node] = null;
+        bucketSizes[node] = 0;
+    }
+
+    private int build(int[] ids, int from, int to) {
+        final int count = to - from;
+        final int node = createLeaf(BUCKET_SIZE + 1);
+        for (int i = from; i < to; i++) {
+            counts[node]++;
+            extendBounds(node, ids[i] * dimensions);
+        }
+        if (count <= BUCKET_SIZE) {
+            System.arraycopy(ids, from, buckets[node], 0, count);
+            bucketSizes[node] = count;
+            return node;
+        }
+
+        final int splitDimension = findWidestDimension(node);
+        final double min = minBounds[node * dimensions + splitDimension];
+        final double max = maxBounds[node * dimensions + splitDimension];
+        if (min == max) {
+            buckets[node] = new int[count];
+            System.arraycopy(ids, from, buckets[node], 0, count);
+            bucketSizes[node] = count;
+            return node;
+        }
+
+        double splitValue = select(ids, from, to, from + count / 2, splitDimension);
+        if (splitValue == max) {
+            splitValue = (min + max) * 0.5;
+            if (splitValue == max) {
+                splitValue = min;
+            }
+        }
+        final int mid = partition(ids, from, to, splitDimension, splitValue);
+
+        buckets[node] = null;
+        splitDimensions[node] = splitDimension;
+        splitValues[node] = splitValue;
+        final int left = build(ids, from, mid);
+        final int right = build(ids, mid, to);
+        lefts[node] = left;
+        rights[node] = right;
+
+        return node;
+    }
+
+    // quick select, returns value of k-th coordinate in given dimension
+    private double select(int[] ids, int from, int to, int k, int dimension) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            final double pivot = coords[ids[(lo + hi) >>> 1] * dimensions + dimension];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coords[ids[i] * dimensions + dimension] < pivot) {
+                    i++;
+                }
+                while (coords[ids[j] * dimensions + dimension] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final int tmp = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return coords[ids[k] * dimensions + dimension];
+    }
+
+    // moves points with coordinate less or equal to split value to begin, returns index of first greater point
+    private int partition(int[] ids, int from, int to, int dimension, double splitValue) {
+        int mid = from;
+        for (int i = from; i < to; i++) {
+            if (coords[ids[i] * dimensions + dimension] <= splitValue) {
+                final int tmp = ids[i];
+                ids[i] = ids[mid];
+                ids[mid++] = tmp;
+            }
+        }
+        return mid;
+    }
+
+    private int createLeaf(int bucketCapacity) {
+        if (nodesCount == counts.length) {
+            growNodes();
+        }
+        final int node = nodesCount++;
+        splitDimensions[node] = LEAF;
+        counts[node] = 0;
+        buckets[node] = new int[bucketCapacity];
+        bucketSizes[node] = 0;
+        return node;
+    }
+
+    private void addToLeaf(int node, int id) {
+        if (bucketSizes[node] == buckets[node].length) {
+            final int[] newBucket = new int[buckets[node].length * 2];
+            System.arraycopy(buckets[node], 0, newBucket, 0, bucketSizes[node]);
+            buckets[node] = newBucket;
+        }
+        buckets[node][bucketSizes[node]++] = id;
+        counts[node]++;
+        extendBounds(node, id * dimensions);
+    }
+
+    private void extendBounds(int node, int coordsOffset) {
+        final int boundsOffset = node * dimensions;
+        if (counts[node] == 1 && splitDimensions[node] == LEAF && bucketSizes[node] <= 1) {
+            System.arraycopy(coords, coordsOffset, minBounds, boundsOffset, dimensions);
+            System.arraycopy(coords, coordsOffset, maxBounds, boundsOffset, dimensions);
+            return;
+        }
+        for (int i = 0; i < dimensions; i++) {
+            final double value = coords[coordsOffset + i];
+            if (value < minBounds[boundsOffset + i]) {
+                minBounds[boundsOffset + i] = value;
+            } else if (value > maxBounds[boundsOffset + i]) {
+                maxBounds[boundsOffset + i] = value;
+            }
+        }
+    }
+
+    private int findWidestDimension(int node) {
+        final int boundsOffset = node * dimensions;
+        int widest = 0;
+        double width = maxBounds[boundsOffset] - minBounds[boundsOffset];
+        for (int i = 1; i < dimensions; i++) {
+            final double w = maxBounds[boundsOffset + i] - minBounds[boundsOffset + i];
+            if (w > width) {
+                widest = i;
+                width = w;
+            }
+        }
+        return widest;
+    }
+
+    private double pointDistance(double[] location, int id) {
+        final int offset = id * dimensions;
+        double dist = 0;
+        for (int i = 0; i < dimensions; i++) {
+            final double diff = location[i] - coords[offset + i];
+            dist += diff * diff;
+        }
+        return dist;
+    }
+
+    private double regionDistance(double[] location, int node) {
+        final int boundsOffset = node * dimensions;
+        double dist = 0;
+        for (int i = 0; i < dimensions; i++) {
+            final double value = location[i];
+            double diff = 0;
+            if (value > maxBounds[boundsOffset + i]) {
+                diff = value - maxBounds[boundsOffset + i];
+            } else if (value < minBounds[boundsOffset + i]) {
+                diff = minBounds[boundsOffset + i] - value;
+            }
+            dist += diff * diff;
+        }
+        return dist;
+    }
+
+    private void upHeapify(int c) {
+        for (int p = (c - 1) / 2; c != 0 && heapDistances[c] > heapDistances[p]; c = p, p = (c - 1) / 2) {
+            swapHeap(c, p);
+        }
+    }
+
+    private void downHeapify(int p) {
+        for (int c = p * 2 + 1; c < heapSize; p = c, c = p * 2 + 1) {
+            if (c + 1 < heapSize && heapDistances[c] < heapDistances[c + 1]) {
+                c++;
+            }
+            if (heapDistances[p] < heapDistances[c]) {
+                swapHeap(p, c);
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void swapHeap(int i, int j) {
+        final int id = heapIds[i];
+        final double dist = heapDistances[i];
+        heapIds[i] = heapIds[j];
+        heapDistances[i] = heapDistances[j];
+        heapIds[j] = id;
+        heapDistances[j] = dist;
+    }
+
+    private void compactRing() {
+        int count = 0;
+        for (int i = 0; i < ringCount; i++) {
+            final int id = ring[(ringHead + i) % capacity];
+            if (id != NO_ID) {
+                final int position = (ringHead + count++) % capacity;
+                ring[position] = id;
+                ringPositions[id] = position;
+            }
+        }
+        ringCount = count;
+    }
+
+    private void growNodes() {
+        final int newLength = counts.length * 2;
+        splitDimensions = copyOf(splitDimensions, newLength);
+        lefts = copyOf(lefts, newLength);
+        rights = copyOf(rights, newLength);
+        counts = copyOf(counts, newLength);
+        bucketSizes = copyOf(bucketSizes, newLength);
+        splitValues = copyOf(splitValues, newLength);
+        minBounds = copyOf(minBounds, newLength * dimensions);
+        maxBounds = copyOf(maxBounds, newLength * dimensions);
+        final int[][] newBuckets = new int[newLength][];
+        System.arraycopy(buckets, 0, newBuckets, 0, buckets.length);
+        buckets = newBuckets;
+        stack = new int[newLength + 1];
+    }
+
+    private static int[] copyOf(int[] array, int newLength) {
+        final int[] res = new int[newLength];
+        System.arraycopy(array, 0, res, 0, array.length);
+        return res;
+    }
+
+    private static double[] copyOf(double[] array, int newLength) {
+        final double[] res = new double[newLength];
+        System.arraycopy(array, 0, res, 0, array.length);
+        return res;
+    }
+
+}
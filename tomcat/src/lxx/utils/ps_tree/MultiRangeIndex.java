@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils.ps_tree;
+
+import lxx.ts_log.attributes.Attribute;
+import lxx.ts_log.attributes.AttributesManager;
+import lxx.utils.TopKSelector;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entries store shared by many range queries over different subsets of same attributes.
+ * Store keeps sorted index of rounded values for each attribute. Query is evaluated in two steps:
+ * <code>prepareQuery</code> marks matching entries for each attribute in bit set once
+ * and then <code>getMostRecentEntries</code> intersects bit sets of given attributes subset
+ */
+public class MultiRangeIndex<T extends Serializable> {
+
+    private final Attribute[] attributes;
+
+    private PSTreeEntry<T>[] entries = newEntriesArray(64);
+    private int size;
+
+    // sorted values of attributes and ids of entries, which have these values
+    private final int[][] sortedValues;
+    private final int[][] sortedIds;
+
+    // matching entries of each attribute in prepared query
+    private long[][] matches;
+    private long[] intersection;
+
+    private final TopKSelector mostRecentSelector;
+    private final int[] mostRecentIds;
+
+    public MultiRangeIndex(Attribute[] attributes, int maxTopSize) {
+        this.attributes = attributes;
+        AttributesManager.checkRequired(attributes);
+        sortedValues = new int[attributes.length][entries.length];
+        sortedIds = new int[attributes.length][entries.length];
+        matches = new long[attributes.length][1];
+        intersection = new long[1];
+        mostRecentSelector = new TopKSelector(maxTopSize);
+        mostRecentIds = new int[maxTopSize];
+    }
+
+    public Attribute[] getAttributes() {
+        return attributes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return entry with given id, ids are assigned in order of addition
+     */
+    public PSTreeEntry<T> getEntry(int id) {
+        return entries[id];
+    }
+
+    /**
+     * @return mask of given attributes subset, which identifies query
+     */
+    public int getAttributesMask(Attribute[] subset) {
+        int mask = 0;
+        for (Attribute a : subset) {
+            final int idx = indexOf(a);
+            if (idx == -1) {
+                throw new IllegalArgumentException("Attribute " + a + " isn't indexed");
+            }
+            mask |= 1 << idx;
+        }
+        return mask;
+    }
+
+    public void addEntry(PSTreeEntry<T> entry) {
+        if (size == entries.length) {
+            grow();
+        }
+        final int id = size++;
+        entries[id] = entry;
+
+        for (int attrIdx = 0; attrIdx < attributes.length; attrIdx++) {
+            final int value = entry.predicate.getRoundedAttrValue(attributes[attrIdx]);
+            final int[] values = sortedValues[attrIdx];
+            final int[] ids = sortedIds[attrIdx];
+            final int pos = upperBound(values, id, value);
+            // shift is linear, but entry is added once per broken wave and there are at most few thousands of entries,
+            // so it costs less than merge of buffered entries in each query
+            System.arraycopy(values, pos, values, pos + 1, id - pos);
+            System.arraycopy(ids, pos, ids, pos + 1, id - pos);
+            values[pos] = value;
+            ids[pos] = id;
+        }
+    }
+
+    /**
+     * Adds many entries at once: sorted indexes are rebuilt once instead of insertion of each entry
+     */
+    public void addEntries(List<PSTreeEntry<T>> newEntries) {
+        while (entries.length < size + newEntries.size()) {
+            grow();
+        }
+        for (PSTreeEntry<T> entry : newEntries) {
+            entries[size++] = entry;
+        }
+
+        // rounded value in high bits and id in low bits, so sort order is same as order of insertion one by one
+        final long[] valuesAndIds = new long[size];
+        for (int attrIdx = 0; attrIdx < attributes.length; attrIdx++) {
+            final Attribute attribute = attributes[attrIdx];
+            for (int id = 0; id < size; id++) {
+                valuesAndIds[id] = ((long) entries[id].predicate.getRoundedAttrValue(attribute) << 32) | id;
+            }
+            Arrays.sort(valuesAndIds);
+            final int[] values = sortedValues[attrIdx];
+            final int[] ids = sortedIds[attrIdx];
+            for (int i = 0; i < size; i++) {
+                values[i] = (int) (valuesAndIds[i] >> 32);
+                ids[i] = (int) valuesAndIds[i];
+            }
+        }
+    }
+
+    /**
+     * Marks entries, which i-th attribute's rounded value is within [from[i], to[i]]
+     */
+    public void prepareQuery(int[] from, int[] to) {
+        final int wordsCount = (size + 63) >> 6;
+        if (matches[0].length < wordsCount) {
+            matches = new long[attributes.length][wordsCount * 2];
+            intersection = new long[wordsCount * 2];
+        }
+
+        for (int attrIdx = 0; attrIdx < attributes.length; attrIdx++) {
+            final long[] attrMatches = matches[attrIdx];
+            for (int i = 0; i < wordsCount; i++) {
+                attrMatches[i] = 0;
+            }
+            final int[] values = sortedValues[attrIdx];
+            final int[] ids = sortedIds[attrIdx];
+            final int toIdx = upperBound(values, size, to[attrIdx]);
+            for (int i = lowerBound(values, size, from[attrIdx]); i < toIdx; i++) {
+                attrMatches[ids[i] >> 6] |= 1L << ids[i];
+            }
+        }
+    }
+
+    /**
+     * Adds into result up to <code>limit</code> entries with greatest round time, which matches
+     * prepared query by all attributes of given mask, from most recent to oldest
+     */
+    public void getMostRecentEntries(int attributesMask, int limit, List<PSTreeEntry<T>> res) {
+        mostRecentSelector.reset(limit);
+        final int wordsCount = (size + 63) >> 6;
+        boolean isFirst = true;
+        for (int attrIdx = 0; attrIdx < attributes.length; attrIdx++) {
+            if ((attributesMask & (1 << attrIdx)) == 0) {
+                continue;
+            }
+            final long[] attrMatches = matches[attrIdx];
+            if (isFirst) {
+                System.arraycopy(attrMatches, 0, intersection, 0, wordsCount);
+                isFirst = false;
+            } else {
+                for (int i = 0; i < wordsCount; i++) {
+                    intersection[i] &= attrMatches[i];
+                }
+            }
+        }
+        if (isFirst) {
+            return;
+        }
+
+        for (int word = 0; word < wordsCount; word++) {
+            long bits = intersection[word];
+            while (bits != 0) {
+                final int id = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                // selector keeps smallest keys, so round time is negated
+                mostRecentSelector.offer(-entries[id].predicate.roundTime, id);
+            }
+        }
+
+        final int count = mostRecentSelector.drain(mostRecentIds);
+        for (int i = 0; i < count; i++) {
+            res.add(entries[mostRecentIds[i]]);
+        }
+    }
+
+    private int indexOf(Attribute a) {
+        for (int i = 0; i < attributes.length; i++) {
+            if (attributes[i].equals(a)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void grow() {
+        final int newLength = entries.length * 2;
+        final PSTreeEntry<T>[] newEntries = newEntriesArray(newLength);
+        System.arraycopy(entries, 0, newEntries, 0, size);
+        entries = newEntries;
+        for (int attrIdx = 0; attrIdx < attributes.length; attrIdx++) {
+            final int[] newValues = new int[newLength];
+            System.arraycopy(sortedValues[attrIdx], 0, newValues, 0, size);
+            sortedValues[attrIdx] = newValues;
+            final int[] newIds = new int[newLength];
+            System.arraycopy(sortedIds[attrIdx], 0, newIds, 0, size);
+            sortedIds[attrIdx] = newIds;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> PSTreeEntry<T>[] newEntriesArray(int length) {
+        return (PSTreeEntry<T>[]) new PSTreeEntry<?>[length];
+    }
+
+    // index of first value, which is not less than given value
+    private static int lowerBound(int[] values, int size, int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // index of first value, which is greater than given value
+    private static int upperBound(int[] values, int size, int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (values[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
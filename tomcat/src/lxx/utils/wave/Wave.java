@@ -4,17 +4,13 @@
 
 package lxx.utils.wave;
 
+import lxx.LXXRobot;
 import lxx.LXXRobotState;
 import lxx.utils.APoint;
 import lxx.utils.IntervalDouble;
-import lxx.utils.LXXPoint;
-import lxx.utils.LXXUtils;
 import robocode.util.Utils;
 
-import java.awt.*;
-
-import static java.lang.StrictMath.max;
-import static java.lang.StrictMath.min;
+import static java.lang.Math.*;
 
 /**
  * User: jdev
@@ -28,39 +24,121 @@ public class Wave {
     private final long launchTime;
     private final double speed;
 
+    // angle from source to target at launch time, base of bearing offsets
+    private final double baseAngle;
+
+    // bearing offsets of target's bounding box parts, which was covered by wave
+    private double hitBearingOffsetMin = Double.POSITIVE_INFINITY;
+    private double hitBearingOffsetMax = Double.NEGATIVE_INFINITY;
     private IntervalDouble hitBearingOffsetInterval;
 
+    // bearing offsets of target's bounding box part, which is covered by wave in current tick
+    private double tickBearingOffsetMin;
+    private double tickBearingOffsetMax;
+
     public Wave(LXXRobotState source, LXXRobotState target, double speed, long launchTime) {
         this.sourceState = source;
         this.targetState = target;
 
         this.launchTime = launchTime;
         this.speed = speed;
+
+        baseAngle = atan2(target.getX() - source.getX(), target.getY() - source.getY());
     }
 
     public double getTraveledDistance() {
         return (sourceState.getRobot().getTime() - launchTime + 1) * speed;
     }
 
+    /**
+     * Calculates part of target's bounding box, which lies between wave's radiuses in previous and current ticks.
+     * Part is bounded by box corners and intersections of box sides with both circles
+     *
+     * @return true if wave intersects target's bounding box in current tick
+     */
     public boolean check() {
-        final double width = targetState.getRobot().getWidth();
-        final double height = targetState.getRobot().getHeight();
-        final Rectangle targetRect = new Rectangle((int) (targetState.getRobot().getX() - width / 2), (int) (targetState.getRobot().getY() - height / 2),
-                (int) width, (int) height);
-        final LXXPoint bulletPos = (LXXPoint) sourceState.project(sourceState.angleTo(targetState.getRobot()), getTraveledDistance());
-        final boolean contains = targetRect.contains(bulletPos);
-        if (contains) {
-            final double bo = LXXUtils.bearingOffset(sourceState, targetState, targetState.getRobot());
-            final double targetWidth = LXXUtils.getRobotWidthInRadians(sourceState, targetState.getRobot());
-            final IntervalDouble currentInterval = new IntervalDouble(bo - targetWidth / 2, bo + targetWidth / 2);
-            if (hitBearingOffsetInterval == null) {
-                hitBearingOffsetInterval = currentInterval;
+        final LXXRobot target = targetState.getRobot();
+        final double left = target.getX() - target.getWidth() / 2 - sourceState.getX();
+        final double right = left + target.getWidth();
+        final double bottom = target.getY() - target.getHeight() / 2 - sourceState.getY();
+        final double top = bottom + target.getHeight();
+
+        final double outerRadius = getTraveledDistance();
+        final double innerRadius = max(0, outerRadius - speed);
+
+        tickBearingOffsetMin = Double.POSITIVE_INFINITY;
+        tickBearingOffsetMax = Double.NEGATIVE_INFINITY;
+
+        addCornerIfCovered(left, bottom, innerRadius, outerRadius);
+        addCornerIfCovered(left, top, innerRadius, outerRadius);
+        addCornerIfCovered(right, bottom, innerRadius, outerRadius);
+        addCornerIfCovered(right, top, innerRadius, outerRadius);
+
+        addSideIntersections(left, bottom, top, innerRadius, false);
+        addSideIntersections(left, bottom, top, outerRadius, false);
+        addSideIntersections(right, bottom, top, innerRadius, false);
+        addSideIntersections(right, bottom, top, outerRadius, false);
+        addSideIntersections(bottom, left, right, innerRadius, true);
+        addSideIntersections(bottom, left, right, outerRadius, true);
+        addSideIntersections(top, left, right, innerRadius, true);
+        addSideIntersections(top, left, right, outerRadius, true);
+
+        if (tickBearingOffsetMin > tickBearingOffsetMax) {
+            return false;
+        }
+
+        hitBearingOffsetMin = min(hitBearingOffsetMin, tickBearingOffsetMin);
+        hitBearingOffsetMax = max(hitBearingOffsetMax, tickBearingOffsetMax);
+        return true;
+    }
+
+    /**
+     * @return true if wave has passed farthest corner of target's bounding box
+     */
+    public boolean isPassed() {
+        final LXXRobot target = targetState.getRobot();
+        final double dx = abs(target.getX() - sourceState.getX()) + target.getWidth() / 2;
+        final double dy = abs(target.getY() - sourceState.getY()) + target.getHeight() / 2;
+        final double traveledDistance = getTraveledDistance();
+        return traveledDistance * traveledDistance > dx * dx + dy * dy;
+    }
+
+    private void addCornerIfCovered(double x, double y, double innerRadius, double outerRadius) {
+        final double distSq = x * x + y * y;
+        if (distSq >= innerRadius * innerRadius && distSq <= outerRadius * outerRadius) {
+            addPoint(x, y);
+        }
+    }
+
+    /**
+     * Adds intersections of circle with side, which lies on line x = sideCoord (or y = sideCoord, if side is horizontal)
+     */
+    private void addSideIntersections(double sideCoord, double from, double to, double radius, boolean isHorizontal) {
+        final double hSq = radius * radius - sideCoord * sideCoord;
+        if (hSq < 0) {
+            return;
+        }
+        final double h = sqrt(hSq);
+        if (h >= from && h <= to) {
+            if (isHorizontal) {
+                addPoint(h, sideCoord);
             } else {
-                hitBearingOffsetInterval.a = min(hitBearingOffsetInterval.a, currentInterval.a);
-                hitBearingOffsetInterval.b = max(hitBearingOffsetInterval.b, currentInterval.b);
+                addPoint(sideCoord, h);
             }
         }
-        return contains;
+        if (-h >= from && -h <= to) {
+            if (isHorizontal) {
+                addPoint(-h, sideCoord);
+            } else {
+                addPoint(sideCoord, -h);
+            }
+        }
+    }
+
+    private void addPoint(double x, double y) {
+        final double bearingOffset = Utils.normalRelativeAngle(atan2(x, y) - baseAngle);
+        tickBearingOffsetMin = min(tickBearingOffsetMin, bearingOffset);
+        tickBearingOffsetMax = max(tickBearingOffsetMax, bearingOffset);
     }
 
     public APoint getSourcePosAtFireTime() {
@@ -87,7 +165,19 @@ public class Wave {
         return speed;
     }
 
+    /**
+     * @return interval of bearing offsets, which wave has covered on target's bounding box, or null if wave doesn't touch target yet
+     */
     public IntervalDouble getHitBearingOffsetInterval() {
+        if (hitBearingOffsetMin > hitBearingOffsetMax) {
+            return null;
+        }
+        if (hitBearingOffsetInterval == null) {
+            hitBearingOffsetInterval = new IntervalDouble(hitBearingOffsetMin, hitBearingOffsetMax);
+        } else {
+            hitBearingOffsetInterval.a = hitBearingOffsetMin;
+            hitBearingOffsetInterval.b = hitBearingOffsetMax;
+        }
         return hitBearingOffsetInterval;
     }
 
@@ -5,24 +5,37 @@
 package lxx.utils.wave;
 
 import lxx.LXXRobotState;
-import lxx.RobotListener;
+import lxx.events.EventBus;
+import lxx.events.EventHandler;
 import lxx.events.TickEvent;
-import robocode.Event;
+import robocode.Rules;
 
 import java.util.*;
 
+import static java.lang.Math.floor;
+
 /**
  * User: jdev
  * Date: 07.11.2009
  */
-public class WaveManager implements RobotListener {
+public class WaveManager {
+
+    // distance from robot's center to farthest point of robot's bounding box is not greater than sum of half sides
+    private static final double MAX_TARGET_RADIUS = 36;
 
-    private final Map<String, Set<Wave>> waves = new HashMap<String, Set<Wave>>();
-    private final Map<Wave, Set<WaveCallback>> waveCallbacks = new HashMap<Wave, Set<WaveCallback>>();
+    private final Map<Wave, ScheduledWave> scheduledWaves = new HashMap<Wave, ScheduledWave>();
+    // waves, which can not touch target before check time, ordered by check time
+    private final PriorityQueue<ScheduledWave> pendingWaves = new PriorityQueue<ScheduledWave>(16, new Comparator<ScheduledWave>() {
+        public int compare(ScheduledWave o1, ScheduledWave o2) {
+            return o1.checkTime < o2.checkTime ? -1 : (o1.checkTime > o2.checkTime ? 1 : 0);
+        }
+    });
+    // waves in hit window, which are checked every tick
+    private final List<ScheduledWave> activeWaves = new ArrayList<ScheduledWave>();
 
     public Wave launchWave(LXXRobotState source, LXXRobotState target, double speed, WaveCallback callback) {
         final Wave w = new Wave(source, target, speed, source.getRobot().getTime());
-        addWave(source.getRobot().getName(), w, callback);
+        addWave(w, callback);
 
         return w;
     }
@@ -35,71 +48,107 @@ public class WaveManager implements RobotListener {
                                   long tick, WaveCallback callback) {
 
         final Wave w = new Wave(source, target, bulletSpeed, tick);
-        addWave(source.getRobot().getName(), w, callback);
+        addWave(w, callback);
 
         return w;
     }
 
-    private void addWave(String owner, Wave w, WaveCallback callback) {
-        final Set<Wave> waves = getWaves(owner);
-        waves.add(w);
+    private void addWave(Wave w, WaveCallback callback) {
+        ScheduledWave scheduledWave = scheduledWaves.get(w);
+        if (scheduledWave == null) {
+            scheduledWave = new ScheduledWave(w);
+            scheduledWaves.put(w, scheduledWave);
+            // check time of new wave is calculated on next tick
+            pendingWaves.add(scheduledWave);
+        }
         addCallback(callback, w);
     }
 
     public void addCallback(WaveCallback callback, Wave w) {
-        Set<WaveCallback> callbacks = waveCallbacks.get(w);
-        if (callbacks == null) {
-            callbacks = new HashSet<WaveCallback>();
-            waveCallbacks.put(w, callbacks);
-        }
-        if (callback != null) {
-            callbacks.add(callback);
+        final ScheduledWave scheduledWave = scheduledWaves.get(w);
+        if (scheduledWave != null && callback != null && !scheduledWave.callbacks.contains(callback)) {
+            scheduledWave.callbacks.add(callback);
         }
     }
 
-    private Set<Wave> getWaves(String owner) {
-        Set<Wave> waves = this.waves.get(owner);
-        if (waves == null) {
-            waves = new HashSet<Wave>();
-            this.waves.put(owner, waves);
+    public void subscribe(EventBus eventBus) {
+        eventBus.subscribe(TickEvent.class, EventBus.PRIORITY_WAVES, new EventHandler<TickEvent>() {
+            public void handle(TickEvent event) {
+                onTick(event.getTime());
+            }
+        });
+    }
+
+    private void onTick(long time) {
+        while (pendingWaves.size() > 0 && pendingWaves.peek().checkTime <= time) {
+            activeWaves.add(pendingWaves.poll());
+        }
+
+        for (int i = 0; i < activeWaves.size(); ) {
+            if (!checkWave(activeWaves.get(i), time)) {
+                final int lastIdx = activeWaves.size() - 1;
+                activeWaves.set(i, activeWaves.get(lastIdx));
+                activeWaves.remove(lastIdx);
+            } else {
+                i++;
+            }
         }
-        return waves;
     }
 
-    public void onEvent(Event event) {
-        if (event instanceof TickEvent) {
-            for (Set<Wave> ws : waves.values()) {
-                List<Wave> toRemove = new LinkedList<Wave>();
-                for (Wave w : ws) {
-                    try {
-                        if (!w.getTargetStateAtLaunchTime().getRobot().isAlive() || !w.getSourceStateAtFireTime().getRobot().isAlive()) {
-                            toRemove.add(w);
-                            continue;
-                        }
-                    } catch (NullPointerException e) {
-                        e.printStackTrace();
-                    }
-
-                    final Set<WaveCallback> callbacks = waveCallbacks.get(w);
-                    if (w.check()) {
-                        for (WaveCallback callback : callbacks) {
-                            callback.wavePassing(w);
-                        }
-                    } else if (w.getTraveledDistance() > w.getSourceStateAtFireTime().aDistance(w.getTargetStateAtLaunchTime().getRobot())) {
-                        toRemove.add(w);
-                        for (WaveCallback callback : callbacks) {
-                            try {
-                                callback.waveBroken(w);
-                            } catch (RuntimeException e) {
-                                // don't let clients break life cycle
-                                e.printStackTrace();
-                            }
-                        }
-                        waveCallbacks.remove(w);
-                    }
+    /**
+     * @return true if wave should be checked on next tick
+     */
+    private boolean checkWave(ScheduledWave scheduledWave, long time) {
+        final Wave w = scheduledWave.wave;
+        try {
+            if (!w.getTargetStateAtLaunchTime().getRobot().isAlive() || !w.getSourceStateAtFireTime().getRobot().isAlive()) {
+                scheduledWaves.remove(w);
+                return false;
+            }
+        } catch (NullPointerException e) {
+            e.printStackTrace();
+        }
+
+        final List<WaveCallback> callbacks = scheduledWave.callbacks;
+        final int callbacksCount = callbacks.size();
+        final double distanceToTarget = w.getSourceStateAtFireTime().aDistance(w.getTargetStateAtLaunchTime().getRobot());
+        if (w.check()) {
+            for (int i = 0; i < callbacksCount; i++) {
+                callbacks.get(i).wavePassing(w);
+            }
+        } else if (w.isPassed()) {
+            scheduledWaves.remove(w);
+            for (int i = 0; i < callbacksCount; i++) {
+                try {
+                    callbacks.get(i).waveBroken(w);
+                } catch (RuntimeException e) {
+                    // don't let clients break life cycle
+                    e.printStackTrace();
                 }
-                ws.removeAll(toRemove);
             }
+            return false;
+        } else {
+            // wave's radius grows by speed and target approaches source at most with max velocity each tick
+            final double gap = distanceToTarget - MAX_TARGET_RADIUS - w.getTraveledDistance();
+            final long ticksToTarget = (long) floor(gap / (w.getSpeed() + Rules.MAX_VELOCITY));
+            if (ticksToTarget > 1) {
+                scheduledWave.checkTime = time + ticksToTarget;
+                pendingWaves.add(scheduledWave);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static class ScheduledWave {
+
+        private final Wave wave;
+        private final List<WaveCallback> callbacks = new ArrayList<WaveCallback>(2);
+        private long checkTime = Long.MIN_VALUE;
+
+        private ScheduledWave(Wave wave) {
+            this.wave = wave;
         }
     }
 
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx;
+
+import lxx.utils.APoint;
+import lxx.utils.BattleField;
+import lxx.utils.DeltaVector;
+import lxx.utils.LXXConstants;
+import lxx.utils.LXXPoint;
+
+/**
+ * Robot, which stands at fixed position, for tests of waves and bullets.
+ * Time is set by test, other properties aren't supported
+ */
+public class StubRobot implements LXXRobot {
+
+    private final LXXPoint position;
+    private final LXXRobotState state = new StubState();
+
+    private long time;
+
+    public StubRobot(double x, double y) {
+        position = new LXXPoint(x, y);
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public LXXRobotState getState() {
+        return state;
+    }
+
+    public double getWidth() {
+        return LXXConstants.ROBOT_SIDE_SIZE;
+    }
+
+    public double getHeight() {
+        return LXXConstants.ROBOT_SIDE_SIZE;
+    }
+
+    public LXXPoint getPosition() {
+        return position;
+    }
+
+    public double getX() {
+        return position.getX();
+    }
+
+    public double getY() {
+        return position.getY();
+    }
+
+    public double aDistance(APoint p) {
+        return position.aDistance(p);
+    }
+
+    public double angleTo(APoint pnt) {
+        return position.angleTo(pnt);
+    }
+
+    public APoint project(double alpha, double distance) {
+        return position.project(alpha, distance);
+    }
+
+    public APoint project(DeltaVector dv) {
+        return position.project(dv);
+    }
+
+    public String getName() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isAlive() {
+        throw new UnsupportedOperationException();
+    }
+
+    public LXXRobotState getPrevState() {
+        throw new UnsupportedOperationException();
+    }
+
+    public double getAcceleration() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getLastStopTime() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getLastTravelTime() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getLastTurnTime() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getLastNotTurnTime() {
+        throw new UnsupportedOperationException();
+    }
+
+    public long getLastDirChangeTime() {
+        throw new UnsupportedOperationException();
+    }
+
+    public double getGunHeat() {
+        throw new UnsupportedOperationException();
+    }
+
+    public double getFirePower() {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getRound() {
+        throw new UnsupportedOperationException();
+    }
+
+    public double getLast10TicksDist() {
+        throw new UnsupportedOperationException();
+    }
+
+    private class StubState implements LXXRobotState {
+
+        public LXXRobot getRobot() {
+            return StubRobot.this;
+        }
+
+        public double getX() {
+            return position.getX();
+        }
+
+        public double getY() {
+            return position.getY();
+        }
+
+        public double aDistance(APoint p) {
+            return position.aDistance(p);
+        }
+
+        public double angleTo(APoint pnt) {
+            return position.angleTo(pnt);
+        }
+
+        public APoint project(double alpha, double distance) {
+            return position.project(alpha, distance);
+        }
+
+        public APoint project(DeltaVector dv) {
+            return position.project(dv);
+        }
+
+        public double getHeadingRadians() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getAbsoluteHeadingRadians() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getTurnRateRadians() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getVelocity() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getSpeed() {
+            throw new UnsupportedOperationException();
+        }
+
+        public BattleField getBattleField() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getEnergy() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.bullets;
+
+import junit.framework.TestCase;
+import lxx.bullets.enemy.BulletShadow;
+import lxx.utils.LXXPoint;
+import lxx.utils.RobotImage;
+import lxx.utils.wave.Wave;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+
+public class DangerProfileTest extends TestCase {
+
+    public void testDangerMatchesPerOffsetDanger() {
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            final LXXBullet bullet = new LXXBullet(null, null, null);
+            final int shadowsCount = rnd.nextInt(4);
+            for (int j = 0; j < shadowsCount; j++) {
+                final double from = rnd.nextDouble() * 1.6 - 0.8;
+                bullet.addBulletShadow(createBullet(j), new BulletShadow(from, from + rnd.nextDouble() * 0.2, j));
+            }
+
+            final List<PastBearingOffset> bearingOffsets = new ArrayList<PastBearingOffset>();
+            final int count = rnd.nextInt(100);
+            for (int j = 0; j < count; j++) {
+                bearingOffsets.add(new PastBearingOffset(null, rnd.nextGaussian() * 0.4, rnd.nextDouble()));
+            }
+            // bearing offsets, which are predicted several times
+            if (count > 0) {
+                for (int j = 0; j < 5; j++) {
+                    bearingOffsets.add(bearingOffsets.get(rnd.nextInt(count)));
+                }
+            }
+
+            final DangerProfile profile = new DangerProfile(bearingOffsets, bullet);
+            for (int j = 0; j < 100; j++) {
+                final double bearingOffset = rnd.nextDouble() * 2.4 - 1.2;
+                final double robotWidthInRadians = 0.02 + rnd.nextDouble() * 0.3;
+                final double expected = getDanger(bearingOffsets, bullet, bearingOffset, robotWidthInRadians);
+                assertEquals(expected, profile.getDanger(bearingOffset, robotWidthInRadians), 1E-9 * max(1, expected));
+            }
+        }
+    }
+
+    // danger of point on wave, as it was calculated by WaveSurfingMovement
+    private static double getDanger(List<PastBearingOffset> bearingOffsets, LXXBullet bullet, double bearingOffset, double robotWidthInRadians) {
+        double bulletsDanger = 0;
+        for (PastBearingOffset bo : bearingOffsets) {
+            if (bullet.isShadowed(bo.bearingOffset)) {
+                continue;
+            }
+
+            final double dist = abs(bearingOffset - bo.bearingOffset);
+            if (dist < robotWidthInRadians * 0.75) {
+                bulletsDanger += (2 - (dist / (robotWidthInRadians * 0.75))) * bo.danger;
+            } else if (dist < robotWidthInRadians * 2.55) {
+                bulletsDanger += (1 - (dist / (robotWidthInRadians * 2.55))) * bo.danger;
+            }
+        }
+        return bulletsDanger;
+    }
+
+    // bullet, which casts shadow
+    private static LXXBullet createBullet(long fireTime) {
+        final RobotImage source = new RobotImage(new LXXPoint(0, 0), 0, 0, null, 0, 0);
+        final RobotImage target = new RobotImage(new LXXPoint(0, 100), 0, 0, null, 0, 0);
+        return new LXXBullet(null, new Wave(source, target, 11, fireTime), null);
+    }
+
+}
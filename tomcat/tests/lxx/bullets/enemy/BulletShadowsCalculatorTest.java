@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.bullets.enemy;
+
+import junit.framework.TestCase;
+import lxx.StubRobot;
+import lxx.bullets.LXXBullet;
+import lxx.utils.LXXUtils;
+import lxx.utils.QuickMath;
+import lxx.utils.wave.Wave;
+import robocode.Bullet;
+import robocode.util.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Math.*;
+
+public class BulletShadowsCalculatorTest extends TestCase {
+
+    private static final double SAMPLING_STEP = 0.05;
+    // error of table based asin, which is used to calculate angles
+    private static final double ANGLE_TOLERANCE = 0.006;
+
+    static {
+        QuickMath.init();
+    }
+
+    public void testShadowsMatchSampling() {
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            checkShadows(rnd);
+        }
+    }
+
+    private void checkShadows(Random rnd) {
+        final long time = 20 + rnd.nextInt(20);
+        final double enemyX = 100 + rnd.nextDouble() * 600;
+        final double enemyY = 100 + rnd.nextDouble() * 400;
+        final double angle = rnd.nextDouble() * 2 * PI;
+        final double dist = 100 + rnd.nextDouble() * 500;
+        final double myX = enemyX + sin(angle) * dist;
+        final double myY = enemyY + cos(angle) * dist;
+
+        final StubRobot enemy = new StubRobot(enemyX, enemyY);
+        final StubRobot me = new StubRobot(myX, myY);
+        enemy.setTime(time);
+        me.setTime(time);
+
+        final double ebPower = 0.1 + rnd.nextDouble() * 2.9;
+        final Wave enemyWave = new Wave(enemy.getState(), me.getState(), 20 - 3 * ebPower, time - rnd.nextInt(10));
+        final LXXBullet enemyBullet = new LXXBullet(new Bullet(0, enemyX, enemyY, ebPower, "", "", true, 0), enemyWave, null);
+
+        final double mbPower = 0.1 + rnd.nextDouble() * 2.9;
+        // bullets, which are fired aside, pass point closest to enemy and may not reach inner radius of wave
+        final double mbHeading = Utils.normalAbsoluteAngle(angle + PI + (rnd.nextDouble() - 0.5) * 2.8);
+        final Wave myWave = new Wave(me.getState(), enemy.getState(), 20 - 3 * mbPower, time - rnd.nextInt(5));
+        final LXXBullet myBullet = new LXXBullet(new Bullet(mbHeading, myX, myY, mbPower, "", "", true, 1), myWave, null);
+
+        BulletShadowsCalculator.addShadows(enemyBullet, myBullet, time);
+
+        // bearing offsets of my bullet's positions within enemy's wave in each tick
+        final List<double[]> samples = new ArrayList<double[]>();
+        final double noBearingOffset = enemyBullet.noBearingOffset();
+        long maxCastTime = time;
+        for (int timeDelta = 0; ; timeDelta++) {
+            final double mbCurDist = myBullet.getTravelledDistance() + myBullet.getSpeed() * timeDelta;
+            if (mbCurDist >= dist) {
+                break;
+            }
+            final double ebCurDist = enemyBullet.getTravelledDistance() + enemyBullet.getSpeed() * timeDelta;
+            final double ebNextDist = ebCurDist + enemyBullet.getSpeed();
+            for (double d = mbCurDist; d <= mbCurDist + myBullet.getSpeed() + 1E-9; d += SAMPLING_STEP) {
+                final double x = myX + sin(mbHeading) * d;
+                final double y = myY + cos(mbHeading) * d;
+                final double distToEnemy = hypot(x - enemyX, y - enemyY);
+                if (distToEnemy >= ebCurDist && distToEnemy <= ebNextDist) {
+                    final double bearingOffset = Utils.normalRelativeAngle(LXXUtils.angle(enemyX, enemyY, x, y) - noBearingOffset);
+                    final long castTime = time + timeDelta + 1;
+                    samples.add(new double[]{bearingOffset, castTime, SAMPLING_STEP / distToEnemy + ANGLE_TOLERANCE});
+                    maxCastTime = max(maxCastTime, castTime);
+                }
+            }
+        }
+
+        // shadows, which are cast till each tick, must match samples of these ticks
+        for (long castTime = maxCastTime; castTime > time; castTime--) {
+            enemyBullet.removeBulletShadows(myBullet, castTime);
+            final List<BulletShadow> shadows = new ArrayList<BulletShadow>(enemyBullet.getBulletShadows());
+            for (double[] sample : samples) {
+                if (sample[1] <= castTime) {
+                    assertTrue(isCovered(shadows, sample[0], sample[2]));
+                }
+            }
+            for (BulletShadow shadow : shadows) {
+                assertTrue(shadow.castTime <= castTime);
+                assertTrue(isSampled(samples, castTime, shadow.a));
+                assertTrue(isSampled(samples, castTime, shadow.b));
+            }
+        }
+    }
+
+    private static boolean isCovered(List<BulletShadow> shadows, double bearingOffset, double tolerance) {
+        for (BulletShadow shadow : shadows) {
+            if (shadow.a - tolerance <= bearingOffset && bearingOffset <= shadow.b + tolerance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSampled(List<double[]> samples, long castTime, double bearingOffset) {
+        for (double[] sample : samples) {
+            if (sample[1] <= castTime && abs(sample[0] - bearingOffset) <= sample[2]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.bullets.enemy;
+
+import junit.framework.TestCase;
+import lxx.ts_log.TurnSnapshot;
+import lxx.ts_log.attributes.Attribute;
+import lxx.ts_log.attributes.AttributesManager;
+import lxx.utils.ps_tree.MultiRangeIndex;
+import lxx.utils.ps_tree.PSTreeEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class EnemyGunLogsStoreTest extends TestCase {
+
+    private static final Attribute[] hitAttributes = {
+            AttributesManager.myLateralSpeed,
+            AttributesManager.myAcceleration,
+            AttributesManager.distBetween,
+            AttributesManager.myDistToForwardWall,
+            AttributesManager.myDistLast10Ticks,
+    };
+    private static final Attribute[] visitAttributes = {
+            AttributesManager.myLateralSpeed,
+            AttributesManager.myAcceleration,
+            AttributesManager.distBetween,
+            AttributesManager.myDistToForwardWall,
+    };
+
+    public void testRoundTrip() throws IOException {
+        final Random rnd = new Random(1);
+        final MultiRangeIndex<UndirectedGuessFactor> hitIndex = createIndex(hitAttributes, 300, rnd);
+        final MultiRangeIndex<UndirectedGuessFactor> visitIndex = createIndex(visitAttributes, 3000, rnd);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EnemyGunLogsStore.write(out, "Enemy", hitIndex, visitIndex, Integer.MAX_VALUE);
+
+        final MultiRangeIndex<UndirectedGuessFactor> restoredHitIndex = new MultiRangeIndex<UndirectedGuessFactor>(hitAttributes, 5);
+        final MultiRangeIndex<UndirectedGuessFactor> restoredVisitIndex = new MultiRangeIndex<UndirectedGuessFactor>(visitAttributes, 5);
+        assertFalse(EnemyGunLogsStore.read(new ByteArrayInputStream(out.toByteArray()), "Other enemy", restoredHitIndex, restoredVisitIndex));
+        assertEquals(0, restoredHitIndex.size());
+        assertTrue(EnemyGunLogsStore.read(new ByteArrayInputStream(out.toByteArray()), "Enemy", restoredHitIndex, restoredVisitIndex));
+
+        checkRestored(hitIndex, restoredHitIndex, rnd);
+        checkRestored(visitIndex, restoredVisitIndex, rnd);
+    }
+
+    public void testIncompatibleAttributes() throws IOException {
+        final Random rnd = new Random(2);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EnemyGunLogsStore.write(out, "Enemy", createIndex(hitAttributes, 10, rnd), createIndex(visitAttributes, 10, rnd), Integer.MAX_VALUE);
+
+        final MultiRangeIndex<UndirectedGuessFactor> restoredHitIndex = new MultiRangeIndex<UndirectedGuessFactor>(visitAttributes, 5);
+        final MultiRangeIndex<UndirectedGuessFactor> restoredVisitIndex = new MultiRangeIndex<UndirectedGuessFactor>(visitAttributes, 5);
+        assertFalse(EnemyGunLogsStore.read(new ByteArrayInputStream(out.toByteArray()), "Enemy", restoredHitIndex, restoredVisitIndex));
+        assertEquals(0, restoredHitIndex.size());
+        assertEquals(0, restoredVisitIndex.size());
+    }
+
+    public void testCorruptEntriesCount() throws IOException {
+        final Random rnd = new Random(5);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EnemyGunLogsStore.write(out, "Enemy", createIndex(hitAttributes, 0, rnd), createIndex(visitAttributes, 10, rnd), Integer.MAX_VALUE);
+        final byte[] data = ungzip(out.toByteArray());
+
+        // magic, version, enemy name, attributes count and names of hit log
+        int entriesCountPos = 4 + 1 + 2 + "Enemy".length() + 1;
+        for (Attribute a : hitAttributes) {
+            entriesCountPos += 2 + a.getName().length();
+        }
+        assertEquals(0, data[entriesCountPos]);
+
+        // varints of -1 and of 5001
+        final byte[][] corruptCounts = {{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, {(byte) 0x89, 0x27}};
+        for (byte[] corruptCount : corruptCounts) {
+            final ByteArrayOutputStream corruptData = new ByteArrayOutputStream();
+            final DataOutputStream dataOut = new DataOutputStream(new GZIPOutputStream(corruptData));
+            dataOut.write(data, 0, entriesCountPos);
+            dataOut.write(corruptCount);
+            dataOut.write(data, entriesCountPos + 1, data.length - entriesCountPos - 1);
+            dataOut.close();
+
+            final MultiRangeIndex<UndirectedGuessFactor> restoredHitIndex = new MultiRangeIndex<UndirectedGuessFactor>(hitAttributes, 5);
+            final MultiRangeIndex<UndirectedGuessFactor> restoredVisitIndex = new MultiRangeIndex<UndirectedGuessFactor>(visitAttributes, 5);
+            assertFalse(EnemyGunLogsStore.read(new ByteArrayInputStream(corruptData.toByteArray()), "Enemy", restoredHitIndex, restoredVisitIndex));
+            assertEquals(0, restoredHitIndex.size());
+            assertEquals(0, restoredVisitIndex.size());
+        }
+    }
+
+    public void testSizePer1kEntries() throws IOException {
+        final Random rnd = new Random(3);
+        final MultiRangeIndex<UndirectedGuessFactor> hitIndex = createIndex(hitAttributes, 0, rnd);
+        final MultiRangeIndex<UndirectedGuessFactor> visitIndex = createIndex(visitAttributes, 10000, rnd);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EnemyGunLogsStore.write(out, "Enemy", hitIndex, visitIndex, Integer.MAX_VALUE);
+        final double bytesPer1kEntries = out.size() * 1000D / visitIndex.size();
+        System.out.printf("Enemy gun logs: %.0f bytes per 1k entries\n", bytesPer1kEntries);
+        // raw doubles take 8 bytes per attribute
+        assertTrue(bytesPer1kEntries < 8000);
+    }
+
+    public void testEviction() throws IOException {
+        final File dir = new File(System.getProperty("java.io.tmpdir"), "aegm-test-" + System.nanoTime());
+        assertTrue(dir.mkdirs());
+        try {
+            final Random rnd = new Random(4);
+            final MultiRangeIndex<UndirectedGuessFactor> hitIndex = createIndex(hitAttributes, 100, rnd);
+            final MultiRangeIndex<UndirectedGuessFactor> visitIndex = createIndex(visitAttributes, 1000, rnd);
+            final int size = EnemyGunLogsStore.encode("Enemy 1", hitIndex, visitIndex, Integer.MAX_VALUE).length;
+            final long budget = size * 5 / 2;
+
+            assertTrue(EnemyGunLogsStore.save(dir, "Enemy 1", hitIndex, visitIndex, budget, Integer.MAX_VALUE));
+            EnemyGunLogsStore.getFile(dir, "Enemy 1").setLastModified(1000);
+            assertTrue(EnemyGunLogsStore.save(dir, "Enemy 2", hitIndex, visitIndex, budget, Integer.MAX_VALUE));
+            EnemyGunLogsStore.getFile(dir, "Enemy 2").setLastModified(2000);
+            assertTrue(EnemyGunLogsStore.save(dir, "Enemy 3", hitIndex, visitIndex, budget, Integer.MAX_VALUE));
+
+            assertFalse(EnemyGunLogsStore.getFile(dir, "Enemy 1").exists());
+            assertTrue(EnemyGunLogsStore.getFile(dir, "Enemy 2").exists());
+            assertTrue(EnemyGunLogsStore.getFile(dir, "Enemy 3").exists());
+
+            // entries are trimmed, when all entries don't fit in budget
+            assertTrue(EnemyGunLogsStore.save(dir, "Enemy 3", hitIndex, visitIndex, size / 2, Integer.MAX_VALUE));
+            assertFalse(EnemyGunLogsStore.getFile(dir, "Enemy 2").exists());
+            final MultiRangeIndex<UndirectedGuessFactor> restoredHitIndex = new MultiRangeIndex<UndirectedGuessFactor>(hitAttributes, 5);
+            final MultiRangeIndex<UndirectedGuessFactor> restoredVisitIndex = new MultiRangeIndex<UndirectedGuessFactor>(visitAttributes, 5);
+            assertTrue(EnemyGunLogsStore.load(dir, "Enemy 3", restoredHitIndex, restoredVisitIndex));
+            assertTrue(restoredVisitIndex.size() > 0 && restoredVisitIndex.size() < visitIndex.size());
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static byte[] ungzip(byte[] data) throws IOException {
+        final GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    // entries are added not in order of round time, like bullets, which hit not in order of fire
+    private static MultiRangeIndex<UndirectedGuessFactor> createIndex(Attribute[] attributes, int entriesCount, Random rnd) {
+        final List<Integer> roundTimes = new ArrayList<Integer>();
+        for (int i = 0; i < entriesCount; i++) {
+            roundTimes.add(-1000000 + i * 7);
+        }
+        Collections.shuffle(roundTimes, rnd);
+
+        final MultiRangeIndex<UndirectedGuessFactor> index = new MultiRangeIndex<UndirectedGuessFactor>(attributes, 5);
+        for (int roundTime : roundTimes) {
+            final double[] data = new double[AttributesManager.attributesCount()];
+            for (Attribute a : attributes) {
+                data[a.getId()] = a.getMinValue() + rnd.nextDouble() * (a.getMaxValue() - a.getMinValue());
+            }
+            final PSTreeEntry<UndirectedGuessFactor> entry = new PSTreeEntry<UndirectedGuessFactor>(TurnSnapshot.createDetached(data, roundTime));
+            entry.result = new UndirectedGuessFactor(rnd.nextDouble() * 2 - 1, rnd.nextInt(3) - 1);
+            index.addEntry(entry);
+        }
+        return index;
+    }
+
+    private static void checkRestored(MultiRangeIndex<UndirectedGuessFactor> index, MultiRangeIndex<UndirectedGuessFactor> restoredIndex, Random rnd) {
+        assertEquals(index.size(), restoredIndex.size());
+        final Attribute[] attributes = index.getAttributes();
+        final int allAttributesMask = (1 << attributes.length) - 1;
+        final List<PSTreeEntry<UndirectedGuessFactor>> entries = new ArrayList<PSTreeEntry<UndirectedGuessFactor>>();
+        final List<PSTreeEntry<UndirectedGuessFactor>> restoredEntries = new ArrayList<PSTreeEntry<UndirectedGuessFactor>>();
+        final int[] from = new int[attributes.length];
+        final int[] to = new int[attributes.length];
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < attributes.length; j++) {
+                final int a = (int) (attributes[j].getMinValue() + rnd.nextDouble() * (attributes[j].getMaxValue() - attributes[j].getMinValue()));
+                final int b = (int) (attributes[j].getMinValue() + rnd.nextDouble() * (attributes[j].getMaxValue() - attributes[j].getMinValue()));
+                from[j] = Math.min(a, b);
+                to[j] = Math.max(a, b);
+            }
+            final int mask = 1 + rnd.nextInt(allAttributesMask);
+            index.prepareQuery(from, to);
+            restoredIndex.prepareQuery(from, to);
+            entries.clear();
+            restoredEntries.clear();
+            index.getMostRecentEntries(mask, 5, entries);
+            restoredIndex.getMostRecentEntries(mask, 5, restoredEntries);
+
+            assertEquals(entries.size(), restoredEntries.size());
+            for (int j = 0; j < entries.size(); j++) {
+                final PSTreeEntry<UndirectedGuessFactor> entry = entries.get(j);
+                final PSTreeEntry<UndirectedGuessFactor> restoredEntry = restoredEntries.get(j);
+                for (Attribute a : attributes) {
+                    assertEquals(entry.predicate.getRoundedAttrValue(a), restoredEntry.predicate.getRoundedAttrValue(a));
+                }
+                assertEquals(entry.result.guessFactor, restoredEntry.result.guessFactor, 0.0005);
+                assertEquals(entry.result.lateralDirection, restoredEntry.result.lateralDirection);
+                assertTrue(restoredEntry.predicate.roundTime < 0);
+                assertNull(restoredEntry.predicate.next());
+            }
+        }
+    }
+
+}
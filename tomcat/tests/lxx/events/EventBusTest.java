@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.events;
+
+import junit.framework.TestCase;
+import robocode.Event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EventBusTest extends TestCase {
+
+    public void testDispatchOrder() {
+        final EventBus eventBus = new EventBus();
+        final List<String> calls = new ArrayList<String>();
+        eventBus.subscribe(TickEvent.class, 1, new RecordingHandler<TickEvent>(calls, "low tick"));
+        eventBus.subscribe(Event.class, 2, new RecordingHandler<Event>(calls, "any"));
+        eventBus.subscribe(TickEvent.class, 3, new RecordingHandler<TickEvent>(calls, "high tick"));
+        eventBus.subscribe(LXXKeyEvent.class, 3, new RecordingHandler<LXXKeyEvent>(calls, "key"));
+        eventBus.subscribe(TickEvent.class, 3, new RecordingHandler<TickEvent>(calls, "second high tick"));
+
+        eventBus.publish(new TickEvent(0));
+        assertEquals(Arrays.asList("high tick", "second high tick", "any", "low tick"), calls);
+
+        calls.clear();
+        eventBus.publish(new LXXKeyEvent('a'));
+        assertEquals(Arrays.asList("key", "any"), calls);
+
+        // resolved handlers must be updated by new subscription
+        calls.clear();
+        eventBus.subscribe(TickEvent.class, 2, new RecordingHandler<TickEvent>(calls, "new tick"));
+        eventBus.publish(new TickEvent(1));
+        assertEquals(Arrays.asList("high tick", "second high tick", "any", "new tick", "low tick"), calls);
+    }
+
+    private static class RecordingHandler<T extends Event> implements EventHandler<T> {
+
+        private final List<String> calls;
+        private final String name;
+
+        private RecordingHandler(List<String> calls, String name) {
+            this.calls = calls;
+            this.name = name;
+        }
+
+        public void handle(T event) {
+            calls.add(name);
+        }
+    }
+
+}
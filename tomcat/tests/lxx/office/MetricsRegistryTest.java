@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.office;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class MetricsRegistryTest extends TestCase {
+
+    public void testRegistration() {
+        final MetricsRegistry.Counter counter = MetricsRegistry.counter("Test registration counter");
+        assertSame(counter, MetricsRegistry.counter("Test registration counter"));
+        try {
+            MetricsRegistry.gauge("Test registration counter");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testRoundSnapshots() {
+        final MetricsRegistry.Counter counter = MetricsRegistry.counter("Test counter");
+        final MetricsRegistry.Gauge gauge = MetricsRegistry.gauge("Test gauge");
+        final MetricsRegistry.Histogram histogram = MetricsRegistry.histogram("Test histogram");
+
+        counter.add(3);
+        gauge.set(1.5);
+        histogram.record(10);
+        MetricsRegistry.roundFinished(0);
+
+        counter.inc();
+        gauge.set(2);
+        MetricsRegistry.roundFinished(1);
+        assertEquals(4, counter.get());
+        assertEquals(0, counter.getRoundValue());
+
+        final List<String> snapshots = MetricsRegistry.getRoundSnapshots();
+        final List<String> header = Arrays.asList(snapshots.get(snapshots.size() - 3).split("\t"));
+        final String[] round0 = snapshots.get(snapshots.size() - 2).split("\t");
+        final String[] round1 = snapshots.get(snapshots.size() - 1).split("\t");
+        assertEquals("#round", header.get(0));
+        assertEquals("0", round0[0]);
+        assertEquals("1", round1[0]);
+
+        assertEquals("3", round0[header.indexOf("Test counter")]);
+        assertEquals("1", round1[header.indexOf("Test counter")]);
+        assertEquals("1.500", round0[header.indexOf("Test gauge")]);
+        assertEquals("2", round1[header.indexOf("Test gauge")]);
+        assertEquals("1", round0[header.indexOf("Test histogram.count")]);
+        assertEquals("10", round0[header.indexOf("Test histogram.max")]);
+        assertEquals("0", round1[header.indexOf("Test histogram.count")]);
+        assertEquals(1, histogram.getBattleValues().getCount());
+    }
+
+    public void testDifference() {
+        final MetricsRegistry.Counter minuend = MetricsRegistry.counter("Test minuend");
+        final MetricsRegistry.Counter subtrahend = MetricsRegistry.counter("Test subtrahend");
+        final MetricsRegistry.Difference difference = MetricsRegistry.difference("Test difference", minuend, subtrahend);
+        assertSame(difference, MetricsRegistry.difference("Test difference", minuend, subtrahend));
+
+        minuend.add(5);
+        subtrahend.add(2);
+        MetricsRegistry.roundFinished(0);
+        subtrahend.inc();
+
+        assertEquals(2, difference.get());
+        assertEquals(-1, difference.getRoundValue());
+        final List<String> snapshots = MetricsRegistry.getRoundSnapshots();
+        final List<String> header = Arrays.asList(snapshots.get(snapshots.size() - 2).split("\t"));
+        assertEquals("3", snapshots.get(snapshots.size() - 1).split("\t")[header.indexOf("Test difference")]);
+    }
+
+}
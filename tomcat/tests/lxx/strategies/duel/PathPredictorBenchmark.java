@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.strategies.duel;
+
+import lxx.StubRobot;
+import lxx.bullets.LXXBullet;
+import lxx.bullets.PastBearingOffset;
+import lxx.bullets.enemy.EnemyBulletPredictionData;
+import lxx.targeting.TargetManager;
+import lxx.utils.*;
+import lxx.utils.wave.Wave;
+import robocode.Bullet;
+import robocode.Rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs PathPredictor and SurfPlanSearch on random synthetic wave surfing situations and reports predictions per second
+ */
+public class PathPredictorBenchmark {
+
+    private static final int SITUATIONS_COUNT = 1000;
+    private static final long RUN_TIME = 2000000000L;
+
+    static final BattleField battleField = new BattleField(LXXConstants.ROBOT_SIDE_HALF_SIZE, LXXConstants.ROBOT_SIDE_HALF_SIZE,
+            800 - LXXConstants.ROBOT_SIDE_SIZE, 600 - LXXConstants.ROBOT_SIDE_SIZE);
+
+    public static void main(String[] args) {
+        QuickMath.init();
+        final Random random = new Random(1);
+        final Situation[] situations = new Situation[SITUATIONS_COUNT];
+        for (int i = 0; i < situations.length; i++) {
+            situations[i] = createSituation(random);
+        }
+
+        final DistanceController distanceController = new DistanceController(null, null, new TargetManager(null), null);
+        final PathPredictor predictor = new PathPredictor(distanceController, battleField);
+        final PredictedPath path = new PredictedPath();
+
+        for (int run = 0; run < 3; run++) {
+            long predictions = 0;
+            long points = 0;
+            final long start = System.nanoTime();
+            while (System.nanoTime() - start < RUN_TIME) {
+                for (Situation s : situations) {
+                    predictor.predict(path, s.robot, s.opponent, WaveSurfingMovement.OrbitDirection.CLOCKWISE, s.bullets);
+                    points += path.size();
+                    predictor.predict(path, s.robot, s.opponent, WaveSurfingMovement.OrbitDirection.COUNTER_CLOCKWISE, s.bullets);
+                    points += path.size();
+                    predictions++;
+                }
+            }
+            final double seconds = (System.nanoTime() - start) / 1E9;
+            System.out.printf("%8.0f two-direction predictions/sec, %5.1f points per direction\n",
+                    predictions / seconds, points / (predictions * 2D));
+        }
+
+        final SurfPlanSearch surfPlanSearch = new SurfPlanSearch(predictor, Long.MAX_VALUE);
+        for (int run = 0; run < 3; run++) {
+            long searches = 0;
+            final long start = System.nanoTime();
+            while (System.nanoTime() - start < RUN_TIME) {
+                for (Situation s : situations) {
+                    predictor.predict(path, s.robot, s.opponent, WaveSurfingMovement.OrbitDirection.CLOCKWISE, s.bullets);
+                    surfPlanSearch.search(s.robot, s.opponent, s.bullets, WaveSurfingMovement.OrbitDirection.CLOCKWISE,
+                            path.size() / 2, path.size());
+                    searches++;
+                }
+            }
+            final double seconds = (System.nanoTime() - start) / 1E9;
+            System.out.printf("%8.0f surf plan searches/sec\n", searches / seconds);
+        }
+    }
+
+    static Situation createSituation(Random random) {
+        final Situation s = new Situation();
+        final double robotX = 100 + random.nextDouble() * 600;
+        final double robotY = 100 + random.nextDouble() * 400;
+        s.robot = new RobotImage(new LXXPoint(robotX, robotY), random.nextDouble() * 16 - 8, random.nextDouble() * LXXConstants.RADIANS_360,
+                battleField, 0, 100);
+
+        final LXXPoint opponentPos = new LXXPoint(LXXUtils.limit(battleField.availableLeftX, random.nextDouble() * 800, battleField.availableRightX),
+                LXXUtils.limit(battleField.availableBottomY, random.nextDouble() * 600, battleField.availableTopY));
+        s.opponent = new RobotImage(opponentPos, random.nextDouble() * 16 - 8, random.nextDouble() * LXXConstants.RADIANS_360,
+                battleField, 0, 100);
+
+        final long time = 100;
+        final int bulletsCount = 1 + random.nextInt(2);
+        for (int i = 0; i < bulletsCount; i++) {
+            final double bulletPower = 0.1 + random.nextDouble() * 2.9;
+            final double bulletSpeed = Rules.getBulletSpeed(bulletPower);
+            final double distance = opponentPos.aDistance(s.robot);
+            final long launchTime = time - (long) (random.nextDouble() * distance / 2 / bulletSpeed);
+            final StubRobot source = new StubRobot(opponentPos.getX(), opponentPos.getY());
+            source.setTime(time);
+            final Wave wave = new Wave(source.getState(), s.robot, bulletSpeed, launchTime);
+
+            final List<PastBearingOffset> bearingOffsets = new ArrayList<PastBearingOffset>();
+            for (int j = 0; j < 30; j++) {
+                bearingOffsets.add(new PastBearingOffset(null, random.nextGaussian() * LXXConstants.RADIANS_20, random.nextDouble()));
+            }
+            final Bullet bullet = new Bullet(opponentPos.angleTo(s.robot), opponentPos.getX(), opponentPos.getY(), bulletPower,
+                    "opponent", "robot", true, -1);
+            s.bullets.add(new LXXBullet(bullet, wave, new EnemyBulletPredictionData(bearingOffsets, 0, launchTime)));
+        }
+
+        return s;
+    }
+
+    static class Situation {
+
+        RobotImage robot;
+        RobotImage opponent;
+        final List<LXXBullet> bullets = new ArrayList<LXXBullet>();
+
+    }
+
+}
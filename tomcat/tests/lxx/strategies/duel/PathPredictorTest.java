@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.strategies.duel;
+
+import junit.framework.TestCase;
+import lxx.LXXRobot;
+import lxx.LXXRobotState;
+import lxx.bullets.LXXBullet;
+import lxx.strategies.MovementDecision;
+import lxx.targeting.TargetManager;
+import lxx.utils.*;
+import robocode.Rules;
+import robocode.util.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Math.*;
+
+public class PathPredictorTest extends TestCase {
+
+    static {
+        QuickMath.init();
+    }
+
+    private final DistanceController distanceController = new DistanceController(null, null, new TargetManager(null), null);
+    private final BattleField battleField = PathPredictorBenchmark.battleField;
+
+    public void testPredictionMatchesPerTickPrediction() {
+        final Random random = new Random(1);
+        final PathPredictor predictor = new PathPredictor(distanceController, battleField);
+        final PredictedPath path = new PredictedPath();
+        int pointsCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            final PathPredictorBenchmark.Situation s = PathPredictorBenchmark.createSituation(random);
+            RobotImage opponent = random.nextInt(5) == 0 ? null : s.opponent;
+            if (opponent != null && random.nextInt(3) == 0) {
+                // close opponent, so robot stops to avoid collision
+                final APoint pos = s.robot.project(random.nextDouble() * LXXConstants.RADIANS_360, 40 + random.nextDouble() * 60);
+                opponent = new RobotImage(new LXXPoint(LXXUtils.limit(battleField.availableLeftX, pos.getX(), battleField.availableRightX),
+                        LXXUtils.limit(battleField.availableBottomY, pos.getY(), battleField.availableTopY)),
+                        opponent.getVelocity(), opponent.getHeadingRadians(), battleField, 0, 100);
+            }
+            for (WaveSurfingMovement.OrbitDirection orbitDirection : WaveSurfingMovement.OrbitDirection.values()) {
+                predictor.predict(path, s.robot, opponent, orbitDirection, s.bullets);
+                final List<double[]> expectedPath = predictPerTick(s.robot, opponent, orbitDirection, s.bullets);
+
+                assertEquals(expectedPath.size(), path.size());
+                for (int j = 0; j < path.size(); j++) {
+                    assertEquals(expectedPath.get(j)[0], path.getX(j), 1E-9);
+                    assertEquals(expectedPath.get(j)[1], path.getY(j), 1E-9);
+                    assertEquals(expectedPath.get(j)[2], path.getDanger(j), 1E-9);
+                }
+                pointsCount += path.size();
+            }
+        }
+        assertTrue(pointsCount > 0);
+    }
+
+    /**
+     * Prediction, which creates movement decision and images of robots in each tick, as WaveSurfingMovement did
+     *
+     * @return x, y and danger of each point
+     */
+    private List<double[]> predictPerTick(LXXRobotState robot, LXXRobotState opponent,
+                                          WaveSurfingMovement.OrbitDirection orbitDirection, List<LXXBullet> bullets) {
+        final LXXBullet bullet = bullets.get(0);
+        final List<double[]> points = new ArrayList<double[]>();
+
+        final PointImage robotImg = new PointImage(new LXXPoint(robot), robot.getVelocity(), robot.getHeadingRadians(), battleField);
+        final PointImage opponentImg = opponent == null ? null
+                : new PointImage(new LXXPoint(opponent), opponent.getVelocity(), opponent.getHeadingRadians(), battleField);
+        int time = 0;
+        final APoint surfPoint = opponentImg != null ? opponentImg : bullet.getFirePosition();
+        final double travelledDistance = bullet.getTravelledDistance();
+        final APoint firePosition = bullet.getFirePosition();
+        while (firePosition.aDistance(robotImg) - travelledDistance > bullet.getSpeed() * time) {
+            final MovementDecision md = getMovementDecision(surfPoint, orbitDirection, robotImg, opponentImg, 8, bullets);
+            if (opponentImg != null) {
+                opponentImg.apply(new MovementDecision(Rules.MAX_VELOCITY * signum(opponentImg.getVelocity()), 0));
+            }
+            robotImg.apply(md);
+            points.add(new double[]{robotImg.getX(), robotImg.getY(), getPointDanger(bullets, robotImg, opponentImg, robot)});
+            time++;
+        }
+
+        return points;
+    }
+
+    private MovementDecision getMovementDecision(APoint surfPoint, WaveSurfingMovement.OrbitDirection orbitDirection,
+                                                 LXXRobotState robot, LXXRobotState opponent, double desiredSpeed, List<LXXBullet> bulletsOnAir) {
+        double desiredHeading = distanceController.getDesiredHeading(surfPoint, robot, orbitDirection, bulletsOnAir);
+        desiredHeading = battleField.smoothWalls(robot, desiredHeading, orbitDirection == WaveSurfingMovement.OrbitDirection.CLOCKWISE);
+
+        double direction = robot.getAbsoluteHeadingRadians();
+        if (LXXUtils.anglesDiff(direction, desiredHeading) > LXXConstants.RADIANS_90) {
+            direction = Utils.normalAbsoluteAngle(direction + LXXConstants.RADIANS_180);
+        }
+        if (opponent != null &&
+                ((LXXUtils.anglesDiff(direction, robot.angleTo(opponent)) < LXXUtils.getRobotWidthInRadians(robot, opponent) * 1.1) ||
+                        LXXUtils.getBoundingRectangleAt(robot.project(direction, desiredSpeed), LXXConstants.ROBOT_SIDE_SIZE / 2 - 2).intersects(LXXUtils.getBoundingRectangleAt(opponent)))) {
+            desiredSpeed = 0;
+        }
+
+        return toMovementDecision(robot, desiredSpeed, desiredHeading);
+    }
+
+    private static MovementDecision toMovementDecision(LXXRobotState robot, double desiredSpeed, double desiredHeading) {
+        if (desiredSpeed > Rules.MAX_VELOCITY) {
+            desiredSpeed = Rules.MAX_VELOCITY;
+        }
+
+        final boolean wantToGoFront = LXXUtils.anglesDiff(robot.getHeadingRadians(), desiredHeading) < LXXConstants.RADIANS_90;
+        final double normalizedDesiredHeading = wantToGoFront ? desiredHeading : Utils.normalAbsoluteAngle(desiredHeading + LXXConstants.RADIANS_180);
+
+        final double turnRemaining = Utils.normalRelativeAngle(normalizedDesiredHeading - robot.getHeadingRadians());
+        final double turnRateRadians =
+                LXXUtils.limit(-Rules.getTurnRateRadians(robot.getSpeed()),
+                        turnRemaining,
+                        Rules.getTurnRateRadians(robot.getSpeed()));
+
+        final double futureHeading;
+        if (robot.getVelocity() > 0 || (robot.getVelocity() == 0 && wantToGoFront)) {
+            futureHeading = robot.getHeadingRadians() + turnRateRadians;
+        } else {
+            futureHeading = Utils.normalAbsoluteAngle(robot.getHeadingRadians() + turnRateRadians + LXXConstants.RADIANS_180);
+        }
+        final BattleField.Wall w = robot.getBattleField().getWall(robot, futureHeading);
+        final double distanceToWall = robot.getBattleField().getDistanceToWall(w, robot) / abs(QuickMath.cos(futureHeading - w.wallType.fromCenterAngle));
+        final double velocity = robot.getVelocity();
+        final double futureSpeed;
+        if ((velocity > 0 && wantToGoFront) || (velocity < 0 && !wantToGoFront)) {
+            futureSpeed = LXXUtils.limit(max(0, abs(velocity) - Rules.DECELERATION),
+                    desiredSpeed - abs(velocity), min(Rules.MAX_VELOCITY, abs(velocity) + Rules.ACCELERATION));
+        } else if (velocity == 0) {
+            futureSpeed = min(desiredSpeed, Rules.ACCELERATION);
+        } else {
+            futureSpeed = max(0, abs(velocity) - Rules.DECELERATION);
+        }
+        if (distanceToWall - 4 < LXXUtils.getStopDistance(futureSpeed) + futureSpeed) {
+            desiredSpeed = 0;
+        }
+
+        return new MovementDecision(desiredSpeed * (wantToGoFront ? 1 : -1), turnRateRadians);
+    }
+
+    private double getPointDanger(List<LXXBullet> bullets, APoint pnt, LXXRobotState opponent, LXXRobotState robot) {
+        final double firstWaveDanger = getWaveDanger(pnt, bullets.get(0));
+        final double secondWaveDanger = bullets.size() == 1 ? 0 : getWaveDanger(pnt, bullets.get(1));
+        double enemyAttackAngle = opponent == null
+                ? LXXConstants.RADIANS_90
+                : LXXUtils.anglesDiff(opponent.angleTo(robot), robot.getAbsoluteHeadingRadians());
+        if (enemyAttackAngle > LXXConstants.RADIANS_90) {
+            enemyAttackAngle = abs(enemyAttackAngle - LXXConstants.RADIANS_180);
+        }
+        return firstWaveDanger * 90 +
+                secondWaveDanger * 10 +
+                battleField.center.aDistance(robot) / 800 * 3 +
+                (LXXConstants.RADIANS_90 - enemyAttackAngle) * 2;
+    }
+
+    private static double getWaveDanger(APoint pnt, LXXBullet bullet) {
+        final double bearingOffset = LXXUtils.bearingOffset(bullet.getFirePosition(), bullet.getTargetStateAtFireTime(), pnt);
+        final double robotWidthInRadians = LXXUtils.getRobotWidthInRadians(bullet.getFirePosition(), pnt);
+
+        return bullet.getDangerProfile().getDanger(bearingOffset, robotWidthInRadians);
+    }
+
+    /**
+     * Image of robot, which creates new position every tick
+     */
+    private static class PointImage implements LXXRobotState {
+
+        private APoint position;
+        private double velocity;
+        private double heading;
+        private final BattleField battleField;
+
+        private PointImage(APoint position, double velocity, double heading, BattleField battleField) {
+            this.position = position;
+            this.velocity = velocity;
+            this.heading = heading;
+            this.battleField = battleField;
+        }
+
+        public void apply(MovementDecision movementDecision) {
+            heading = Utils.normalAbsoluteAngle(heading + movementDecision.getTurnRateRadians());
+            if (abs(signum(velocity) - signum(movementDecision.getDesiredVelocity())) <= 1) {
+                final double acceleration = LXXUtils.limit(-Rules.DECELERATION, abs(movementDecision.getDesiredVelocity()) - abs(velocity), Rules.ACCELERATION);
+                velocity = (abs(velocity) + acceleration) * signum(movementDecision.getDesiredVelocity());
+            } else if (abs(velocity) > Rules.DECELERATION) {
+                velocity -= Rules.DECELERATION * signum(velocity);
+            } else {
+                velocity = 0;
+            }
+
+            position = position.project(velocity >= 0 ? heading : Utils.normalAbsoluteAngle(heading + LXXConstants.RADIANS_180), abs(velocity));
+        }
+
+        public double getX() {
+            return position.getX();
+        }
+
+        public double getY() {
+            return position.getY();
+        }
+
+        public double aDistance(APoint p) {
+            return position.aDistance(p);
+        }
+
+        public double angleTo(APoint pnt) {
+            return position.angleTo(pnt);
+        }
+
+        public APoint project(double alpha, double distance) {
+            return position.project(alpha, distance);
+        }
+
+        public APoint project(DeltaVector dv) {
+            return position.project(dv);
+        }
+
+        public double getAbsoluteHeadingRadians() {
+            return signum(velocity) >= 0 ? heading : Utils.normalAbsoluteAngle(heading + Math.PI);
+        }
+
+        public double getTurnRateRadians() {
+            return 0;
+        }
+
+        public double getSpeed() {
+            return abs(velocity);
+        }
+
+        public LXXRobot getRobot() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getHeadingRadians() {
+            return heading;
+        }
+
+        public BattleField getBattleField() {
+            return battleField;
+        }
+
+        public double getVelocity() {
+            return velocity;
+        }
+
+        public double getEnergy() {
+            return 100;
+        }
+    }
+
+}
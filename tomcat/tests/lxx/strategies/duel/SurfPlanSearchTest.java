@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.strategies.duel;
+
+import junit.framework.TestCase;
+import lxx.targeting.TargetManager;
+import lxx.utils.QuickMath;
+
+import java.util.Random;
+
+import static java.lang.Math.min;
+
+public class SurfPlanSearchTest extends TestCase {
+
+    private static final int MAX_HORIZON = 16;
+
+    static {
+        QuickMath.init();
+    }
+
+    private final PathPredictor predictor = new PathPredictor(new DistanceController(null, null, new TargetManager(null), null),
+            PathPredictorBenchmark.battleField);
+
+    public void testSearchMatchesExhaustiveSearch() {
+        final Random random = new Random(1);
+        final PredictedPath path = new PredictedPath();
+        final SurfPlanSearch search = new SurfPlanSearch(predictor, Long.MAX_VALUE);
+        int searchesCount = 0;
+        for (int i = 0; i < 300; i++) {
+            final PathPredictorBenchmark.Situation s = PathPredictorBenchmark.createSituation(random);
+            final WaveSurfingMovement.OrbitDirection preferredDirection = WaveSurfingMovement.OrbitDirection.values()[random.nextInt(2)];
+            predictor.predict(path, s.robot, s.opponent, preferredDirection, s.bullets);
+            final int horizon = min(path.size(), MAX_HORIZON);
+            if (horizon == 0) {
+                continue;
+            }
+            final int preferredStopTick = random.nextInt(horizon);
+
+            assertTrue(search.search(s.robot, s.opponent, s.bullets, preferredDirection, preferredStopTick, horizon));
+
+            final double expectedDanger = getMinDanger(s, preferredDirection, preferredStopTick, horizon);
+            assertEquals(expectedDanger, search.getDanger(), 1E-9);
+            // found plan really has found danger
+            assertEquals(search.getDanger(), predictor.getPlanDanger(s.robot, s.opponent, search.getOrbitDirection(),
+                    search.getReverseTick(), search.getStopTick(), s.bullets, Double.POSITIVE_INFINITY), 1E-9);
+            searchesCount++;
+        }
+        assertTrue(searchesCount > 0);
+    }
+
+    public void testSearchIsAbortedWhenBudgetIsExhausted() {
+        final Random random = new Random(2);
+        final PredictedPath path = new PredictedPath();
+        final SurfPlanSearch search = new SurfPlanSearch(predictor, 1);
+        for (int i = 0; i < 20; i++) {
+            final PathPredictorBenchmark.Situation s = PathPredictorBenchmark.createSituation(random);
+            predictor.predict(path, s.robot, s.opponent, WaveSurfingMovement.OrbitDirection.CLOCKWISE, s.bullets);
+            if (path.size() < 8) {
+                continue;
+            }
+
+            assertFalse(search.search(s.robot, s.opponent, s.bullets, WaveSurfingMovement.OrbitDirection.CLOCKWISE,
+                    path.size() / 2, path.size()));
+            // plan found before abort is still valid
+            assertEquals(search.getDanger(), predictor.getPlanDanger(s.robot, s.opponent, search.getOrbitDirection(),
+                    search.getReverseTick(), search.getStopTick(), s.bullets, Double.POSITIVE_INFINITY), 1E-9);
+        }
+    }
+
+    // evaluates all plans without bound
+    private double getMinDanger(PathPredictorBenchmark.Situation s, WaveSurfingMovement.OrbitDirection preferredDirection,
+                                int preferredStopTick, int horizon) {
+        double minDanger = predictor.getPlanDanger(s.robot, s.opponent, preferredDirection, SurfPlanSearch.NEVER,
+                preferredStopTick, s.bullets, Double.POSITIVE_INFINITY);
+        for (WaveSurfingMovement.OrbitDirection direction : WaveSurfingMovement.OrbitDirection.values()) {
+            for (int reverseTick = 0; reverseTick < horizon; reverseTick++) {
+                for (int stopTick = -1; stopTick < horizon; stopTick++) {
+                    if (reverseTick % 4 != 0 || (stopTick >= 0 && stopTick % 2 != 0)) {
+                        continue;
+                    }
+                    final int candidateReverseTick = reverseTick == 0 ? SurfPlanSearch.NEVER : reverseTick;
+                    final int candidateStopTick = stopTick < 0 ? SurfPlanSearch.NEVER : stopTick;
+                    if (candidateReverseTick != SurfPlanSearch.NEVER && candidateStopTick <= candidateReverseTick) {
+                        continue;
+                    }
+                    minDanger = min(minDanger, predictor.getPlanDanger(s.robot, s.opponent, direction,
+                            candidateReverseTick, candidateStopTick, s.bullets, Double.POSITIVE_INFINITY));
+                }
+            }
+        }
+        return minDanger;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.targeting.tomcat_claws;
+
+import junit.framework.TestCase;
+import lxx.ts_log.TurnSnapshot;
+import lxx.ts_log.TurnSnapshotsStore;
+import lxx.ts_log.attributes.AttributesManager;
+import lxx.utils.BattleField;
+import lxx.utils.LXXPoint;
+import lxx.utils.QuickMath;
+import robocode.Rules;
+import robocode.util.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Math.*;
+
+public class TomcatClawsTest extends TestCase {
+
+    static {
+        QuickMath.init();
+    }
+
+    private final BattleField battleField = new BattleField(0, 0, 800, 600);
+
+    // points replay projects bullet by table based angle, so near box corners bullet may hit one tick later or earlier
+    public void testAnalyticReplayMatchesPointsReplay() {
+        final Random rnd = new Random(1);
+        final List<TurnSnapshot> starts = createStarts(rnd);
+
+        int mismatchedRuns = 0;
+        for (int run = 0; run < 200; run++) {
+            final LXXPoint targetPos = new LXXPoint(100 + rnd.nextDouble() * 600, 100 + rnd.nextDouble() * 400);
+            LXXPoint robotPos;
+            do {
+                robotPos = new LXXPoint(20 + rnd.nextDouble() * 760, 20 + rnd.nextDouble() * 560);
+            } while (robotPos.aDistance(targetPos) < 100);
+            final double targetHeading = rnd.nextDouble() * 2 * PI;
+            final double bulletSpeed = Rules.getBulletSpeed(0.1 + rnd.nextDouble() * 2.9);
+
+            final TomcatClaws points = replay(TomcatClaws.ReplayMode.POINTS, robotPos, targetPos, targetHeading, starts, bulletSpeed);
+            final TomcatClaws analytic = replay(TomcatClaws.ReplayMode.ANALYTIC, robotPos, targetPos, targetHeading, starts, bulletSpeed);
+            double diff = 0;
+            for (int i = 0; i < points.getBinsDiff().length; i++) {
+                diff += abs(points.getBinsDiff()[i] - analytic.getBinsDiff()[i]);
+            }
+            if (diff > 0) {
+                mismatchedRuns++;
+            }
+            // interval of single path shifted
+            assertTrue(diff <= 4);
+        }
+        assertTrue(mismatchedRuns <= 10);
+    }
+
+    // bullet flies south and enters enemy's box through top edge, which isn't contained by box
+    public void testBulletOnBoxEdge() {
+        final LXXPoint robotPos = new LXXPoint(400, 500);
+        final LXXPoint targetPos = new LXXPoint(400, 300);
+        for (int enemySpeed = -8; enemySpeed <= 8; enemySpeed += 2) {
+            final List<TurnSnapshot> starts = new ArrayList<TurnSnapshot>();
+            starts.add(createLine(targetPos, enemySpeed));
+            for (double bulletSpeed = 11; bulletSpeed <= Rules.getBulletSpeed(Rules.MIN_BULLET_POWER); bulletSpeed += 0.5) {
+                final TomcatClaws points = replay(TomcatClaws.ReplayMode.POINTS, robotPos, targetPos, 0, starts, bulletSpeed);
+                final TomcatClaws analytic = replay(TomcatClaws.ReplayMode.ANALYTIC, robotPos, targetPos, 0, starts, bulletSpeed);
+                assertEquals(points.getLastFuturePoses(), analytic.getLastFuturePoses());
+            }
+        }
+        final List<TurnSnapshot> starts = new ArrayList<TurnSnapshot>();
+        starts.add(createLine(targetPos, -4));
+        // after 21 ticks bullet is at (400, 234) on top edge of enemy at (400, 216), so it hits enemy at next tick
+        final TomcatClaws analytic = replay(TomcatClaws.ReplayMode.ANALYTIC, robotPos, targetPos, 0, starts, 14);
+        assertEquals(Arrays.asList(new LXXPoint(400, 212)), analytic.getLastFuturePoses());
+    }
+
+    private TomcatClaws replay(TomcatClaws.ReplayMode replayMode, LXXPoint robotPos, LXXPoint targetPos, double targetHeading,
+                               List<TurnSnapshot> starts, double bulletSpeed) {
+        final TomcatClaws claws = new TomcatClaws(null, null, null, replayMode);
+        claws.setRobotPosAtFireTime(robotPos);
+        claws.replay(targetPos, targetHeading, starts, bulletSpeed, new DeltaPathsCache(), battleField, true);
+        return claws;
+    }
+
+    // enemy moves along y axis with constant speed
+    private TurnSnapshot createLine(LXXPoint startPos, int speed) {
+        final TurnSnapshotsStore store = new TurnSnapshotsStore(AttributesManager.attributesCount(), 0);
+        final double[] values = new double[AttributesManager.attributesCount()];
+        values[AttributesManager.enemyX.getId()] = startPos.getX();
+        for (int time = 0; time < 100; time++) {
+            values[AttributesManager.enemyY.getId()] = startPos.getY() + speed * time;
+            store.append(values);
+        }
+        return store.get(0);
+    }
+
+    // random walk of enemy, which turns and changes speed as robocode rules allow
+    private List<TurnSnapshot> createStarts(Random rnd) {
+        final TurnSnapshotsStore store = new TurnSnapshotsStore(AttributesManager.attributesCount(), 0);
+        final List<TurnSnapshot> starts = new ArrayList<TurnSnapshot>();
+        final double[] values = new double[AttributesManager.attributesCount()];
+        double x = 400;
+        double y = 300;
+        double heading = 0;
+        double speed = 0;
+        for (int time = 0; time < 3000; time++) {
+            if (rnd.nextDouble() < 0.05) {
+                speed = -speed;
+            }
+            speed = max(-Rules.MAX_VELOCITY, min(Rules.MAX_VELOCITY, speed + (rnd.nextDouble() * 3 - 1) * signum(speed + 0.1)));
+            heading = Utils.normalAbsoluteAngle(heading + (rnd.nextDouble() * 2 - 1) * Rules.getTurnRateRadians(speed));
+            final double newX = x + sin(heading) * speed;
+            final double newY = y + cos(heading) * speed;
+            if (newX < 18 || newX > 782 || newY < 18 || newY > 582) {
+                heading = Utils.normalAbsoluteAngle(heading + PI);
+                speed = 0;
+            } else {
+                x = newX;
+                y = newY;
+            }
+            values[AttributesManager.enemyX.getId()] = x;
+            values[AttributesManager.enemyY.getId()] = y;
+            values[AttributesManager.enemyAbsoluteHeading.getId()] = toDegrees(heading);
+            final TurnSnapshot snapshot = store.append(values);
+            if (time % 10 == 0 && time < 2800) {
+                starts.add(snapshot);
+            }
+        }
+        return starts;
+    }
+
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.ts_log.attributes;
+
+import lxx.LXXRobot;
+import lxx.LXXRobotState;
+import lxx.bullets.LXXBullet;
+import lxx.targeting.tomcat_claws.data_analise.DataViewManager;
+import lxx.ts_log.attributes.attribute_extractors.ExtractionContext;
+import lxx.utils.*;
+import lxx.utils.wave.Wave;
+import robocode.Bullet;
+import robocode.Rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic random duel and extracts attributes of its ticks through ExtractionContext,
+ * reports snapshot builds per second for required attributes and for all attributes
+ */
+public class AttributesExtractionBenchmark {
+
+    private static final int TICKS_COUNT = 5000;
+    private static final long RUN_TIME = 2000000000L;
+    private static final double BULLET_POWER = 2;
+    private static final int FIRE_PERIOD = 16;
+
+    private static final BattleField battleField = new BattleField(LXXConstants.ROBOT_SIDE_HALF_SIZE, LXXConstants.ROBOT_SIDE_HALF_SIZE,
+            800 - LXXConstants.ROBOT_SIDE_SIZE, 600 - LXXConstants.ROBOT_SIDE_SIZE);
+
+    public static void main(String[] args) {
+        QuickMath.init();
+        // data views require their attributes on creation, like in battle
+        new DataViewManager(null, null);
+
+        final Tick[] battle = generateBattle(new Random(1));
+        final BenchmarkContext context = new BenchmarkContext();
+        final double[] values = new double[AttributesManager.attributesCount()];
+        int requiredCount = 0;
+        for (Attribute a : AttributesManager.attributes) {
+            if (AttributesManager.isRequired(a)) {
+                requiredCount++;
+            }
+        }
+
+        for (int run = 0; run < 3; run++) {
+            long snapshots = 0;
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < RUN_TIME) {
+                for (Tick t : battle) {
+                    context.reset(t);
+                    AttributesManager.fillAttributeValues(context, values);
+                    snapshots++;
+                }
+            }
+            final double requiredSeconds = (System.nanoTime() - start) / 1E9;
+
+            long allSnapshots = 0;
+            start = System.nanoTime();
+            while (System.nanoTime() - start < RUN_TIME) {
+                for (Tick t : battle) {
+                    context.reset(t);
+                    for (Attribute a : AttributesManager.attributes) {
+                        values[a.getId()] = context.getAttrValue(a);
+                    }
+                    allSnapshots++;
+                }
+            }
+            final double allSeconds = (System.nanoTime() - start) / 1E9;
+
+            System.out.printf("%8.0f snapshots/sec with %d required attributes, %8.0f snapshots/sec with all %d attributes\n",
+                    snapshots / requiredSeconds, requiredCount, allSnapshots / allSeconds, AttributesManager.attributesCount());
+        }
+    }
+
+    private static Tick[] generateBattle(Random random) {
+        final RobotImage me = new RobotImage(new LXXPoint(200, 300), 0, 0, battleField, 0, 100);
+        final RobotImage enemy = new RobotImage(new LXXPoint(600, 300), 0, LXXConstants.RADIANS_180, battleField, 0, 100);
+        final Motion myMotion = new Motion();
+        final Motion enemyMotion = new Motion();
+        final List<FiredBullet> firedBullets = new ArrayList<FiredBullet>();
+
+        final Tick[] battle = new Tick[TICKS_COUNT];
+        for (int time = 0; time < TICKS_COUNT; time++) {
+            myMotion.move(me, random, time);
+            enemyMotion.move(enemy, random, time);
+
+            final Tick tick = new Tick();
+            tick.me = myMotion.toRobot(me, time);
+            tick.enemy = enemyMotion.toRobot(enemy, time);
+            tick.enemyFireCount = time / FIRE_PERIOD;
+
+            if (time % FIRE_PERIOD == 0) {
+                final FiredBullet b = new FiredBullet();
+                b.wave = new Wave(copy(me), copy(enemy), Rules.getBulletSpeed(BULLET_POWER), time);
+                b.heading = me.angleTo(enemy);
+                firedBullets.add(b);
+            }
+            for (int i = 0; i < firedBullets.size(); i++) {
+                final FiredBullet b = firedBullets.get(i);
+                final double travelledDistance = (time - b.wave.getLaunchTime() + 1) * b.wave.getSpeed();
+                if (travelledDistance > b.wave.getSourcePosAtFireTime().aDistance(enemy) + LXXConstants.ROBOT_SIDE_SIZE) {
+                    firedBullets.remove(i--);
+                    continue;
+                }
+                final APoint pos = b.wave.getSourcePosAtFireTime().project(b.heading, travelledDistance);
+                tick.myBullets.add(new LXXBullet(new Bullet(b.heading, pos.getX(), pos.getY(), BULLET_POWER, "me", "enemy", true, -1),
+                        b.wave, null));
+            }
+            battle[time] = tick;
+        }
+
+        return battle;
+    }
+
+    private static RobotImage copy(RobotImage robot) {
+        return new RobotImage(robot, robot.getVelocity(), robot.getHeadingRadians(), battleField, 0, robot.getEnergy());
+    }
+
+    private static class Tick {
+        private BenchmarkRobot me;
+        private BenchmarkRobot enemy;
+        private final List<LXXBullet> myBullets = new ArrayList<LXXBullet>();
+        private int enemyFireCount;
+    }
+
+    // takes enemy's fire count from generated tick instead of statistics manager
+    private static class BenchmarkContext extends ExtractionContext {
+
+        private int enemyFireCount;
+
+        private BenchmarkContext() {
+            super(AttributesManager.attributesCount());
+        }
+
+        private void reset(Tick tick) {
+            reset(tick.enemy, tick.me, tick.myBullets, null);
+            enemyFireCount = tick.enemyFireCount;
+        }
+
+        public int getEnemyFireCount() {
+            return enemyFireCount;
+        }
+    }
+
+    private static class FiredBullet {
+        private Wave wave;
+        private double heading;
+    }
+
+    // random orbiting with direction changes, which also tracks values of robot's history
+    private static class Motion {
+
+        private final LXXPoint[] positions = new LXXPoint[10];
+
+        private double desiredVelocity = Rules.MAX_VELOCITY;
+        private double turnRate;
+        private double acceleration;
+        private long lastStopTime;
+        private long lastDirChangeTime;
+
+        private void move(RobotImage robot, Random random, long time) {
+            if (random.nextDouble() < 0.05) {
+                desiredVelocity = -desiredVelocity;
+            }
+            if (random.nextDouble() < 0.1) {
+                turnRate = (random.nextDouble() * 2 - 1) * Rules.getTurnRateRadians(robot.getSpeed());
+            }
+            final double prevX = robot.getX();
+            final double prevY = robot.getY();
+            final double prevVelocity = robot.getVelocity();
+            final double prevHeading = robot.getHeadingRadians();
+            robot.apply(desiredVelocity, turnRate);
+            if (!battleField.containsExact(robot.getX(), robot.getY())) {
+                robot.set(prevX, prevY, 0, prevHeading, 0, robot.getEnergy());
+                desiredVelocity = -desiredVelocity;
+            }
+
+            final double prevAcceleration = acceleration;
+            acceleration = LXXUtils.limit(-Rules.DECELERATION, robot.getSpeed() - Math.abs(prevVelocity), Rules.ACCELERATION);
+            if (Math.signum(prevAcceleration) != Math.signum(acceleration)) {
+                lastDirChangeTime = time;
+            }
+            if (robot.getSpeed() == 0) {
+                lastStopTime = time;
+            }
+        }
+
+        private BenchmarkRobot toRobot(RobotImage robot, long time) {
+            final BenchmarkRobot res = new BenchmarkRobot(copy(robot), time);
+            final LXXPoint position = new LXXPoint(robot);
+            final LXXPoint position10TicksAgo = positions[(int) (time % positions.length)];
+            res.last10TicksDist = position10TicksAgo != null ? position10TicksAgo.aDistance(position) : 0;
+            positions[(int) (time % positions.length)] = position;
+            res.acceleration = acceleration;
+            res.lastStopTime = lastStopTime;
+            res.lastDirChangeTime = lastDirChangeTime;
+            return res;
+        }
+    }
+
+    private static class BenchmarkRobot implements LXXRobot {
+
+        private final RobotImage state;
+        private final long time;
+
+        private double acceleration;
+        private long lastStopTime;
+        private long lastDirChangeTime;
+        private double last10TicksDist;
+
+        private BenchmarkRobot(RobotImage state, long time) {
+            this.state = state;
+            this.time = time;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getName() {
+            return "Benchmark robot";
+        }
+
+        public boolean isAlive() {
+            return true;
+        }
+
+        public double getWidth() {
+            return LXXConstants.ROBOT_SIDE_SIZE;
+        }
+
+        public double getHeight() {
+            return LXXConstants.ROBOT_SIDE_SIZE;
+        }
+
+        public LXXRobotState getState() {
+            return state;
+        }
+
+        public LXXRobotState getPrevState() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getAcceleration() {
+            return acceleration;
+        }
+
+        public LXXPoint getPosition() {
+            return new LXXPoint(state);
+        }
+
+        public long getLastStopTime() {
+            return lastStopTime;
+        }
+
+        public long getLastTravelTime() {
+            throw new UnsupportedOperationException();
+        }
+
+        public long getLastTurnTime() {
+            throw new UnsupportedOperationException();
+        }
+
+        public long getLastNotTurnTime() {
+            throw new UnsupportedOperationException();
+        }
+
+        public long getLastDirChangeTime() {
+            return lastDirChangeTime;
+        }
+
+        public double getGunHeat() {
+            throw new UnsupportedOperationException();
+        }
+
+        public double getFirePower() {
+            throw new UnsupportedOperationException();
+        }
+
+        public int getRound() {
+            return 0;
+        }
+
+        public double getLast10TicksDist() {
+            return last10TicksDist;
+        }
+
+        public double getX() {
+            return state.getX();
+        }
+
+        public double getY() {
+            return state.getY();
+        }
+
+        public double aDistance(APoint p) {
+            return state.aDistance(p);
+        }
+
+        public double angleTo(APoint pnt) {
+            return state.angleTo(pnt);
+        }
+
+        public APoint project(double alpha, double distance) {
+            return state.project(alpha, distance);
+        }
+
+        public APoint project(DeltaVector dv) {
+            return state.project(dv);
+        }
+    }
+
+}
@@ -2,8 +2,13 @@ package lxx.utils;
 
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
+import static java.lang.Math.abs;
 import static java.lang.Math.random;
 
 /**
@@ -26,4 +31,78 @@ public class MedianTest extends TestCase {
         }
         System.out.println("test");
     }
+
+    public void testQuantilesOfWindow() {
+        final Random rnd = new Random(1);
+        for (int limit : new int[]{1, 2, 7, 100, 1000}) {
+            final Median median = new Median(limit);
+            final LinkedList<Double> window = new LinkedList<Double>();
+            for (int i = 0; i < limit * 5; i++) {
+                // integer values check ordering of duplicates
+                final double value = i % 2 == 0 ? rnd.nextInt(10) : rnd.nextGaussian() * 100;
+                median.addValue(value);
+                window.add(value);
+                if (window.size() > limit) {
+                    window.removeFirst();
+                }
+
+                if (i % 7 != 0) {
+                    continue;
+                }
+                final List<Double> sorted = new ArrayList<Double>(window);
+                Collections.sort(sorted);
+                assertEquals(sorted.size(), median.size());
+                assertEquals(sorted, median.getValues());
+                for (int j = 0; j < 5; j++) {
+                    final double quantile = rnd.nextDouble();
+                    final double pos = quantile * (sorted.size() - 1);
+                    final int lowIdx = (int) pos;
+                    final double expected = lowIdx == sorted.size() - 1
+                            ? sorted.get(lowIdx)
+                            : sorted.get(lowIdx) + (sorted.get(lowIdx + 1) - sorted.get(lowIdx)) * (pos - lowIdx);
+                    assertEquals(expected, median.getQuantile(quantile), 1E-9);
+                }
+                final int size = sorted.size();
+                assertEquals((sorted.get((size - 1) / 2) + sorted.get(size / 2)) / 2, median.getMedian(), 1E-9);
+            }
+        }
+    }
+
+    public void testSketch() {
+        final Random rnd = new Random(2);
+        final MedianSketch sketch = new MedianSketch(2000, 0, 180, 181);
+        assertEquals(0D, sketch.getMedian());
+        final Median median = new Median(2000);
+        for (int i = 0; i < 20000; i++) {
+            // distribution changes in the middle, so sketch must forget old values
+            final int value = i < 10000 ? rnd.nextInt(181) : 60 + rnd.nextInt(30);
+            sketch.addValue(value);
+            median.addValue(value);
+            assertEquals(median.size(), sketch.size());
+            // integer values are in bin points, so they are kept exactly
+            if (i % 10 == 0) {
+                assertEquals(median.getMedian(), sketch.getMedian(), 1E-9);
+                assertEquals(median.getQuantile(0.1), sketch.getQuantile(0.1), 1E-9);
+                assertEquals(median.getQuantile(0.9), sketch.getQuantile(0.9), 1E-9);
+            }
+        }
+        assertEquals(60D, sketch.getQuantile(0));
+        assertEquals(89D, sketch.getQuantile(1));
+    }
+
+    public void testSketchOfRealValues() {
+        final Random rnd = new Random(3);
+        final int limit = 1 + rnd.nextInt(500);
+        final MedianSketch sketch = new MedianSketch(limit, -10, 10, 41);
+        final Median median = new Median(limit);
+        for (int i = 0; i < 5000; i++) {
+            final double value = LXXUtils.limit(-10, rnd.nextGaussian() * 5, 10);
+            sketch.addValue(value);
+            median.addValue(value);
+            final double quantile = rnd.nextDouble();
+            final double expected = median.getQuantile(quantile);
+            // half of bin width
+            assertTrue(abs(expected - sketch.getQuantile(quantile)) <= 0.25 + 1E-9);
+        }
+    }
 }
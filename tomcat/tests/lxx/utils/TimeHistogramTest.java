@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TimeHistogramTest extends TestCase {
+
+    public void testBuckets() {
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            final long value = rnd.nextLong() >>> (1 + rnd.nextInt(63));
+            final int idx = TimeHistogram.getBucketIdx(value);
+            assertTrue(value <= TimeHistogram.getBucketUpperBound(idx));
+            assertTrue(idx == 0 || value > TimeHistogram.getBucketUpperBound(idx - 1));
+        }
+        assertEquals(Long.MAX_VALUE, TimeHistogram.getBucketUpperBound(TimeHistogram.getBucketIdx(Long.MAX_VALUE)));
+    }
+
+    public void testPercentiles() {
+        final Random rnd = new Random(2);
+        final TimeHistogram histogram = new TimeHistogram();
+        final long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (rnd.nextDouble() * rnd.nextDouble() * 10000000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{1, 50, 90, 99, 100}) {
+            final long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            final long approx = histogram.getValueAtPercentile(percentile);
+            assertTrue(approx >= exact);
+            assertTrue(approx <= exact + exact / 16 + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values.length, histogram.getCount());
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils;
+
+import java.util.*;
+
+/**
+ * Compares selection of 5 most recent entries by full sort and by TopKSelector.
+ * Each case is measured after warm up iterations, result is average time of operation
+ */
+public class TopKSelectorBenchmark {
+
+    private static final int K = 5;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+
+    private static int blackHole;
+
+    public static void main(String[] args) {
+        for (int size : new int[]{1000, 10000, 100000}) {
+            final Random random = new Random(size);
+            final List<Integer> roundTimes = new ArrayList<Integer>();
+            for (int i = 0; i < size; i++) {
+                roundTimes.add(random.nextInt(size * 10));
+            }
+            final int opsPerIteration = Math.max(1, 1000000 / size);
+
+            final TopKSelector selector = new TopKSelector(K);
+            final int[] res = new int[K];
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                sortAndTruncate(roundTimes, opsPerIteration);
+                select(roundTimes, selector, res, opsPerIteration);
+            }
+
+            long sortTime = 0;
+            long selectTime = 0;
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                sortAndTruncate(roundTimes, opsPerIteration);
+                sortTime += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                select(roundTimes, selector, res, opsPerIteration);
+                selectTime += System.nanoTime() - start;
+            }
+
+            final int ops = MEASUREMENT_ITERATIONS * opsPerIteration;
+            System.out.printf("size %6d: sort %10.1f ns/op, top-k %10.1f ns/op\n", size,
+                    (double) sortTime / ops, (double) selectTime / ops);
+        }
+        System.out.println(blackHole);
+    }
+
+    private static void sortAndTruncate(List<Integer> roundTimes, int ops) {
+        for (int op = 0; op < ops; op++) {
+            final List<Integer> sorted = new ArrayList<Integer>(roundTimes);
+            Collections.sort(sorted, new Comparator<Integer>() {
+                public int compare(Integer o1, Integer o2) {
+                    return o2 - o1;
+                }
+            });
+            blackHole += sorted.subList(0, K).get(0);
+        }
+    }
+
+    private static void select(List<Integer> roundTimes, TopKSelector selector, int[] res, int ops) {
+        final int size = roundTimes.size();
+        for (int op = 0; op < ops; op++) {
+            selector.reset();
+            for (int i = 0; i < size; i++) {
+                selector.offer(-roundTimes.get(i), i);
+            }
+            selector.drain(res);
+            blackHole += roundTimes.get(res[0]);
+        }
+    }
+
+}
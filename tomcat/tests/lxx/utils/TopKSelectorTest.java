@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TopKSelectorTest extends TestCase {
+
+    public void testSelectsSmallestKeys() throws Exception {
+        final Random random = new Random(1);
+        final TopKSelector selector = new TopKSelector(20);
+        final int[] res = new int[20];
+
+        for (int run = 0; run < 1000; run++) {
+            final int k = random.nextInt(21);
+            final int n = random.nextInt(100);
+            final double[] keys = new double[n];
+            selector.reset(k);
+            for (int i = 0; i < n; i++) {
+                keys[i] = random.nextDouble();
+                selector.offer(keys[i], i);
+            }
+
+            final double[] sortedKeys = keys.clone();
+            Arrays.sort(sortedKeys);
+            final int count = selector.drain(res);
+            assertEquals(Math.min(k, n), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(sortedKeys[i], keys[res[i]]);
+            }
+            assertEquals(0, selector.size());
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils.kd_tree;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class FlatKdTreeTest extends TestCase {
+
+    private static final int DIMENSIONS = 3;
+    private static final int CAPACITY = 300;
+
+    public void testAddAndEviction() {
+        final Random rnd = new Random(1);
+        final FlatKdTree<Integer> tree = new FlatKdTree<Integer>(DIMENSIONS, CAPACITY);
+        final List<double[]> points = new ArrayList<double[]>();
+        final List<Integer> values = new ArrayList<Integer>();
+        final List<Integer> ids = new ArrayList<Integer>();
+
+        for (int i = 0; i < 3000; i++) {
+            final double[] point = randomPoint(rnd);
+            ids.add(tree.add(point, i));
+            points.add(point);
+            values.add(i);
+            if (points.size() > CAPACITY) {
+                points.remove(0);
+                values.remove(0);
+                ids.remove(0);
+            }
+
+            if (rnd.nextInt(10) == 0) {
+                final int idx = rnd.nextInt(points.size());
+                tree.remove(ids.remove(idx));
+                points.remove(idx);
+                values.remove(idx);
+            }
+            if (rnd.nextInt(20) == 0 && points.size() > 0) {
+                assertEquals((int) ids.remove(0), tree.removeOldest());
+                points.remove(0);
+                values.remove(0);
+            }
+
+            assertEquals(points.size(), tree.size());
+            if (i % 10 == 0) {
+                checkNearestNeighbours(tree, points, values, rnd);
+            }
+        }
+        checkAge(tree, values);
+    }
+
+    public void testBulkLoad() {
+        final Random rnd = new Random(2);
+        final double[][] points = new double[CAPACITY * 2][];
+        final List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < points.length; i++) {
+            points[i] = randomPoint(rnd);
+            values.add(i);
+        }
+
+        final FlatKdTree<Integer> tree = new FlatKdTree<Integer>(DIMENSIONS, CAPACITY, points, values);
+        final List<double[]> expectedPoints = new ArrayList<double[]>(Arrays.asList(points).subList(CAPACITY, points.length));
+        final List<Integer> expectedValues = new ArrayList<Integer>(values.subList(CAPACITY, points.length));
+        assertEquals(CAPACITY, tree.size());
+        checkAge(tree, expectedValues);
+        for (int i = 0; i < 100; i++) {
+            checkNearestNeighbours(tree, expectedPoints, expectedValues, rnd);
+        }
+
+        // loaded tree keeps evicting oldest points
+        for (int i = 0; i < CAPACITY / 2; i++) {
+            final double[] point = randomPoint(rnd);
+            tree.add(point, points.length + i);
+            expectedPoints.remove(0);
+            expectedValues.remove(0);
+            expectedPoints.add(point);
+            expectedValues.add(points.length + i);
+        }
+        checkAge(tree, expectedValues);
+        for (int i = 0; i < 100; i++) {
+            checkNearestNeighbours(tree, expectedPoints, expectedValues, rnd);
+        }
+    }
+
+    private static void checkAge(FlatKdTree<Integer> tree, List<Integer> expectedValues) {
+        final int[] ids = new int[tree.size()];
+        assertEquals(expectedValues.size(), tree.getIdsByAge(ids));
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(expectedValues.get(i), tree.getValue(ids[i]));
+        }
+    }
+
+    private static void checkNearestNeighbours(FlatKdTree<Integer> tree, List<double[]> points, List<Integer> values, Random rnd) {
+        final double[] location = randomPoint(rnd);
+        final int count = 1 + rnd.nextInt(30);
+
+        final Integer[] order = new Integer[points.size()];
+        final double[] bruteForceDistances = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            order[i] = i;
+            bruteForceDistances[i] = sqrDist(location, points.get(i));
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return Double.compare(bruteForceDistances[o1], bruteForceDistances[o2]);
+            }
+        });
+
+        final int[] ids = new int[count];
+        final double[] distances = new double[count];
+        final int found = tree.nearestNeighbours(location, count, ids, distances);
+        assertEquals(Math.min(count, points.size()), found);
+        for (int i = 0; i < found; i++) {
+            assertEquals(bruteForceDistances[order[i]], distances[i], 1E-9);
+            assertEquals(values.get(order[i]), tree.getValue(ids[i]));
+        }
+    }
+
+    // clustered points, so tree has splits of different depth
+    private static double[] randomPoint(Random rnd) {
+        final double[] point = new double[DIMENSIONS];
+        final double center = rnd.nextInt(3) * 0.4;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            point[i] = center + rnd.nextGaussian() * 0.1;
+        }
+        return point;
+    }
+
+    private static double sqrDist(double[] a, double[] b) {
+        double res = 0;
+        for (int i = 0; i < a.length; i++) {
+            res += (a[i] - b[i]) * (a[i] - b[i]);
+        }
+        return res;
+    }
+
+}
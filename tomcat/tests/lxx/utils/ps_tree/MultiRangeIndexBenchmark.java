@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils.ps_tree;
+
+import lxx.ts_log.TurnSnapshot;
+import lxx.ts_log.TurnSnapshotsStore;
+import lxx.ts_log.attributes.Attribute;
+import lxx.ts_log.attributes.AttributesManager;
+
+import java.util.*;
+
+/**
+ * Compares queries of 15 visit logs of AdvancedEnemyGunModel by linear scan of entries per log
+ * with sort by round time and by single shared MultiRangeIndex
+ */
+public class MultiRangeIndexBenchmark {
+
+    private static final Attribute[] attributes = {
+            AttributesManager.myLateralSpeed,
+            AttributesManager.myAcceleration,
+            AttributesManager.distBetween,
+            AttributesManager.myDistToForwardWall,
+    };
+    private static final double[] halfSides = {2, 0, 75, 50};
+
+    private static final int ENTRIES_COUNT = 5000;
+    private static final int QUERIES_COUNT = 5000;
+    private static final int TOP_SIZE = 5;
+
+    public static void main(String[] args) {
+        final Random random = new Random(1);
+        final TurnSnapshotsStore store = new TurnSnapshotsStore(AttributesManager.attributesCount(), 0);
+        final double[] values = new double[AttributesManager.attributesCount()];
+        final TurnSnapshot[] snapshots = new TurnSnapshot[ENTRIES_COUNT + QUERIES_COUNT];
+        for (int i = 0; i < snapshots.length; i++) {
+            values[AttributesManager.myLateralSpeed.getId()] = random.nextInt(9);
+            values[AttributesManager.myAcceleration.getId()] = random.nextInt(4) - 2;
+            values[AttributesManager.distBetween.getId()] = Math.max(0, 300 + random.nextGaussian() * 100);
+            values[AttributesManager.myDistToForwardWall.getId()] = random.nextDouble() * 500;
+            snapshots[i] = store.append(values);
+        }
+        for (Attribute a : attributes) {
+            a.setActualMin(a.getMinValue());
+            a.setActualMax(a.getMaxValue());
+        }
+
+        final List<int[]> subsets = new ArrayList<int[]>();
+        for (int mask = 1; mask < 1 << attributes.length; mask++) {
+            final int[] subset = new int[Integer.bitCount(mask)];
+            for (int bit = 0, i = 0; bit < attributes.length; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    subset[i++] = bit;
+                }
+            }
+            subsets.add(subset);
+        }
+
+        for (int run = 0; run < 3; run++) {
+            final List<PSTreeEntry<Integer>> allEntries = new ArrayList<PSTreeEntry<Integer>>();
+            final MultiRangeIndex<Integer> multiRangeIndex = new MultiRangeIndex<Integer>(attributes, TOP_SIZE);
+            final int[] masks = new int[subsets.size()];
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] = multiRangeIndex.getAttributesMask(getAttributes(subsets.get(i)));
+            }
+
+            for (int i = 0; i < ENTRIES_COUNT; i++) {
+                // entries are learned, when wave is broken, so their order differs from order of round time
+                final PSTreeEntry<Integer> entry = new PSTreeEntry<Integer>(snapshots[i ^ 1]);
+                allEntries.add(entry);
+                multiRangeIndex.addEntry(entry);
+            }
+
+            final List<List<PSTreeEntry<Integer>>> expected = new ArrayList<List<PSTreeEntry<Integer>>>();
+            long start = System.nanoTime();
+            for (int i = 0; i < QUERIES_COUNT; i++) {
+                final TurnSnapshot center = snapshots[ENTRIES_COUNT + i];
+                for (int j = 0; j < subsets.size(); j++) {
+                    final int[] subset = subsets.get(j);
+                    final int[] from = new int[subset.length];
+                    final int[] to = new int[subset.length];
+                    for (int k = 0; k < subset.length; k++) {
+                        from[k] = getFrom(center, subset[k]);
+                        to[k] = getTo(center, subset[k]);
+                    }
+                    final List<PSTreeEntry<Integer>> entries = new ArrayList<PSTreeEntry<Integer>>();
+                    for (PSTreeEntry<Integer> entry : allEntries) {
+                        if (matches(entry, subset, from, to)) {
+                            entries.add(entry);
+                        }
+                    }
+                    Collections.sort(entries, new Comparator<PSTreeEntry<Integer>>() {
+                        public int compare(PSTreeEntry<Integer> o1, PSTreeEntry<Integer> o2) {
+                            return o2.predicate.roundTime - o1.predicate.roundTime;
+                        }
+                    });
+                    if (i < 100) {
+                        expected.add(entries.subList(0, Math.min(TOP_SIZE, entries.size())));
+                    }
+                }
+            }
+            final long linearScanTime = System.nanoTime() - start;
+
+            final List<List<PSTreeEntry<Integer>>> actual = new ArrayList<List<PSTreeEntry<Integer>>>();
+            final int[] from = new int[attributes.length];
+            final int[] to = new int[attributes.length];
+            final List<PSTreeEntry<Integer>> entries = new ArrayList<PSTreeEntry<Integer>>();
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES_COUNT; i++) {
+                final TurnSnapshot center = snapshots[ENTRIES_COUNT + i];
+                for (int k = 0; k < attributes.length; k++) {
+                    from[k] = getFrom(center, k);
+                    to[k] = getTo(center, k);
+                }
+                multiRangeIndex.prepareQuery(from, to);
+                for (int mask : masks) {
+                    entries.clear();
+                    multiRangeIndex.getMostRecentEntries(mask, TOP_SIZE, entries);
+                    if (i < 100) {
+                        actual.add(new ArrayList<PSTreeEntry<Integer>>(entries));
+                    }
+                }
+            }
+            final long multiRangeIndexTime = System.nanoTime() - start;
+
+            System.out.printf("Linear scan per log: %8d us\n", linearScanTime / 1000);
+            System.out.printf("MultiRangeIndex:     %8d us\n", multiRangeIndexTime / 1000);
+            System.out.println("Exact results: " + expected.equals(actual));
+        }
+    }
+
+    private static boolean matches(PSTreeEntry<Integer> entry, int[] subset, int[] from, int[] to) {
+        for (int k = 0; k < subset.length; k++) {
+            final int value = entry.predicate.getRoundedAttrValue(attributes[subset[k]]);
+            if (value < from[k] || value > to[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Attribute[] getAttributes(int[] subset) {
+        final Attribute[] res = new Attribute[subset.length];
+        for (int i = 0; i < subset.length; i++) {
+            res[i] = attributes[subset[i]];
+        }
+        return res;
+    }
+
+    private static int getFrom(TurnSnapshot center, int attrIdx) {
+        return (int) Math.round(center.getAttrValue(attributes[attrIdx]) - halfSides[attrIdx]);
+    }
+
+    private static int getTo(TurnSnapshot center, int attrIdx) {
+        return (int) Math.round(center.getAttrValue(attributes[attrIdx]) + halfSides[attrIdx]);
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2011 Alexey Zhidkov (Jdev). All Rights Reserved.
+ */
+
+package lxx.utils.wave;
+
+import junit.framework.TestCase;
+import lxx.StubRobot;
+import lxx.utils.IntervalDouble;
+import robocode.util.Utils;
+
+import java.util.Random;
+
+import static java.lang.Math.*;
+
+public class WaveTest extends TestCase {
+
+    private static final double ROBOT_SIZE = 36;
+    private static final int SAMPLES_PER_SIDE = 73;
+
+    public void testHitIntervalMatchesSampling() {
+        final Random rnd = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            checkWave(rnd);
+        }
+    }
+
+    private void checkWave(Random rnd) {
+        final double sourceX = 100 + rnd.nextDouble() * 600;
+        final double sourceY = 100 + rnd.nextDouble() * 400;
+        final double angle = rnd.nextDouble() * 2 * PI;
+        final double dist = 50 + rnd.nextDouble() * 500;
+        final double targetX = sourceX + sin(angle) * dist;
+        final double targetY = sourceY + cos(angle) * dist;
+        final double speed = 11 + rnd.nextDouble() * 8.7;
+
+        final StubRobot source = new StubRobot(sourceX, sourceY);
+        final StubRobot target = new StubRobot(targetX, targetY);
+        long time = rnd.nextInt(100);
+        source.setTime(time);
+        target.setTime(time);
+        final Wave wave = new Wave(source.getState(), target.getState(), speed, time);
+
+        // bearing offsets and distances of points of target's bounding box
+        final double baseAngle = atan2(targetX - sourceX, targetY - sourceY);
+        final double[] bearingOffsets = new double[SAMPLES_PER_SIDE * SAMPLES_PER_SIDE];
+        final double[] distances = new double[bearingOffsets.length];
+        for (int xi = 0; xi < SAMPLES_PER_SIDE; xi++) {
+            for (int yi = 0; yi < SAMPLES_PER_SIDE; yi++) {
+                final double x = targetX - ROBOT_SIZE / 2 + ROBOT_SIZE * xi / (SAMPLES_PER_SIDE - 1) - sourceX;
+                final double y = targetY - ROBOT_SIZE / 2 + ROBOT_SIZE * yi / (SAMPLES_PER_SIDE - 1) - sourceY;
+                bearingOffsets[xi * SAMPLES_PER_SIDE + yi] = Utils.normalRelativeAngle(atan2(x, y) - baseAngle);
+                distances[xi * SAMPLES_PER_SIDE + yi] = sqrt(x * x + y * y);
+            }
+        }
+        final double step = ROBOT_SIZE / (SAMPLES_PER_SIDE - 1);
+        final double tolerance = step / (dist - ROBOT_SIZE);
+
+        double sampledMin = Double.POSITIVE_INFINITY;
+        double sampledMax = Double.NEGATIVE_INFINITY;
+        final long launchTime = time;
+        while (!wave.isPassed()) {
+            final double outerRadius = (time - launchTime + 1) * speed;
+            final double innerRadius = max(0, outerRadius - speed);
+            double tickSampledMin = Double.POSITIVE_INFINITY;
+            double tickSampledMax = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < bearingOffsets.length; i++) {
+                if (distances[i] >= innerRadius && distances[i] <= outerRadius) {
+                    tickSampledMin = min(tickSampledMin, bearingOffsets[i]);
+                    tickSampledMax = max(tickSampledMax, bearingOffsets[i]);
+                }
+            }
+            sampledMin = min(sampledMin, tickSampledMin);
+            sampledMax = max(sampledMax, tickSampledMax);
+
+            // wave, which is checked only in current tick, covers only current tick's part of bounding box
+            final Wave tickWave = new Wave(source.getState(), target.getState(), speed, launchTime);
+            final boolean isTickHit = tickWave.check();
+            if (tickSampledMin <= tickSampledMax) {
+                assertTrue(isTickHit);
+            }
+            checkInterval(tickWave.getHitBearingOffsetInterval(), tickSampledMin, tickSampledMax, tolerance);
+
+            wave.check();
+            checkInterval(wave.getHitBearingOffsetInterval(), sampledMin, sampledMax, tolerance);
+            time++;
+            source.setTime(time);
+            target.setTime(time);
+        }
+        assertNotNull(wave.getHitBearingOffsetInterval());
+    }
+
+    private static void checkInterval(IntervalDouble interval, double sampledMin, double sampledMax, double tolerance) {
+        if (sampledMin <= sampledMax) {
+            assertNotNull(interval);
+            assertTrue(interval.a <= sampledMin + 1E-9);
+            assertTrue(interval.b >= sampledMax - 1E-9);
+            assertEquals(sampledMin, interval.a, tolerance);
+            assertEquals(sampledMax, interval.b, tolerance);
+        } else if (interval != null) {
+            // sliver of bounding box between samples
+            assertTrue(interval.getLength() <= tolerance);
+        }
+    }
+
+}